@@ -0,0 +1,52 @@
+#!/usr/bin/env bash
+# Measures time-to-first-request: from process launch until the first successful response on URL.
+#
+# Usage: benchmark/startup-benchmark.sh [runs] [-- command to start the app]
+#   benchmark/startup-benchmark.sh 10
+#   benchmark/startup-benchmark.sh 10 -- docker run --rm --network host luissfmt/springboot2-essentials:0.0.1-SNAPSHOT-fast-startup
+#
+# Environment: URL (default http://localhost:8080/actuator/health), TIMEOUT_SECONDS (default 120)
+set -euo pipefail
+
+RUNS="${1:-5}"
+shift || true
+[[ "${1:-}" == "--" ]] && shift
+
+URL="${URL:-http://localhost:8080/actuator/health}"
+TIMEOUT_SECONDS="${TIMEOUT_SECONDS:-120}"
+
+if [[ $# -eq 0 ]]; then
+  JAR="$(ls target/*.jar 2>/dev/null | grep -v '\.original$' | head -n 1)"
+  [[ -z "$JAR" ]] && { echo "No jar in target/, run ./mvnw package first or pass a command after --" >&2; exit 1; }
+  set -- java -jar "$JAR"
+fi
+
+now_ms() { date +%s%3N; }
+
+results=()
+for run in $(seq 1 "$RUNS"); do
+  start="$(now_ms)"
+  "$@" > "target/startup-benchmark-$run.log" 2>&1 &
+  pid=$!
+
+  elapsed=""
+  while (( $(now_ms) - start < TIMEOUT_SECONDS * 1000 )); do
+    if curl -fs -o /dev/null "$URL"; then
+      elapsed=$(( $(now_ms) - start ))
+      break
+    fi
+    kill -0 "$pid" 2>/dev/null || break
+    sleep 0.05
+  done
+
+  kill "$pid" 2>/dev/null || true
+  wait "$pid" 2>/dev/null || true
+
+  [[ -z "$elapsed" ]] && { echo "run $run: no successful response, see target/startup-benchmark-$run.log" >&2; exit 1; }
+  echo "run $run: ${elapsed} ms"
+  results+=("$elapsed")
+done
+
+sorted=($(printf '%s\n' "${results[@]}" | sort -n))
+count=${#sorted[@]}
+echo "time-to-first-request over $count runs: min ${sorted[0]} ms, median ${sorted[$(( count / 2 ))]} ms, max ${sorted[$(( count - 1 ))]} ms"
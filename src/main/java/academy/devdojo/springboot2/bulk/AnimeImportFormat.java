@@ -0,0 +1,5 @@
+package academy.devdojo.springboot2.bulk;
+
+public enum AnimeImportFormat {
+  CSV, NDJSON
+}
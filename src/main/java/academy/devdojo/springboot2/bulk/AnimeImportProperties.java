@@ -0,0 +1,11 @@
+package academy.devdojo.springboot2.bulk;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.import")
+public class AnimeImportProperties {
+  private int batchSize = 500;
+  private int maxReportedRejections = 1000;
+}
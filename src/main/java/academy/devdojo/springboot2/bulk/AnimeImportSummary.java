@@ -0,0 +1,15 @@
+package academy.devdojo.springboot2.bulk;
+
+import java.util.List;
+
+/**
+ * Outcome of an import. Every line up to {@code lastCommittedLine} has been either saved or rejected,
+ * so an interrupted import can be sent again with {@code resumeAfterLine} set to it. With sharded storage
+ * a batch commits shard by shard, so the lines after it that were saved anyway are listed in {@code savedLines};
+ * such an import is sent again without those lines instead of being resumed.
+ */
+public record AnimeImportSummary(long accepted, long rejected, List<Rejection> rejections, long lastCommittedLine,
+                                 List<Long> savedLines, long elapsedMillis, boolean completed, String error) {
+  public record Rejection(long line, String reason) {
+  }
+}
@@ -0,0 +1,278 @@
+package academy.devdojo.springboot2.bulk;
+
+import academy.devdojo.springboot2.domain.Anime;
+import academy.devdojo.springboot2.event.AnimeChangedEvent;
+import academy.devdojo.springboot2.event.AnimesChangedEvent;
+import academy.devdojo.springboot2.exception.BadRequestException;
+import academy.devdojo.springboot2.mapper.AnimeMapper;
+import academy.devdojo.springboot2.repository.AnimeRepository;
+import academy.devdojo.springboot2.requests.AnimePostRequestBody;
+import academy.devdojo.springboot2.shard.AnimeShards;
+import academy.devdojo.springboot2.sync.AnimeChangeLogProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Streams a CSV or NDJSON body line by line into fixed-size transactions. Nothing is read ahead of the
+ * batch being written, so memory stays bounded by the batch size and a slow database slows down the
+ * upload instead of buffering it.
+ */
+@Component
+@Log4j2
+@EnableConfigurationProperties(AnimeImportProperties.class)
+public class AnimeImporter {
+  private static final String NAME_COLUMN = "name";
+
+  private final AnimeImportProperties properties;
+  private final AnimeRepository animeRepository;
+  private final TransactionTemplate transaction;
+  private final Validator validator;
+  private final ObjectMapper objectMapper;
+  private final ApplicationEventPublisher applicationEventPublisher;
+  private final AnimeShards animeShards;
+
+  public AnimeImporter(AnimeImportProperties properties, AnimeChangeLogProperties changeLogProperties,
+                       AnimeRepository animeRepository, PlatformTransactionManager transactionManager,
+                       Validator validator, ObjectMapper objectMapper,
+                       ApplicationEventPublisher applicationEventPublisher, AnimeShards animeShards) {
+    this.properties = properties;
+    this.animeRepository = animeRepository;
+    // Every batch is recorded in the change log, which only settles changes whose transaction cannot outlast this
+    this.transaction = new TransactionTemplate(transactionManager);
+    this.transaction.setTimeout((int) changeLogProperties.getCommitTimeout().toSeconds());
+    this.validator = validator;
+    this.objectMapper = objectMapper;
+    this.applicationEventPublisher = applicationEventPublisher;
+    this.animeShards = animeShards;
+  }
+
+  public AnimeImportSummary importAnimes(InputStream body, AnimeImportFormat format, long resumeAfterLine) {
+    if (resumeAfterLine > 0 && animeShards.isEnabled()) {
+      throw new BadRequestException("Sharded imports cannot be resumed, import the lines after lastCommittedLine "
+              + "that are not in savedLines instead");
+    }
+
+    Progress progress = new Progress(System.nanoTime());
+
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+      int nameColumn = format == AnimeImportFormat.CSV ? readCsvHeader(reader, progress) : -1;
+      List<ImportedLine> batch = new ArrayList<>(properties.getBatchSize());
+      String line;
+
+      while ((line = reader.readLine()) != null) {
+        long lineNumber = ++progress.line;
+
+        if (lineNumber <= resumeAfterLine || line.isBlank()) {
+          continue;
+        }
+
+        Anime anime = format == AnimeImportFormat.CSV ? parseCsv(line, nameColumn, progress) : parseNdjson(line, progress);
+
+        if (anime != null) {
+          batch.add(new ImportedLine(lineNumber, anime));
+        }
+
+        if (batch.size() == properties.getBatchSize()) {
+          write(batch, progress);
+        }
+      }
+
+      write(batch, progress);
+      progress.completed = true;
+    } catch (BadRequestException e) {
+      throw e;
+    } catch (IOException | RuntimeException e) {
+      log.warn("Anime import stopped at line {}, committed up to line {}", progress.line, progress.lastCommittedLine, e);
+      progress.error = e.getMessage();
+    }
+
+    AnimeImportSummary summary = progress.summary();
+    log.info("Anime import finished: {} accepted, {} rejected in {} ms", summary.accepted(), summary.rejected(), summary.elapsedMillis());
+
+    return summary;
+  }
+
+  private int readCsvHeader(BufferedReader reader, Progress progress) throws IOException {
+    String header = reader.readLine();
+    progress.line++;
+
+    List<String> columns = header == null ? List.of() : parseCsvFields(header);
+
+    for (int i = 0; i < columns.size(); i++) {
+      if (NAME_COLUMN.equalsIgnoreCase(columns.get(i).strip())) {
+        return i;
+      }
+    }
+
+    throw new BadRequestException("The CSV header must have a 'name' column");
+  }
+
+  private Anime parseCsv(String line, int nameColumn, Progress progress) {
+    List<String> fields = parseCsvFields(line);
+
+    if (fields == null) {
+      progress.reject("Unterminated quoted field");
+      return null;
+    }
+
+    String name = nameColumn < fields.size() ? fields.get(nameColumn) : null;
+
+    return validate(AnimePostRequestBody.builder().name(name).build(), progress);
+  }
+
+  private Anime parseNdjson(String line, Progress progress) {
+    try {
+      return validate(objectMapper.readValue(line, AnimePostRequestBody.class), progress);
+    } catch (JsonProcessingException e) {
+      progress.reject("Malformed JSON: " + e.getOriginalMessage());
+      return null;
+    }
+  }
+
+  private Anime validate(AnimePostRequestBody animePostRequestBody, Progress progress) {
+    Set<ConstraintViolation<AnimePostRequestBody>> violations = validator.validate(animePostRequestBody);
+
+    if (!violations.isEmpty()) {
+      progress.reject(violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(", ")));
+      return null;
+    }
+
+    return AnimeMapper.INSTANCE.toAnime(animePostRequestBody);
+  }
+
+  private void write(List<ImportedLine> batch, Progress progress) {
+    if (!batch.isEmpty()) {
+      if (animeShards.isEnabled()) {
+        writeSharded(batch, progress);
+      } else {
+        transaction.executeWithoutResult(status -> publishCreated(
+                animeRepository.saveAll(batch.stream().map(ImportedLine::anime).toList())));
+      }
+
+      progress.accepted += batch.size();
+      batch.clear();
+    }
+
+    progress.lastCommittedLine = progress.line;
+  }
+
+  // One transaction per shard: when a later shard fails, the earlier ones stay committed, so their lines are
+  // reported as saved past the last committed line, and resuming is refused as it would insert them again
+  private void writeSharded(List<ImportedLine> batch, Progress progress) {
+    batch.forEach(line -> line.anime().setId(animeShards.allocateId()));
+    List<Long> savedLines = new ArrayList<>();
+
+    try {
+      batch.stream()
+              .collect(Collectors.groupingBy(line -> animeShards.shardOf(line.anime().getId())))
+              .forEach((shard, lines) -> {
+                animeShards.onShard(shard, () -> transaction.execute(status -> {
+                  publishCreated(lines.stream().map(line -> animeRepository.insertWithId(line.anime())).toList());
+
+                  return null;
+                }));
+
+                lines.forEach(line -> savedLines.add(line.number()));
+              });
+    } catch (RuntimeException e) {
+      progress.accepted += savedLines.size();
+      savedLines.stream().sorted().forEach(progress.savedLines::add);
+      throw e;
+    }
+  }
+
+  // One event per transaction, so listeners handle a batch at once instead of once per line
+  private void publishCreated(List<Anime> animes) {
+    applicationEventPublisher.publishEvent(new AnimesChangedEvent(animes.stream()
+            .map(anime -> new AnimeChangedEvent(AnimeChangedEvent.Type.CREATED, anime))
+            .toList()));
+  }
+
+  // Null when a quoted field is not closed on the same line
+  static List<String> parseCsvFields(String line) {
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+
+      if (quoted) {
+        if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else if (c == '"') {
+          quoted = false;
+        } else {
+          field.append(c);
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+
+    if (quoted) {
+      return null;
+    }
+
+    fields.add(field.toString());
+
+    return fields;
+  }
+
+  private record ImportedLine(long number, Anime anime) {
+  }
+
+  private class Progress {
+    private final long startNanos;
+    private final List<AnimeImportSummary.Rejection> rejections = new ArrayList<>();
+    private final List<Long> savedLines = new ArrayList<>();
+    private long line;
+    private long lastCommittedLine;
+    private long accepted;
+    private long rejected;
+    private boolean completed;
+    private String error;
+
+    private Progress(long startNanos) {
+      this.startNanos = startNanos;
+    }
+
+    private void reject(String reason) {
+      rejected++;
+
+      if (rejections.size() < properties.getMaxReportedRejections()) {
+        rejections.add(new AnimeImportSummary.Rejection(line, reason));
+      }
+    }
+
+    private AnimeImportSummary summary() {
+      return new AnimeImportSummary(accepted, rejected, List.copyOf(rejections), lastCommittedLine,
+              List.copyOf(savedLines), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), completed, error);
+    }
+  }
+}
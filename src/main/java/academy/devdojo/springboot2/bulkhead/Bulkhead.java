@@ -0,0 +1,95 @@
+package academy.devdojo.springboot2.bulkhead;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounds the requests of one kind running at once, and so the request threads and pooled connections they can take
+ * from the others. Requests beyond the limit wait up to the max wait in a bounded queue, the rest are rejected.
+ */
+public class Bulkhead {
+  private final BulkheadType type;
+  private final BulkheadProperties.Budget budget;
+  private final Semaphore permits;
+  private final AtomicInteger queued = new AtomicInteger();
+  private final Counter rejected;
+
+  public Bulkhead(BulkheadType type, BulkheadProperties.Budget budget, MeterRegistry meterRegistry) {
+    this.type = type;
+    this.budget = budget;
+    this.permits = new Semaphore(budget.getMaxConcurrent(), true);
+    this.rejected = Counter.builder("http.bulkhead.rejected")
+            .description("Requests rejected with 503 by a full bulkhead")
+            .tag("bulkhead", name())
+            .register(meterRegistry);
+
+    Gauge.builder("http.bulkhead.in.flight", this, Bulkhead::getInFlight)
+            .description("Requests running within a bulkhead")
+            .tag("bulkhead", name())
+            .register(meterRegistry);
+    Gauge.builder("http.bulkhead.queued", queued, AtomicInteger::get)
+            .description("Requests waiting for a bulkhead permit")
+            .tag("bulkhead", name())
+            .register(meterRegistry);
+    Gauge.builder("http.bulkhead.saturation", this, Bulkhead::getSaturation)
+            .description("Share of a bulkhead's permits in use")
+            .tag("bulkhead", name())
+            .register(meterRegistry);
+  }
+
+  public boolean tryAcquire() throws InterruptedException {
+    if (permits.tryAcquire()) {
+      return true;
+    }
+
+    if (queued.incrementAndGet() > budget.getMaxQueued()) {
+      queued.decrementAndGet();
+      rejected.increment();
+      return false;
+    }
+
+    try {
+      if (permits.tryAcquire(budget.getMaxWait().toNanos(), TimeUnit.NANOSECONDS)) {
+        return true;
+      }
+
+      rejected.increment();
+      return false;
+    } finally {
+      queued.decrementAndGet();
+    }
+  }
+
+  public void release() {
+    permits.release();
+  }
+
+  public BulkheadType getType() {
+    return type;
+  }
+
+  public int getMaxConcurrent() {
+    return budget.getMaxConcurrent();
+  }
+
+  public int getInFlight() {
+    return budget.getMaxConcurrent() - permits.availablePermits();
+  }
+
+  public int getQueued() {
+    return queued.get();
+  }
+
+  public double getSaturation() {
+    return budget.getMaxConcurrent() == 0 ? 1 : (double) getInFlight() / budget.getMaxConcurrent();
+  }
+
+  private String name() {
+    return type.name().toLowerCase();
+  }
+}
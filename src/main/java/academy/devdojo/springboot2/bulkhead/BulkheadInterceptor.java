@@ -0,0 +1,151 @@
+package academy.devdojo.springboot2.bulkhead;
+
+import academy.devdojo.springboot2.exception.ExceptionDetails;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Runs handlers annotated with {@link Bulkheaded} within their bulkhead, so a burst of writes or admin work cannot
+ * take the request threads and connections reads need. Requests a full bulkhead cannot queue get a 503 at once.
+ * Streaming responses only hold their permit while being set up, and requests waiting on another request to do their
+ * work give their permit back with {@link #releasePermit}.
+ */
+@Component
+@EnableConfigurationProperties(BulkheadProperties.class)
+public class BulkheadInterceptor implements AsyncHandlerInterceptor {
+  private static final String PERMIT = BulkheadInterceptor.class.getName() + ".permit";
+  private static final String BULKHEAD = BulkheadInterceptor.class.getName() + ".bulkhead";
+
+  private final BulkheadProperties properties;
+  private final ObjectMapper objectMapper;
+  private final Map<BulkheadType, Bulkhead> bulkheads = new EnumMap<>(BulkheadType.class);
+
+  public BulkheadInterceptor(BulkheadProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.objectMapper = objectMapper;
+    properties.getBudgets().forEach((type, budget) -> bulkheads.put(type, new Bulkhead(type, budget, meterRegistry)));
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+          throws IOException {
+    // Async dispatches complete a request that already went through its bulkhead
+    if (!properties.isEnabled() || request.getDispatcherType() == DispatcherType.ASYNC
+            || !(handler instanceof HandlerMethod handlerMethod)) {
+      return true;
+    }
+
+    Bulkhead bulkhead = bulkheadOf(handlerMethod);
+
+    if (bulkhead == null) {
+      return true;
+    }
+
+    request.setAttribute(BULKHEAD, bulkhead);
+
+    try {
+      if (bulkhead.tryAcquire()) {
+        request.setAttribute(PERMIT, bulkhead);
+        return true;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    reject(response, bulkhead);
+    return false;
+  }
+
+  @Override
+  public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                             Object handler) {
+    release(request);
+  }
+
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                              Exception ex) {
+    release(request);
+  }
+
+  // For the current request while it waits on another one, does nothing outside of a bulkheaded request
+  public static void releasePermit() {
+    if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+      release(attributes.getRequest());
+    }
+  }
+
+  // Takes a permit back for a request that released its own but has to do the work after all; false when full
+  public static boolean reacquirePermit() throws InterruptedException {
+    if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+      return true;
+    }
+
+    HttpServletRequest request = attributes.getRequest();
+
+    if (!(request.getAttribute(BULKHEAD) instanceof Bulkhead bulkhead) || request.getAttribute(PERMIT) != null) {
+      return true;
+    }
+
+    if (!bulkhead.tryAcquire()) {
+      return false;
+    }
+
+    request.setAttribute(PERMIT, bulkhead);
+    return true;
+  }
+
+  // Also taken by the gRPC endpoint, so both share the same budgets. Null when the type is not limited
+  public Bulkhead bulkhead(BulkheadType type) {
+    return properties.isEnabled() ? bulkheads.get(type) : null;
+  }
+
+  private Bulkhead bulkheadOf(HandlerMethod handlerMethod) {
+    Bulkheaded bulkheaded = handlerMethod.getMethodAnnotation(Bulkheaded.class);
+
+    if (bulkheaded == null) {
+      bulkheaded = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getBeanType(), Bulkheaded.class);
+    }
+
+    return bulkheaded == null ? null : bulkheads.get(bulkheaded.value());
+  }
+
+  private static void release(HttpServletRequest request) {
+    if (request.getAttribute(PERMIT) instanceof Bulkhead bulkhead) {
+      request.removeAttribute(PERMIT);
+      bulkhead.release();
+    }
+  }
+
+  private void reject(HttpServletResponse response, Bulkhead bulkhead) throws IOException {
+    response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+    response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    objectMapper.writeValue(response.getOutputStream(), ExceptionDetails.builder()
+            .timestamp(LocalDateTime.now())
+            .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+            .title("Service Unavailable. Bulkhead full.")
+            .details("The %s bulkhead has all of its %d permits in use, retry shortly"
+                    .formatted(bulkhead.getType().name().toLowerCase(), bulkhead.getMaxConcurrent()))
+            .developerMessage(BulkheadInterceptor.class.getName())
+            .build());
+  }
+}
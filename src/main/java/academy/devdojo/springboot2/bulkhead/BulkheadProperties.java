@@ -0,0 +1,25 @@
+package academy.devdojo.springboot2.bulkhead;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.bulkhead")
+public class BulkheadProperties {
+  private boolean enabled = true;
+  // Bulkheads without a budget are not limited. Write and admin requests hold one pooled connection at most, their
+  // max concurrency together stays below the connection pool size so reads always find one
+  private Map<BulkheadType, Budget> budgets = new EnumMap<>(BulkheadType.class);
+
+  @Data
+  public static class Budget {
+    private int maxConcurrent = 10;
+    // Requests waiting for a permit beyond this are rejected at once
+    private int maxQueued = 10;
+    private Duration maxWait = Duration.ofMillis(100);
+  }
+}
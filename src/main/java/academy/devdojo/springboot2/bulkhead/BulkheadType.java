@@ -0,0 +1,5 @@
+package academy.devdojo.springboot2.bulkhead;
+
+public enum BulkheadType {
+  READ, WRITE, ADMIN
+}
@@ -0,0 +1,15 @@
+package academy.devdojo.springboot2.bulkhead;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs a handler method, or every handler method of a controller unless annotated itself, within a bulkhead.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Bulkheaded {
+  BulkheadType value();
+}
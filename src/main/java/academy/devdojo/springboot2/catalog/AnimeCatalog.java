@@ -0,0 +1,281 @@
+package academy.devdojo.springboot2.catalog;
+
+import academy.devdojo.springboot2.datasource.ReplicaRoutingDataSource;
+import academy.devdojo.springboot2.event.AnimeChangedEvent;
+import academy.devdojo.springboot2.event.AnimesChangedEvent;
+import academy.devdojo.springboot2.projection.AnimeView;
+import academy.devdojo.springboot2.repository.AnimeRepository;
+import academy.devdojo.springboot2.shard.AnimeShards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Optional read engine that serves the anime catalog from an in-memory {@link AnimeCatalogSnapshot} instead of the
+ * database. Committed writes, local ones and those the cache coherence poller picks up from other nodes, swap in a
+ * new snapshot copy-on-write, so readers never lock and always see a consistent catalog.
+ * <p>
+ * The snapshot is also written to a local file periodically and on shutdown. On restart a recent, intact file is
+ * served right away while the catalog catches up from the database in the background.
+ */
+@Component
+@Log4j2
+@EnableConfigurationProperties(AnimeCatalogProperties.class)
+public class AnimeCatalog implements InitializingBean, DisposableBean {
+  private static final long CATCH_UP_RETRY_SECONDS = 10;
+
+  private final AnimeCatalogProperties properties;
+  private final AnimeRepository animeRepository;
+  private final AnimeShards animeShards;
+  private final TransactionTemplate readOnlyTransaction;
+  private final Counter fileLoaded;
+  private final Counter fileMissing;
+  private final Counter fileRejected;
+  private final Clock clock;
+  private final Object writeLock = new Object();
+  // Changes committed while a load scans the database, replayed on top of the scan; guarded by writeLock
+  private List<AnimeChangedEvent> changesDuringLoad;
+  private ScheduledExecutorService executor;
+  private volatile AnimeCatalogSnapshot snapshot;
+  private AnimeCatalogSnapshot lastWritten;
+
+  @Autowired
+  public AnimeCatalog(AnimeCatalogProperties properties, AnimeRepository animeRepository, AnimeShards animeShards,
+                      PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+    this(properties, animeRepository, animeShards, transactionManager, meterRegistry, Clock.systemUTC());
+  }
+
+  AnimeCatalog(AnimeCatalogProperties properties, AnimeRepository animeRepository, AnimeShards animeShards,
+               PlatformTransactionManager transactionManager, MeterRegistry meterRegistry, Clock clock) {
+    this.properties = properties;
+    this.animeRepository = animeRepository;
+    this.animeShards = animeShards;
+    this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+    this.readOnlyTransaction.setReadOnly(true);
+    this.clock = clock;
+
+    Gauge.builder("anime.catalog.rows", this, catalog -> catalog.snapshot().map(AnimeCatalogSnapshot::size).orElse(0))
+            .description("Animes held by the in-memory catalog snapshot")
+            .register(meterRegistry);
+    Gauge.builder("anime.catalog.size", this,
+                    catalog -> catalog.snapshot().map(AnimeCatalogSnapshot::sizeInBytes).orElse(0L))
+            .description("Heap held by the in-memory catalog snapshot")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    this.fileLoaded = fileReads(meterRegistry, "loaded");
+    this.fileMissing = fileReads(meterRegistry, "missing");
+    this.fileRejected = fileReads(meterRegistry, "rejected");
+  }
+
+  // Loaded before the application reports ready, so the catalog is complete once traffic comes in
+  @Override
+  public void afterPropertiesSet() {
+    if (!properties.isEnabled()) {
+      return;
+    }
+
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "anime-catalog");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    AnimeCatalogProperties.SnapshotFile snapshotFile = properties.getSnapshotFile();
+
+    if (!snapshotFile.isEnabled()) {
+      load();
+      return;
+    }
+
+    Optional<AnimeCatalogSnapshot> fromFile = readSnapshotFile();
+
+    if (fromFile.isPresent()) {
+      snapshot = fromFile.get();
+      lastWritten = snapshot;
+      executor.execute(this::loadSafely);
+    } else {
+      load();
+    }
+
+    long writeMillis = snapshotFile.getWriteInterval().toMillis();
+    executor.scheduleWithFixedDelay(this::writeSnapshotFileSafely, writeMillis, writeMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void destroy() throws InterruptedException {
+    if (executor == null) {
+      return;
+    }
+
+    executor.shutdownNow();
+    executor.awaitTermination(5, TimeUnit.SECONDS);
+
+    if (properties.getSnapshotFile().isEnabled()) {
+      writeSnapshotFileSafely();
+    }
+  }
+
+  public Optional<AnimeCatalogSnapshot> snapshot() {
+    return Optional.ofNullable(snapshot);
+  }
+
+  // Readers keep the current snapshot during the scan; a change committed meanwhile is either in the scan or replayed
+  public void load() {
+    long started = System.nanoTime();
+
+    synchronized (writeLock) {
+      changesDuringLoad = new ArrayList<>();
+    }
+
+    try {
+      AnimeCatalogSnapshot loaded = scan();
+
+      synchronized (writeLock) {
+        snapshot = apply(loaded, changesDuringLoad);
+      }
+    } finally {
+      synchronized (writeLock) {
+        changesDuringLoad = null;
+      }
+    }
+
+    log.info("Loaded {} animes into the catalog snapshot ({} bytes) in {} ms", snapshot.size(),
+            snapshot.sizeInBytes(), (System.nanoTime() - started) / 1_000_000);
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onAnimeChanged(AnimeChangedEvent event) {
+    onAnimesChanged(new AnimesChangedEvent(List.of(event)));
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onAnimesChanged(AnimesChangedEvent event) {
+    synchronized (writeLock) {
+      if (changesDuringLoad != null) {
+        changesDuringLoad.addAll(event.changes());
+      }
+
+      if (snapshot != null) {
+        snapshot = apply(snapshot, event.changes());
+      }
+    }
+  }
+
+  void writeSnapshotFile() throws IOException {
+    AnimeCatalogSnapshot current = snapshot;
+
+    if (current == null || current == lastWritten) {
+      return;
+    }
+
+    AnimeCatalogSnapshotFile.write(current, properties.getSnapshotFile().getPath(), clock.instant());
+    lastWritten = current;
+  }
+
+  private Optional<AnimeCatalogSnapshot> readSnapshotFile() {
+    AnimeCatalogProperties.SnapshotFile snapshotFile = properties.getSnapshotFile();
+
+    try {
+      AnimeCatalogSnapshot read = AnimeCatalogSnapshotFile.read(snapshotFile.getPath(),
+              clock.instant().minus(snapshotFile.getMaxAge()));
+      fileLoaded.increment();
+      log.info("Serving {} animes from catalog snapshot file {} until the catalog has caught up", read.size(),
+              snapshotFile.getPath());
+
+      return Optional.of(read);
+    } catch (NoSuchFileException e) {
+      fileMissing.increment();
+    } catch (IOException | RuntimeException e) {
+      fileRejected.increment();
+      log.warn("Ignoring catalog snapshot file {}: {}", snapshotFile.getPath(), e.getMessage());
+    }
+
+    return Optional.empty();
+  }
+
+  // Shard by shard, a scan takes longer than the scatter timeout allows for request reads
+  private AnimeCatalogSnapshot scan() {
+    List<AnimeCatalogSnapshot> shards = new ArrayList<>(animeShards.count());
+
+    for (int shard = 0; shard < animeShards.count(); shard++) {
+      shards.add(animeShards.onShard(shard, this::scanShard));
+    }
+
+    return AnimeCatalogSnapshot.merge(shards);
+  }
+
+  // Changes committed during the load are replayed on top of the scan, a lagging replica would lose earlier ones
+  private AnimeCatalogSnapshot scanShard() {
+    return ReplicaRoutingDataSource.callOnPrimary(() -> readOnlyTransaction.execute(status -> {
+      AnimeCatalogSnapshot.Builder builder = AnimeCatalogSnapshot.builder((int) animeRepository.count());
+
+      try (Stream<AnimeView> animes = animeRepository.streamAllViewsOrderById()) {
+        for (Iterator<AnimeView> iterator = animes.iterator(); iterator.hasNext(); ) {
+          AnimeView anime = iterator.next();
+          builder.add(anime.id(), anime.name());
+        }
+      }
+
+      return builder.build();
+    }));
+  }
+
+  private void loadSafely() {
+    try {
+      load();
+    } catch (RuntimeException e) {
+      log.warn("Could not catch the anime catalog up with the database, retrying in {} s", CATCH_UP_RETRY_SECONDS, e);
+      executor.schedule(this::loadSafely, CATCH_UP_RETRY_SECONDS, TimeUnit.SECONDS);
+    }
+  }
+
+  private void writeSnapshotFileSafely() {
+    try {
+      writeSnapshotFile();
+    } catch (IOException | RuntimeException e) {
+      log.warn("Could not write catalog snapshot file {}", properties.getSnapshotFile().getPath(), e);
+    }
+  }
+
+  // The last change of an anime wins, a null name removes it
+  private static AnimeCatalogSnapshot apply(AnimeCatalogSnapshot snapshot, List<AnimeChangedEvent> changes) {
+    SortedMap<Long, String> names = new TreeMap<>();
+
+    for (AnimeChangedEvent change : changes) {
+      names.put(change.anime().getId(),
+              change.type() == AnimeChangedEvent.Type.DELETED ? null : change.anime().getName());
+    }
+
+    return snapshot.withChanges(names);
+  }
+
+  private static Counter fileReads(MeterRegistry meterRegistry, String result) {
+    return Counter.builder("anime.catalog.snapshot.file.reads")
+            .description("Catalog snapshot file reads at startup")
+            .tag("result", result)
+            .register(meterRegistry);
+  }
+}
@@ -0,0 +1,23 @@
+package academy.devdojo.springboot2.catalog;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.catalog")
+public class AnimeCatalogProperties {
+  private boolean enabled = false;
+  private SnapshotFile snapshotFile = new SnapshotFile();
+
+  @Data
+  public static class SnapshotFile {
+    private boolean enabled = true;
+    private Path path = Path.of(System.getProperty("java.io.tmpdir"), "springboot2-essentials", "anime-catalog.snapshot");
+    private Duration writeInterval = Duration.ofMinutes(5);
+    // Older files are ignored, too much has changed for serving them until the catch-up finishes
+    private Duration maxAge = Duration.ofDays(1);
+  }
+}
@@ -0,0 +1,334 @@
+package academy.devdojo.springboot2.catalog;
+
+import academy.devdojo.springboot2.projection.AnimeView;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.SortedMap;
+
+/**
+ * Immutable, compact copy of the anime catalog: ids in a sorted {@code long[]} and every name in one UTF-8 byte
+ * arena, so a row costs its id, one offset and the encoded name instead of an entity, a boxed id and a String.
+ * Names are decoded on read. Changes return a new snapshot and leave this one untouched.
+ */
+public final class AnimeCatalogSnapshot {
+  public static final AnimeCatalogSnapshot EMPTY = new AnimeCatalogSnapshot(new long[0], new int[1], new byte[0]);
+
+  private static final int ARRAY_HEADER_BYTES = 16;
+
+  private final long[] ids;
+  // Name i is names[nameOffsets[i], nameOffsets[i + 1])
+  private final int[] nameOffsets;
+  private final byte[] names;
+
+  AnimeCatalogSnapshot(long[] ids, int[] nameOffsets, byte[] names) {
+    this.ids = ids;
+    this.nameOffsets = nameOffsets;
+    this.names = names;
+  }
+
+  public static AnimeCatalogSnapshot of(Collection<AnimeView> animes) {
+    AnimeView[] sorted = animes.toArray(AnimeView[]::new);
+    Arrays.sort(sorted, Comparator.comparing(AnimeView::id));
+
+    Builder builder = builder(sorted.length);
+
+    for (AnimeView anime : sorted) {
+      builder.add(anime.id(), anime.name());
+    }
+
+    return builder.build();
+  }
+
+  // Merges snapshots holding disjoint ids, such as one per shard
+  public static AnimeCatalogSnapshot merge(List<AnimeCatalogSnapshot> snapshots) {
+    if (snapshots.size() == 1) {
+      return snapshots.get(0);
+    }
+
+    Builder builder = builder(snapshots.stream().mapToInt(AnimeCatalogSnapshot::size).sum());
+    int[] positions = new int[snapshots.size()];
+
+    while (true) {
+      int next = -1;
+
+      for (int i = 0; i < snapshots.size(); i++) {
+        long[] ids = snapshots.get(i).ids;
+
+        if (positions[i] < ids.length && (next < 0 || ids[positions[i]] < snapshots.get(next).ids[positions[next]])) {
+          next = i;
+        }
+      }
+
+      if (next < 0) {
+        return builder.build();
+      }
+
+      AnimeView anime = snapshots.get(next).get(positions[next]++);
+      builder.add(anime.id(), anime.name());
+    }
+  }
+
+  public static Builder builder(int expectedSize) {
+    return new Builder(expectedSize);
+  }
+
+  public int size() {
+    return ids.length;
+  }
+
+  public Optional<AnimeView> findById(long id) {
+    int index = Arrays.binarySearch(ids, id);
+
+    return index < 0 ? Optional.empty() : Optional.of(get(index));
+  }
+
+  public List<AnimeView> findAll() {
+    return slice(0, ids.length);
+  }
+
+  // Pages in id order, which is what the unsorted database query returns as well
+  public Page<AnimeView> findAll(Pageable pageable) {
+    if (pageable.isUnpaged()) {
+      return new PageImpl<>(findAll());
+    }
+
+    int from = (int) Math.min(pageable.getOffset(), ids.length);
+    int to = (int) Math.min((long) from + pageable.getPageSize(), ids.length);
+
+    return new PageImpl<>(slice(from, to), pageable, ids.length);
+  }
+
+  // Up to limit animes with an id above the given one, in id order
+  public List<AnimeView> findAfter(long id, int limit) {
+    int index = Arrays.binarySearch(ids, id);
+    int from = index >= 0 ? index + 1 : -index - 1;
+
+    return slice(from, (int) Math.min((long) from + limit, ids.length));
+  }
+
+  // Replacing only rewrites the name arena, inserting also copies the ids
+  public AnimeCatalogSnapshot with(long id, String name) {
+    byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+    int index = Arrays.binarySearch(ids, id);
+
+    if (index >= 0) {
+      int delta = encoded.length - nameLength(index);
+      byte[] newNames = spliceNames(index, index + 1, encoded);
+      int[] newOffsets = nameOffsets.clone();
+
+      for (int i = index + 1; i < newOffsets.length; i++) {
+        newOffsets[i] += delta;
+      }
+
+      return new AnimeCatalogSnapshot(ids, newOffsets, newNames);
+    }
+
+    int insertAt = -index - 1;
+    long[] newIds = new long[ids.length + 1];
+    System.arraycopy(ids, 0, newIds, 0, insertAt);
+    newIds[insertAt] = id;
+    System.arraycopy(ids, insertAt, newIds, insertAt + 1, ids.length - insertAt);
+
+    int[] newOffsets = new int[nameOffsets.length + 1];
+    System.arraycopy(nameOffsets, 0, newOffsets, 0, insertAt + 1);
+
+    for (int i = insertAt; i < nameOffsets.length; i++) {
+      newOffsets[i + 1] = nameOffsets[i] + encoded.length;
+    }
+
+    return new AnimeCatalogSnapshot(newIds, newOffsets, spliceNames(insertAt, insertAt, encoded));
+  }
+
+  public AnimeCatalogSnapshot without(long id) {
+    int index = Arrays.binarySearch(ids, id);
+
+    if (index < 0) {
+      return this;
+    }
+
+    long[] newIds = new long[ids.length - 1];
+    System.arraycopy(ids, 0, newIds, 0, index);
+    System.arraycopy(ids, index + 1, newIds, index, newIds.length - index);
+
+    int removed = nameLength(index);
+    int[] newOffsets = new int[nameOffsets.length - 1];
+    System.arraycopy(nameOffsets, 0, newOffsets, 0, index + 1);
+
+    for (int i = index + 1; i < newOffsets.length; i++) {
+      newOffsets[i] = nameOffsets[i + 1] - removed;
+    }
+
+    return new AnimeCatalogSnapshot(newIds, newOffsets, spliceNames(index, index + 1, new byte[0]));
+  }
+
+  // Applies a batch in one pass over the arrays instead of one copy per change; a null name removes the anime
+  public AnimeCatalogSnapshot withChanges(SortedMap<Long, String> changes) {
+    if (changes.size() == 1) {
+      Map.Entry<Long, String> change = changes.entrySet().iterator().next();
+
+      return change.getValue() == null ? without(change.getKey()) : with(change.getKey(), change.getValue());
+    }
+
+    if (changes.isEmpty()) {
+      return this;
+    }
+
+    Builder builder = new Builder(ids.length + changes.size(), names.length);
+    int index = 0;
+
+    for (Map.Entry<Long, String> change : changes.entrySet()) {
+      long id = change.getKey();
+
+      for (; index < ids.length && ids[index] < id; index++) {
+        builder.add(ids[index], names, nameOffsets[index], nameLength(index));
+      }
+
+      if (index < ids.length && ids[index] == id) {
+        index++;
+      }
+
+      if (change.getValue() != null) {
+        builder.add(id, change.getValue());
+      }
+    }
+
+    for (; index < ids.length; index++) {
+      builder.add(ids[index], names, nameOffsets[index], nameLength(index));
+    }
+
+    return builder.build();
+  }
+
+  public long sizeInBytes() {
+    return 3L * ARRAY_HEADER_BYTES + (long) ids.length * Long.BYTES + (long) nameOffsets.length * Integer.BYTES
+            + names.length;
+  }
+
+  long[] ids() {
+    return ids;
+  }
+
+  int[] nameOffsets() {
+    return nameOffsets;
+  }
+
+  byte[] names() {
+    return names;
+  }
+
+  private AnimeView get(int index) {
+    return new AnimeView(ids[index], new String(names, nameOffsets[index], nameLength(index), StandardCharsets.UTF_8));
+  }
+
+  private int nameLength(int index) {
+    return nameOffsets[index + 1] - nameOffsets[index];
+  }
+
+  private List<AnimeView> slice(int from, int to) {
+    return new Slice(from, to);
+  }
+
+  // Replaces the names of rows [from, to) with the given bytes
+  private byte[] spliceNames(int from, int to, byte[] replacement) {
+    int start = nameOffsets[from];
+    int end = nameOffsets[to];
+    byte[] spliced = new byte[names.length - (end - start) + replacement.length];
+
+    System.arraycopy(names, 0, spliced, 0, start);
+    System.arraycopy(replacement, 0, spliced, start, replacement.length);
+    System.arraycopy(names, end, spliced, start + replacement.length, names.length - end);
+
+    return spliced;
+  }
+
+  // Decodes lazily, so serializing a page never holds more than one extra String per row
+  private final class Slice extends AbstractList<AnimeView> implements RandomAccess {
+    private final int from;
+    private final int to;
+
+    private Slice(int from, int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public AnimeView get(int index) {
+      if (index < 0 || index >= size()) {
+        throw new IndexOutOfBoundsException(index);
+      }
+
+      return AnimeCatalogSnapshot.this.get(from + index);
+    }
+
+    @Override
+    public int size() {
+      return to - from;
+    }
+  }
+
+  /**
+   * Appends rows in ascending id order, growing the arrays as needed.
+   */
+  public static final class Builder {
+    private long[] ids;
+    private int[] nameOffsets;
+    private byte[] names;
+    private int size;
+
+    private Builder(int expectedSize) {
+      this(expectedSize, Math.max(expectedSize, 16) * 16);
+    }
+
+    private Builder(int expectedSize, int expectedNameBytes) {
+      ids = new long[Math.max(expectedSize, 16)];
+      nameOffsets = new int[ids.length + 1];
+      names = new byte[Math.max(expectedNameBytes, 16)];
+    }
+
+    public Builder add(long id, String name) {
+      byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+
+      return add(id, encoded, 0, encoded.length);
+    }
+
+    private Builder add(long id, byte[] name, int offset, int length) {
+      if (size > 0 && id <= ids[size - 1]) {
+        throw new IllegalArgumentException("Ids must be added in ascending order, got %d after %d"
+                .formatted(id, ids[size - 1]));
+      }
+
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, ids.length * 2);
+        nameOffsets = Arrays.copyOf(nameOffsets, ids.length + 1);
+      }
+
+      int start = nameOffsets[size];
+
+      if (start + length > names.length) {
+        names = Arrays.copyOf(names, Math.max(names.length * 2, start + length));
+      }
+
+      System.arraycopy(name, offset, names, start, length);
+      ids[size] = id;
+      nameOffsets[++size] = start + length;
+
+      return this;
+    }
+
+    public AnimeCatalogSnapshot build() {
+      return new AnimeCatalogSnapshot(Arrays.copyOf(ids, size), Arrays.copyOf(nameOffsets, size + 1),
+              Arrays.copyOf(names, nameOffsets[size]));
+    }
+  }
+}
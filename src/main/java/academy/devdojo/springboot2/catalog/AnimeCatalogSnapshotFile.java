@@ -0,0 +1,152 @@
+package academy.devdojo.springboot2.catalog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary file format of an {@link AnimeCatalogSnapshot}: a header (magic, format version, row count, name arena
+ * length, write time and a CRC32C of the body) followed by the ids, the name offsets and the name arena exactly
+ * as they are held in memory. Files are written next to the target and moved over it, so readers never see a
+ * partial file, and read through a memory mapping, which validates and copies them in one sequential pass.
+ */
+final class AnimeCatalogSnapshotFile {
+  static final int VERSION = 1;
+
+  private static final long MAGIC = 0x414E_494D_4543_4154L; // "ANIMECAT"
+  private static final int HEADER_BYTES = Long.BYTES + 3 * Integer.BYTES + 2 * Long.BYTES;
+
+  private AnimeCatalogSnapshotFile() {
+  }
+
+  static void write(AnimeCatalogSnapshot snapshot, Path path, Instant writtenAt) throws IOException {
+    long[] ids = snapshot.ids();
+    int[] nameOffsets = snapshot.nameOffsets();
+    byte[] names = snapshot.names();
+    ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(HEADER_BYTES + bodyBytes(ids.length, names.length)));
+
+    buffer.position(HEADER_BYTES);
+    buffer.asLongBuffer().put(ids);
+    buffer.position(buffer.position() + ids.length * Long.BYTES);
+    buffer.asIntBuffer().put(nameOffsets);
+    buffer.position(buffer.position() + nameOffsets.length * Integer.BYTES);
+    buffer.put(names);
+
+    CRC32C checksum = new CRC32C();
+    checksum.update(buffer.flip().position(HEADER_BYTES));
+
+    buffer.clear()
+            .putLong(MAGIC)
+            .putInt(VERSION)
+            .putInt(ids.length)
+            .putInt(names.length)
+            .putLong(writtenAt.toEpochMilli())
+            .putLong(checksum.getValue())
+            .clear();
+
+    Files.createDirectories(path.toAbsolutePath().getParent());
+    Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+
+      channel.force(true);
+    }
+
+    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Reads a snapshot file, rejecting it with an {@link IOException} when it is missing ({@link
+   * java.nio.file.NoSuchFileException}), was written before {@code notWrittenBefore}, has another format version,
+   * or does not match its size, checksum or the snapshot invariants.
+   */
+  static AnimeCatalogSnapshot read(Path path, Instant notWrittenBefore) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long fileSize = channel.size();
+
+      if (fileSize < HEADER_BYTES) {
+        throw new IOException("Truncated header");
+      }
+
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+
+      if (buffer.getLong() != MAGIC) {
+        throw new IOException("Not a catalog snapshot file");
+      }
+
+      int version = buffer.getInt();
+
+      if (version != VERSION) {
+        throw new IOException("Unsupported format version " + version);
+      }
+
+      int size = buffer.getInt();
+      int namesLength = buffer.getInt();
+      Instant writtenAt = Instant.ofEpochMilli(buffer.getLong());
+      long expectedChecksum = buffer.getLong();
+
+      if (writtenAt.isBefore(notWrittenBefore)) {
+        throw new IOException("Stale, written at " + writtenAt);
+      }
+
+      if (size < 0 || namesLength < 0 || fileSize != HEADER_BYTES + bodyBytes(size, namesLength)) {
+        throw new IOException("Size does not match the header");
+      }
+
+      CRC32C checksum = new CRC32C();
+      checksum.update(buffer.slice());
+
+      if (checksum.getValue() != expectedChecksum) {
+        throw new IOException("Checksum mismatch");
+      }
+
+      long[] ids = new long[size];
+      int[] nameOffsets = new int[size + 1];
+      byte[] names = new byte[namesLength];
+
+      buffer.asLongBuffer().get(ids);
+      buffer.position(buffer.position() + size * Long.BYTES);
+      buffer.asIntBuffer().get(nameOffsets);
+      buffer.position(buffer.position() + nameOffsets.length * Integer.BYTES);
+      buffer.get(names);
+
+      validate(ids, nameOffsets, namesLength);
+
+      return new AnimeCatalogSnapshot(ids, nameOffsets, names);
+    }
+  }
+
+  // A matching checksum over a file written by a buggy version is still no reason to serve it
+  private static void validate(long[] ids, int[] nameOffsets, int namesLength) throws IOException {
+    for (int i = 1; i < ids.length; i++) {
+      if (ids[i] <= ids[i - 1]) {
+        throw new IOException("Ids are not ascending");
+      }
+    }
+
+    if (nameOffsets[0] != 0 || nameOffsets[ids.length] != namesLength) {
+      throw new IOException("Name offsets do not cover the name arena");
+    }
+
+    for (int i = 1; i < nameOffsets.length; i++) {
+      if (nameOffsets[i] < nameOffsets[i - 1]) {
+        throw new IOException("Name offsets are not ascending");
+      }
+    }
+  }
+
+  private static long bodyBytes(int size, int namesLength) {
+    return (long) size * Long.BYTES + (long) (size + 1) * Integer.BYTES + namesLength;
+  }
+}
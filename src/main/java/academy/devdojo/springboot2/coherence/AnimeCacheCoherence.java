@@ -0,0 +1,159 @@
+package academy.devdojo.springboot2.coherence;
+
+import academy.devdojo.springboot2.catalog.AnimeCatalog;
+import academy.devdojo.springboot2.domain.Anime;
+import academy.devdojo.springboot2.domain.AnimeChange;
+import academy.devdojo.springboot2.event.AnimeChangedEvent;
+import academy.devdojo.springboot2.event.AnimesChangedEvent;
+import academy.devdojo.springboot2.search.AnimeSearchIndex;
+import academy.devdojo.springboot2.sync.AnimeChangeLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.log4j.Log4j2;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the node-local caches (Hibernate second-level and query caches, search index, catalog snapshot)
+ * coherent across replicas by polling the shared anime change log, which writes append in the same transaction
+ * as the anime itself, on every shard. Other nodes see a write after at most one poll interval.
+ */
+@Component
+@Log4j2
+@EnableConfigurationProperties(CacheCoherenceProperties.class)
+public class AnimeCacheCoherence implements InitializingBean, DisposableBean {
+  private final CacheCoherenceProperties properties;
+  private final AnimeChangeLog animeChangeLog;
+  private final EntityManagerFactory entityManagerFactory;
+  private final AnimeSearchIndex animeSearchIndex;
+  private final AnimeCatalog animeCatalog;
+  private final Counter invalidations;
+  private final Clock clock;
+  // Changes above the watermark are fetched again until they settle, only the ones not applied yet are applied
+  private final NavigableSet<Long> appliedAboveWatermark = new TreeSet<>();
+  private ScheduledExecutorService poller;
+  private volatile long watermark;
+
+  @Autowired
+  public AnimeCacheCoherence(CacheCoherenceProperties properties, AnimeChangeLog animeChangeLog,
+                             EntityManagerFactory entityManagerFactory, AnimeSearchIndex animeSearchIndex,
+                             AnimeCatalog animeCatalog, MeterRegistry meterRegistry) {
+    this(properties, animeChangeLog, entityManagerFactory, animeSearchIndex, animeCatalog, meterRegistry,
+            Clock.systemUTC());
+  }
+
+  AnimeCacheCoherence(CacheCoherenceProperties properties, AnimeChangeLog animeChangeLog,
+                      EntityManagerFactory entityManagerFactory, AnimeSearchIndex animeSearchIndex,
+                      AnimeCatalog animeCatalog, MeterRegistry meterRegistry, Clock clock) {
+    this.properties = properties;
+    this.animeChangeLog = animeChangeLog;
+    this.entityManagerFactory = entityManagerFactory;
+    this.animeSearchIndex = animeSearchIndex;
+    this.animeCatalog = animeCatalog;
+    this.clock = clock;
+    this.invalidations = Counter.builder("anime.cache.coherence.invalidations")
+            .description("Anime changes applied to the local caches from the shared change log")
+            .register(meterRegistry);
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    if (!properties.isEnabled()) {
+      return;
+    }
+
+    // Caches start empty, only changes from now on can make them stale
+    watermark = animeChangeLog.currentToken();
+
+    poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "anime-cache-coherence");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    long pollMillis = properties.getPollInterval().toMillis();
+    poller.scheduleWithFixedDelay(this::pollSafely, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void destroy() {
+    if (poller != null) {
+      poller.shutdownNow();
+    }
+  }
+
+  public int poll() {
+    List<AnimeChange> changes = animeChangeLog.changesAfter(watermark, properties.getBatchSize());
+    List<AnimeChange> unapplied = changes.stream()
+            .filter(change -> !appliedAboveWatermark.contains(change.getId()))
+            .toList();
+
+    if (!unapplied.isEmpty()) {
+      apply(unapplied);
+      entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+      invalidations.increment(unapplied.size());
+      unapplied.forEach(change -> appliedAboveWatermark.add(change.getId()));
+    }
+
+    // Sequence numbers are taken before commit, so a lower one can still show up until the settle window has passed;
+    // the watermark only moves over settled changes so such gaps are still fetched
+    Instant settled = clock.instant().minus(properties.getSettleWindow());
+    long nextWatermark = watermark;
+
+    for (AnimeChange change : changes) {
+      if (change.getChangedAt().isAfter(settled)) {
+        break;
+      }
+
+      nextWatermark = change.getId();
+    }
+
+    watermark = nextWatermark;
+    appliedAboveWatermark.headSet(nextWatermark, true).clear();
+
+    return unapplied.size();
+  }
+
+  long getWatermark() {
+    return watermark;
+  }
+
+  // One batch per poll, so the catalog snapshot is rebuilt once rather than once per change
+  private void apply(List<AnimeChange> changes) {
+    List<AnimeChangedEvent> events = new ArrayList<>(changes.size());
+
+    for (AnimeChange change : changes) {
+      entityManagerFactory.getCache().evict(Anime.class, change.getAnimeId());
+
+      Anime anime = Anime.builder().id(change.getAnimeId()).name(change.getName()).build();
+      events.add(new AnimeChangedEvent(change.getType(), anime));
+    }
+
+    AnimesChangedEvent batch = new AnimesChangedEvent(events);
+    animeSearchIndex.onAnimesChanged(batch);
+    animeCatalog.onAnimesChanged(batch);
+  }
+
+  private void pollSafely() {
+    try {
+      poll();
+    } catch (RuntimeException e) {
+      log.warn("Could not poll the anime change log for cache invalidations", e);
+    }
+  }
+}
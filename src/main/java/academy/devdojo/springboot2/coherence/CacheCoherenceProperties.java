@@ -0,0 +1,15 @@
+package academy.devdojo.springboot2.coherence;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.cache-coherence")
+public class CacheCoherenceProperties {
+  private boolean enabled = true;
+  private Duration pollInterval = Duration.ofSeconds(1);
+  private Duration settleWindow = Duration.ofSeconds(5);
+  private int batchSize = 1000;
+}
@@ -0,0 +1,88 @@
+package academy.devdojo.springboot2.concurrency;
+
+import academy.devdojo.springboot2.exception.ExceptionDetails;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Registered ahead of the security chain, so shed requests do not pay for authentication.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+  private final ConcurrencyLimitProperties properties;
+  private final GradientConcurrencyLimit limit;
+  private final ObjectMapper objectMapper;
+  private final Counter rejections;
+  private final List<PathPattern> excludedPatterns;
+
+  public ConcurrencyLimitFilter(ConcurrencyLimitProperties properties, GradientConcurrencyLimit limit,
+                                ObjectMapper objectMapper, Counter rejections) {
+    this.properties = properties;
+    this.limit = limit;
+    this.objectMapper = objectMapper;
+    this.rejections = rejections;
+    this.excludedPatterns = properties.getExcludedPatterns().stream()
+            .map(PathPatternParser.defaultInstance::parse)
+            .toList();
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    PathContainer path = PathContainer.parsePath(UrlPathHelper.defaultInstance.getPathWithinApplication(request));
+
+    return !properties.isEnabled() || excludedPatterns.stream().anyMatch(pattern -> pattern.matches(path));
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+          throws ServletException, IOException {
+    long started = System.nanoTime();
+    int inFlight = limit.tryAcquire(started);
+
+    if (inFlight < 0) {
+      rejections.increment();
+      reject(response);
+      return;
+    }
+
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      limit.release();
+
+      // Streaming responses only hold the permit while being set up and their duration says nothing about load
+      if (!request.isAsyncStarted()) {
+        long now = System.nanoTime();
+        limit.onSample(now - started, inFlight, now);
+      }
+    }
+  }
+
+  private void reject(HttpServletResponse response) throws IOException {
+    response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+    response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    objectMapper.writeValue(response.getOutputStream(), ExceptionDetails.builder()
+            .timestamp(LocalDateTime.now())
+            .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+            .title("Service Unavailable. Overloaded.")
+            .details("Concurrency limit of " + limit.getLimit() + " reached, retry shortly")
+            .developerMessage(ConcurrencyLimitFilter.class.getName())
+            .build());
+  }
+}
@@ -0,0 +1,24 @@
+package academy.devdojo.springboot2.concurrency;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.concurrency-limit")
+public class ConcurrencyLimitProperties {
+  private boolean enabled = true;
+  private int initialLimit = 20;
+  private int minLimit = 4;
+  private int maxLimit = 200;
+  private double smoothing = 0.2;
+  private double rttTolerance = 1.5;
+  private int longWindow = 600;
+  private Duration sampleWindow = Duration.ofMillis(100);
+  private int minWindowSamples = 10;
+  private Duration rejectionWindow = Duration.ofSeconds(10);
+  private List<String> excludedPatterns = new ArrayList<>(List.of("/animes/admin/import"));
+}
@@ -0,0 +1,116 @@
+package academy.devdojo.springboot2.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gradient-style adaptive concurrency limit. The average latency of each sample window is compared with a
+ * long-term average: while they agree the limit grows by about its square root, and once the short-term
+ * latency rises above the tolerance the limit shrinks in proportion, so queueing in the database shows up
+ * as fewer in-flight requests instead of longer waits.
+ */
+public class GradientConcurrencyLimit {
+  private final ConcurrencyLimitProperties properties;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final LongAdder admitted = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final AtomicLong rejectionWindowStart;
+  private volatile double limit;
+  private volatile double rejectionRatio;
+  private double longRtt;
+  private long windowStart;
+  private long windowRttSum;
+  private int windowSamples;
+  private int windowMaxInFlight;
+
+  public GradientConcurrencyLimit(ConcurrencyLimitProperties properties, long nowNanos) {
+    this.properties = properties;
+    this.limit = properties.getInitialLimit();
+    this.windowStart = nowNanos;
+    this.rejectionWindowStart = new AtomicLong(nowNanos);
+  }
+
+  /**
+   * @return the in-flight count including this request, or -1 when the request must be shed
+   */
+  public int tryAcquire(long nowNanos) {
+    while (true) {
+      int current = inFlight.get();
+
+      if (current >= (int) limit) {
+        rejected.increment();
+        rollRejectionWindow(nowNanos);
+        return -1;
+      }
+
+      if (inFlight.compareAndSet(current, current + 1)) {
+        admitted.increment();
+        rollRejectionWindow(nowNanos);
+        return current + 1;
+      }
+    }
+  }
+
+  public void release() {
+    inFlight.decrementAndGet();
+  }
+
+  public synchronized void onSample(long rttNanos, int inFlightAtStart, long nowNanos) {
+    windowRttSum += rttNanos;
+    windowSamples++;
+    windowMaxInFlight = Math.max(windowMaxInFlight, inFlightAtStart);
+
+    if (nowNanos - windowStart < properties.getSampleWindow().toNanos() || windowSamples < properties.getMinWindowSamples()) {
+      return;
+    }
+
+    double shortRtt = (double) windowRttSum / windowSamples;
+    int maxInFlight = windowMaxInFlight;
+
+    windowStart = nowNanos;
+    windowRttSum = 0;
+    windowSamples = 0;
+    windowMaxInFlight = 0;
+
+    longRtt = longRtt == 0 ? shortRtt : longRtt + (shortRtt - longRtt) / properties.getLongWindow();
+
+    // Let the baseline follow quickly when latency has dropped well below it, e.g. after a slow period
+    if (longRtt / shortRtt > 2) {
+      longRtt *= 0.95;
+    }
+
+    // Not enough load to tell whether more concurrency would help
+    if (maxInFlight < limit / 2) {
+      return;
+    }
+
+    double gradient = Math.max(0.5, Math.min(1.0, properties.getRttTolerance() * longRtt / shortRtt));
+    double newLimit = limit * gradient + Math.sqrt(limit);
+    newLimit = limit * (1 - properties.getSmoothing()) + newLimit * properties.getSmoothing();
+
+    limit = Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), newLimit));
+  }
+
+  public int getLimit() {
+    return (int) limit;
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  public double getRejectionRatio() {
+    return rejectionRatio;
+  }
+
+  private void rollRejectionWindow(long nowNanos) {
+    long start = rejectionWindowStart.get();
+
+    if (nowNanos - start >= properties.getRejectionWindow().toNanos() && rejectionWindowStart.compareAndSet(start, nowNanos)) {
+      long shed = rejected.sumThenReset();
+      long total = shed + admitted.sumThenReset();
+      rejectionRatio = total == 0 ? 0 : (double) shed / total;
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package academy.devdojo.springboot2.config;
+
+import academy.devdojo.springboot2.concurrency.ConcurrencyLimitFilter;
+import academy.devdojo.springboot2.concurrency.ConcurrencyLimitProperties;
+import academy.devdojo.springboot2.concurrency.GradientConcurrencyLimit;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ConcurrencyLimitProperties.class)
+public class ConcurrencyLimitConfig {
+  @Bean
+  public GradientConcurrencyLimit gradientConcurrencyLimit(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+    GradientConcurrencyLimit limit = new GradientConcurrencyLimit(properties, System.nanoTime());
+
+    Gauge.builder("http.concurrency.limit", limit, GradientConcurrencyLimit::getLimit)
+            .description("Current adaptive limit of in-flight anime requests")
+            .register(meterRegistry);
+    Gauge.builder("http.concurrency.in.flight", limit, GradientConcurrencyLimit::getInFlight)
+            .description("Anime requests currently in flight")
+            .register(meterRegistry);
+    Gauge.builder("http.concurrency.rejection.ratio", limit, GradientConcurrencyLimit::getRejectionRatio)
+            .description("Share of anime requests shed with 503 over the last rejection window")
+            .register(meterRegistry);
+
+    return limit;
+  }
+
+  @Bean
+  public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(ConcurrencyLimitProperties properties,
+                                                                              GradientConcurrencyLimit limit,
+                                                                              ObjectMapper objectMapper,
+                                                                              MeterRegistry meterRegistry) {
+    Counter rejections = Counter.builder("http.concurrency.rejected")
+            .description("Anime requests shed with 503 by the concurrency limit")
+            .register(meterRegistry);
+    FilterRegistrationBean<ConcurrencyLimitFilter> registration =
+            new FilterRegistrationBean<>(new ConcurrencyLimitFilter(properties, limit, objectMapper, rejections));
+
+    registration.addUrlPatterns("/animes", "/animes/*");
+    registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 10);
+
+    return registration;
+  }
+}
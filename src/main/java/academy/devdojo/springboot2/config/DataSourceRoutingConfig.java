@@ -0,0 +1,65 @@
+package academy.devdojo.springboot2.config;
+
+import academy.devdojo.springboot2.datasource.DataSourceRoutingProperties;
+import academy.devdojo.springboot2.datasource.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+@EnableConfigurationProperties(DataSourceRoutingProperties.class)
+@ConditionalOnProperty(prefix = "devdojo.datasource.routing", name = "enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+  @Bean
+  public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties dataSourceProperties,
+                                                           DataSourceRoutingProperties routingProperties) {
+    DataSource primary = dataSourceProperties.initializeDataSourceBuilder().build();
+    Map<String, DataSource> replicas = new LinkedHashMap<>();
+    List<DataSourceRoutingProperties.Replica> configuredReplicas = routingProperties.getReplicas();
+
+    for (int i = 0; i < configuredReplicas.size(); i++) {
+      DataSourceRoutingProperties.Replica replica = configuredReplicas.get(i);
+
+      replicas.put("replica-" + i, DataSourceBuilder.create()
+              .url(replica.getUrl())
+              .username(replica.getUsername())
+              .password(replica.getPassword())
+              .driverClassName(replica.getDriverClassName())
+              .build());
+    }
+
+    return new ReplicaRoutingDataSource(primary, replicas,
+            routingProperties.getReadYourWritesWindow(), routingProperties.getHealthCheckInterval());
+  }
+
+  @Bean
+  @Primary
+  public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+    return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+  }
+
+  @Bean
+  public MeterBinder replicaRoutingMetrics(ReplicaRoutingDataSource replicaRoutingDataSource) {
+    return registry -> {
+      Gauge.builder("datasource.replicas.healthy", replicaRoutingDataSource,
+                      ReplicaRoutingDataSource::getHealthyReplicaCount)
+              .description("Replicas currently eligible for read-only transactions")
+              .register(registry);
+      Gauge.builder("datasource.replicas.configured", replicaRoutingDataSource,
+                      ReplicaRoutingDataSource::getReplicaCount)
+              .register(registry);
+    };
+  }
+}
@@ -0,0 +1,20 @@
+package academy.devdojo.springboot2.config;
+
+import academy.devdojo.springboot2.logging.CorrelationIdFilter;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+public class LoggingConfig {
+  // First in the chain, so rejections by the security, rate limit and concurrency filters are logged with the id
+  @Bean
+  public FilterRegistrationBean<CorrelationIdFilter> correlationIdFilter() {
+    FilterRegistrationBean<CorrelationIdFilter> registration = new FilterRegistrationBean<>(new CorrelationIdFilter());
+
+    registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+
+    return registration;
+  }
+}
@@ -1,6 +1,9 @@
 package academy.devdojo.springboot2.config;
 
+import academy.devdojo.springboot2.ratelimit.RateLimitFilter;
+import academy.devdojo.springboot2.ratelimit.RateLimiter;
 import academy.devdojo.springboot2.service.DevDojoUserDetailsService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.context.annotation.Bean;
@@ -13,6 +16,7 @@ import org.springframework.security.config.annotation.web.configurers.AbstractHt
 import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
 
 @Configuration
 @EnableMethodSecurity(prePostEnabled = true)
@@ -20,6 +24,8 @@ import org.springframework.security.web.SecurityFilterChain;
 @Log4j2
 public class SecurityConfig {
   private final DevDojoUserDetailsService devDojoUserDetailsService;
+  private final RateLimiter rateLimiter;
+  private final ObjectMapper objectMapper;
 
   @Bean
   public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
@@ -35,11 +41,12 @@ public class SecurityConfig {
             )
             .formLogin(Customizer.withDefaults())
             .httpBasic(Customizer.withDefaults())
+            .addFilterAfter(new RateLimitFilter(rateLimiter, objectMapper), AuthorizationFilter.class)
             .build();
   }
 
   @Bean
-  public void userDetailsService() {
+  public DaoAuthenticationProvider authenticationProvider() {
     PasswordEncoder passwordEncoder = PasswordEncoderFactories.createDelegatingPasswordEncoder();
     log.info("password encoded {}", passwordEncoder.encode("academy"));
 //    UserDetails user = User.withUsername("devdojo")
@@ -52,5 +59,6 @@ public class SecurityConfig {
     authProvider.setUserDetailsService(devDojoUserDetailsService);
     authProvider.setPasswordEncoder(passwordEncoder);
 //    return new InMemoryUserDetailsManager(user);
+    return authProvider;
   }
 }
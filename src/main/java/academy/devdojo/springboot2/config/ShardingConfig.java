@@ -0,0 +1,103 @@
+package academy.devdojo.springboot2.config;
+
+import academy.devdojo.springboot2.datasource.ShardRoutingDataSource;
+import academy.devdojo.springboot2.datasource.ShardingProperties;
+import academy.devdojo.springboot2.shard.AnimeIdAllocator;
+import academy.devdojo.springboot2.shard.AnimeShards;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.flywaydb.core.Flyway;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+  @Bean
+  public AnimeShards animeShards(ShardingProperties properties, PlatformTransactionManager transactionManager,
+                                 Optional<AnimeIdAllocator> animeIdAllocator,
+                                 Optional<AnimeIdAllocator> animeChangeIdAllocator) {
+    return new AnimeShards(properties, transactionManager, animeIdAllocator.orElse(null),
+            animeChangeIdAllocator.orElse(null));
+  }
+
+  @Configuration
+  @ConditionalOnProperty(prefix = "devdojo.datasource.sharding", name = "enabled", havingValue = "true")
+  static class ShardedStorageConfig {
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(DataSourceProperties dataSourceProperties,
+                                                         ShardingProperties properties) {
+      List<DataSource> shards = new ArrayList<>();
+      shards.add(dataSourceProperties.initializeDataSourceBuilder().build());
+
+      for (ShardingProperties.Shard shard : properties.getShards()) {
+        shards.add(DataSourceBuilder.create()
+                .url(shard.getUrl())
+                .username(shard.getUsername())
+                .password(shard.getPassword())
+                .driverClassName(shard.getDriverClassName())
+                .build());
+      }
+
+      return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+      return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    @Bean
+    public AnimeIdAllocator animeIdAllocator(ShardRoutingDataSource shardRoutingDataSource,
+                                             ShardingProperties properties) {
+      return new AnimeIdAllocator(shardRoutingDataSource.getShards(), AnimeIdAllocator.ANIMES,
+              properties.getIdBlockSize());
+    }
+
+    // Change rows live on the shard of their anime, ids from one sequence keep the log ordered across shards
+    @Bean
+    public AnimeIdAllocator animeChangeIdAllocator(ShardRoutingDataSource shardRoutingDataSource) {
+      return new AnimeIdAllocator(shardRoutingDataSource.getShards(), AnimeIdAllocator.CHANGES, 1);
+    }
+
+    // Every shard gets the full schema, the unsharded tables simply stay empty outside the home shard
+    @Bean
+    public FlywayMigrationStrategy shardedFlywayMigration(ShardRoutingDataSource shardRoutingDataSource) {
+      return flyway -> shardRoutingDataSource.getShards().forEach(shard -> Flyway.configure()
+              .configuration(flyway.getConfiguration())
+              .dataSource(shard)
+              .load()
+              .migrate());
+    }
+
+    // Cached query results are keyed by query and parameters, not by the shard they were read from
+    @Bean
+    public HibernatePropertiesCustomizer shardedQueryCacheCustomizer() {
+      return hibernateProperties -> hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, false);
+    }
+
+    @Bean
+    public MeterBinder shardingMetrics(ShardRoutingDataSource shardRoutingDataSource) {
+      return registry -> Gauge.builder("datasource.shards.configured", shardRoutingDataSource,
+                      ShardRoutingDataSource::getShardCount)
+              .description("Shards the anime storage is spread across")
+              .register(registry);
+    }
+  }
+}
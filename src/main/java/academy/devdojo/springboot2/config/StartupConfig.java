@@ -0,0 +1,55 @@
+package academy.devdojo.springboot2.config;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+
+@Configuration
+@Log4j2
+public class StartupConfig {
+  private static final List<String> DEFAULT_LAZY_PACKAGES = List.of("org.springdoc.");
+
+  @Bean
+  public static BeanFactoryPostProcessor lazyPackagesPostProcessor(Environment environment) {
+    List<String> lazyPackages = Binder.get(environment)
+            .bind("devdojo.startup.lazy-packages", Bindable.listOf(String.class))
+            .orElse(DEFAULT_LAZY_PACKAGES);
+
+    return beanFactory -> {
+      for (String beanName : beanFactory.getBeanDefinitionNames()) {
+        BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+        String declaringClass = beanDefinition.getBeanClassName();
+
+        if (declaringClass == null && beanDefinition.getFactoryBeanName() != null
+                && beanFactory.containsBeanDefinition(beanDefinition.getFactoryBeanName())) {
+          declaringClass = beanFactory.getBeanDefinition(beanDefinition.getFactoryBeanName()).getBeanClassName();
+        }
+
+        if (declaringClass != null && lazyPackages.stream().anyMatch(declaringClass::startsWith)) {
+          beanDefinition.setLazyInit(true);
+        }
+      }
+    };
+  }
+
+  // Checked at runtime rather than through a condition, because AOT processing freezes conditions at build time
+  @Bean
+  public ApplicationListener<ApplicationReadyEvent> trainingRunExitListener(Environment environment) {
+    return event -> {
+      if (environment.getProperty("devdojo.startup.training-run", Boolean.class, false)) {
+        log.info("Training run finished after {} ms, exiting", event.getTimeTaken().toMillis());
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+      }
+    };
+  }
+}
@@ -1,21 +1,53 @@
 package academy.devdojo.springboot2.configurer;
 
+import academy.devdojo.springboot2.bulkhead.BulkheadInterceptor;
+import academy.devdojo.springboot2.domain.Anime;
+import academy.devdojo.springboot2.fieldset.AnimeFieldset;
+import academy.devdojo.springboot2.fieldset.AnimeFieldsetResolver;
+import academy.devdojo.springboot2.pagination.GuardedPageableResolver;
+import academy.devdojo.springboot2.pagination.PaginationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.metamodel.Attribute;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.util.List;
 
 @Configuration
+@RequiredArgsConstructor
+@EnableConfigurationProperties(PaginationProperties.class)
 public class DevDojoWebMvcConfigurer implements WebMvcConfigurer {
+  private final PaginationProperties paginationProperties;
+  private final MeterRegistry meterRegistry;
+  private final EntityManagerFactory entityManagerFactory;
+  private final BulkheadInterceptor bulkheadInterceptor;
+
   @Override
   public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
-    PageableHandlerMethodArgumentResolver pageHandler = new PageableHandlerMethodArgumentResolver();
+    // Ahead of the resolver Spring Data registers, which would otherwise accept any size and sort
+    resolvers.add(0, new GuardedPageableResolver(paginationProperties, meterRegistry));
+    resolvers.add(new AnimeFieldsetResolver(entityManagerFactory.getMetamodel().entity(Anime.class)
+            .getSingularAttributes().stream()
+            .map(Attribute::getName)
+            .toList()));
+  }
 
-    pageHandler.setFallbackPageable(PageRequest.of(0, 5));
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(bulkheadInterceptor).addPathPatterns("/animes", "/animes/**");
+  }
 
-    resolvers.add(pageHandler);
+  // Anime views serialized outside a fieldset response keep every property. Static, so building the object mapper
+  // does not create this configurer, whose interceptors need the object mapper
+  @Bean
+  public static Jackson2ObjectMapperBuilderCustomizer animeFieldsetFilters() {
+    return builder -> builder.filters(AnimeFieldset.ALL.filters());
   }
 }
@@ -1,12 +1,25 @@
 package academy.devdojo.springboot2.controller;
 
+import academy.devdojo.springboot2.bulk.AnimeImportFormat;
+import academy.devdojo.springboot2.bulk.AnimeImportSummary;
+import academy.devdojo.springboot2.bulkhead.BulkheadType;
+import academy.devdojo.springboot2.bulkhead.Bulkheaded;
 import academy.devdojo.springboot2.domain.Anime;
+import academy.devdojo.springboot2.fieldset.AnimeFieldset;
+import academy.devdojo.springboot2.fieldset.AnimeFieldsetResolver;
+import academy.devdojo.springboot2.idempotency.IdempotencyStore;
+import academy.devdojo.springboot2.projection.AnimeView;
 import academy.devdojo.springboot2.requests.AnimePostRequestBody;
 import academy.devdojo.springboot2.requests.AnimePutRequestBody;
 import academy.devdojo.springboot2.service.AnimeService;
+import academy.devdojo.springboot2.sync.AnimeChanges;
+import academy.devdojo.springboot2.wrapper.AnimeBatchResponse;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -14,37 +27,49 @@ import lombok.extern.log4j.Log4j2;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
 @RequestMapping("animes")
 @Log4j2
 @RequiredArgsConstructor
+@Bulkheaded(BulkheadType.READ)
 public class AnimeController {
     private final AnimeService animeService;
+    private final IdempotencyStore idempotencyStore;
 
     @GetMapping
     @Operation(
             summary = "List all animes paginated",
-            description = "The default size is 20, use the parameter size to change the default value"
+            description = "The default size is 20, use the parameter size to change the default value. "
+                    + "Use the parameter fields to get only some of the anime properties"
     )
-    public ResponseEntity<Page<Anime>> list(@ParameterObject Pageable pageable) {
-        return new ResponseEntity<>(animeService.listAll(pageable), HttpStatus.OK);
+    public ResponseEntity<Page<AnimeView>> list(@ParameterObject Pageable pageable,
+                                                @Parameter(name = AnimeFieldsetResolver.PARAMETER, in = ParameterIn.QUERY,
+                                                        description = "Comma-separated anime properties to return, all by default",
+                                                        schema = @Schema(type = "string", example = "id,name")) AnimeFieldset fields) {
+        return new ResponseEntity<>(animeService.listAll(pageable, fields), HttpStatus.OK);
     }
 
     @Operation(
             summary = "List all animes non paginated",
-            description = "Lists all animes from database"
+            description = "Lists all animes from database, use the parameter fields to get only some of the anime properties"
     )
     @GetMapping(path = "/all")
-    public ResponseEntity<List<Anime>> listAll() {
-        return new ResponseEntity<>(animeService.listAllNonPageable(), HttpStatus.OK);
+    public ResponseEntity<List<AnimeView>> listAll(@Parameter(name = AnimeFieldsetResolver.PARAMETER, in = ParameterIn.QUERY,
+            description = "Comma-separated anime properties to return, all by default",
+            schema = @Schema(type = "string", example = "id,name")) AnimeFieldset fields) {
+        return new ResponseEntity<>(animeService.listAllNonPageable(fields), HttpStatus.OK);
     }
 
     @Operation(
@@ -60,6 +85,24 @@ public class AnimeController {
         return new ResponseEntity<>(animeService.findByIdOrThrowBadRequestException(id), HttpStatus.OK);
     }
 
+    @Operation(
+            summary = "Find animes by ids",
+            description = "Resolves up to 200 ids at once, in request order, listing the ids that do not exist instead of failing"
+    )
+    @GetMapping(path = "/batch")
+    public ResponseEntity<AnimeBatchResponse> findAllById(@RequestParam List<Long> ids) {
+        return new ResponseEntity<>(animeService.findAllById(ids), HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "Find animes by ids",
+            description = "Same as the GET variant, for id lists too long for a query string"
+    )
+    @PostMapping(path = "/batch")
+    public ResponseEntity<AnimeBatchResponse> findAllByIdFromBody(@RequestBody List<Long> ids) {
+        return new ResponseEntity<>(animeService.findAllById(ids), HttpStatus.OK);
+    }
+
     @Operation(
             summary = "Find animes by name",
             description = "Get a list of animes from database by name"
@@ -69,24 +112,103 @@ public class AnimeController {
         return new ResponseEntity<>(animeService.findByName(name), HttpStatus.OK);
     }
 
+    @Operation(
+            summary = "Search animes by name",
+            description = "Full-text search over anime names, accent and case insensitive, ordered by relevance"
+    )
+    @GetMapping(path = "/search")
+    public ResponseEntity<Page<Anime>> search(@RequestParam String q, @ParameterObject Pageable pageable) {
+        return new ResponseEntity<>(animeService.search(q, pageable), HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "Rebuild the search index",
+            description = "Rebuilds the anime search index from the database in background, searches keep being served meanwhile"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Rebuild started"),
+            @ApiResponse(responseCode = "409", description = "A rebuild is already running"),
+    })
+    @PostMapping(path = "/admin/search/rebuild")
+    @Bulkheaded(BulkheadType.ADMIN)
+    public ResponseEntity<Void> rebuildSearchIndex() {
+        return new ResponseEntity<>(animeService.rebuildSearchIndex() ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT);
+    }
+
+    @Operation(
+            summary = "Stream anime changes",
+            description = "Server-sent events (created, replaced, deleted) as changes are committed, "
+                    + "send Last-Event-ID to resume after a disconnect"
+    )
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+        return animeService.subscribeToChanges(lastEventId);
+    }
+
+    @Operation(
+            summary = "List anime changes since a sync token",
+            description = "Created, replaced and deleted animes since the token, latest change per anime in sequence order. "
+                    + "Without a token only the current one is returned: take it before loading the full catalog"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successful operation"),
+            @ApiResponse(responseCode = "410", description = "When the token is older than the change retention", content = @Content),
+    })
+    @GetMapping(path = "/changes")
+    public ResponseEntity<AnimeChanges> listChanges(@RequestParam(required = false) Long since) {
+        return new ResponseEntity<>(animeService.listChangesSince(since), HttpStatus.OK);
+    }
+
     @Operation(
             summary = "Create a new anime",
-            description = "Saves a new anime in database"
+            description = "Saves a new anime in database. Retries sent with the same Idempotency-Key get the first "
+                    + "response back instead of creating the anime again"
     )
     @PostMapping
-    public ResponseEntity<Anime> save(@RequestBody @Valid AnimePostRequestBody anime) {
-      return new ResponseEntity<>(animeService.save(anime), HttpStatus.CREATED);
+    @Bulkheaded(BulkheadType.WRITE)
+    public ResponseEntity<Anime> save(@RequestBody @Valid AnimePostRequestBody anime,
+                                      @RequestHeader(name = IdempotencyStore.KEY_HEADER, required = false) String idempotencyKey) {
+        return idempotencyStore.execute(idempotencyKey, "POST /animes", anime,
+                () -> new ResponseEntity<>(animeService.save(anime), HttpStatus.CREATED));
     }
 
     @Operation(
             summary = "Updates an existing anime",
-            description = "Replaces an anime data from database"
+            description = "Replaces an anime data from database. Retries sent with the same Idempotency-Key are not applied again"
     )
     @PutMapping
-    public ResponseEntity<Void> replace(@RequestBody AnimePutRequestBody anime) {
-        animeService.replace(anime);
+    @Bulkheaded(BulkheadType.WRITE)
+    public ResponseEntity<Void> replace(@RequestBody AnimePutRequestBody anime,
+                                        @RequestHeader(name = IdempotencyStore.KEY_HEADER, required = false) String idempotencyKey) {
+        return idempotencyStore.execute(idempotencyKey, "PUT /animes", anime, () -> {
+            animeService.replace(anime);
+
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        });
+    }
+
+    @Operation(
+            summary = "Import animes in bulk",
+            description = "Streams a CSV (with a name column header) or NDJSON body, saving valid lines in batches and reporting "
+                    + "rejected ones by line number. Send resumeAfterLine with the lastCommittedLine of an interrupted import to resume it. "
+                    + "With sharded storage imports cannot be resumed, send the remaining lines without the savedLines instead"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import finished, check the rejections"),
+            @ApiResponse(responseCode = "400", description = "Resuming a sharded import or CSV header without a name column"),
+            @ApiResponse(responseCode = "500", description = "Import interrupted, resume after lastCommittedLine"),
+    })
+    @PostMapping(path = "/admin/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    @Bulkheaded(BulkheadType.ADMIN)
+    public ResponseEntity<AnimeImportSummary> importAnimes(InputStream body,
+                                                           @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                           @RequestParam(defaultValue = "0") long resumeAfterLine) {
+        AnimeImportFormat format = MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)
+                ? AnimeImportFormat.NDJSON
+                : AnimeImportFormat.CSV;
+        AnimeImportSummary summary = animeService.importAnimes(body, format, resumeAfterLine);
 
-        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        return new ResponseEntity<>(summary, summary.completed() ? HttpStatus.OK : HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
     @Operation(
@@ -94,6 +216,7 @@ public class AnimeController {
             description = "Delete an anime from database"
     )
     @DeleteMapping(path = "/admin/{id}")
+    @Bulkheaded(BulkheadType.ADMIN)
     @ApiResponses(value = {
             @ApiResponse(responseCode = "204", description = "Successful operation"),
             @ApiResponse(responseCode = "400", description = "When anime does not exist in the database"),
@@ -0,0 +1,25 @@
+package academy.devdojo.springboot2.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.datasource.routing")
+public class DataSourceRoutingProperties {
+  private boolean enabled;
+  private Duration readYourWritesWindow = Duration.ofSeconds(5);
+  private Duration healthCheckInterval = Duration.ofSeconds(10);
+  private List<Replica> replicas = new ArrayList<>();
+
+  @Data
+  public static class Replica {
+    private String url;
+    private String username;
+    private String password;
+    private String driverClassName;
+  }
+}
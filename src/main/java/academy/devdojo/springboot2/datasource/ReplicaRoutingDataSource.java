@@ -0,0 +1,190 @@
+package academy.devdojo.springboot2.datasource;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends read-only transactions to a healthy replica and everything else to the primary, as well as the reads run
+ * with {@link #callOnPrimary} that cannot afford to lag behind it.
+ * Must be wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}
+ * so the lookup happens after the transaction's read-only flag is bound.
+ */
+@Log4j2
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+  public static final String PRIMARY = "primary";
+  private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+  private static final ThreadLocal<Boolean> ON_PRIMARY = new ThreadLocal<>();
+
+  private final DataSource primary;
+  private final Map<String, DataSource> replicas;
+  private final List<String> replicaKeys;
+  private final Map<String, Boolean> replicaHealth = new ConcurrentHashMap<>();
+  private final Map<String, Long> lastWriteByUser = new ConcurrentHashMap<>();
+  private final AtomicInteger nextReplica = new AtomicInteger();
+  private final long readYourWritesWindowNanos;
+  private final Duration healthCheckInterval;
+  private ScheduledExecutorService healthChecker;
+
+  public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+                                  Duration readYourWritesWindow, Duration healthCheckInterval) {
+    this.primary = primary;
+    this.replicas = Map.copyOf(replicas);
+    this.replicaKeys = List.copyOf(replicas.keySet());
+    this.readYourWritesWindowNanos = readYourWritesWindow.toNanos();
+    this.healthCheckInterval = healthCheckInterval;
+    this.replicaKeys.forEach(key -> replicaHealth.put(key, Boolean.TRUE));
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    Map<Object, Object> targets = new HashMap<>(replicas);
+    targets.put(PRIMARY, primary);
+
+    setTargetDataSources(targets);
+    setDefaultTargetDataSource(primary);
+    super.afterPropertiesSet();
+
+    if (!replicaKeys.isEmpty() && !healthCheckInterval.isZero()) {
+      healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replica-health-check");
+        thread.setDaemon(true);
+        return thread;
+      });
+      healthChecker.scheduleWithFixedDelay(this::checkReplicas, 0,
+              healthCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  public static <T> T callOnPrimary(Supplier<T> action) {
+    Boolean previous = ON_PRIMARY.get();
+    ON_PRIMARY.set(Boolean.TRUE);
+
+    try {
+      return action.get();
+    } finally {
+      if (previous == null) {
+        ON_PRIMARY.remove();
+      }
+    }
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    String username = currentUsername();
+
+    if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      registerWrite(username);
+      return PRIMARY;
+    }
+
+    if (ON_PRIMARY.get() != null || username != null && wroteRecently(username)) {
+      return PRIMARY;
+    }
+
+    return nextHealthyReplica();
+  }
+
+  // Whether a read-only transaction started now would go to the primary to see what the current user wrote
+  public boolean isPinnedToPrimary() {
+    String username = currentUsername();
+
+    return ON_PRIMARY.get() != null || username != null && wroteRecently(username);
+  }
+
+  public void checkReplicas() {
+    replicas.forEach((key, dataSource) -> {
+      boolean healthy = isValid(dataSource);
+      Boolean previous = replicaHealth.put(key, healthy);
+
+      if (previous != null && previous != healthy) {
+        log.warn("Replica '{}' is now {}", key, healthy ? "healthy" : "unhealthy, routing its reads to the primary");
+      }
+    });
+
+    long cutoff = System.nanoTime() - readYourWritesWindowNanos;
+    lastWriteByUser.values().removeIf(writtenAt -> writtenAt - cutoff < 0);
+  }
+
+  public int getHealthyReplicaCount() {
+    return (int) replicaHealth.values().stream().filter(Boolean::booleanValue).count();
+  }
+
+  public int getReplicaCount() {
+    return replicaKeys.size();
+  }
+
+  @Override
+  public void destroy() {
+    if (healthChecker != null) {
+      healthChecker.shutdownNow();
+    }
+  }
+
+  private Object nextHealthyReplica() {
+    int size = replicaKeys.size();
+    int start = Math.floorMod(nextReplica.getAndIncrement(), Math.max(size, 1));
+
+    for (int i = 0; i < size; i++) {
+      String key = replicaKeys.get((start + i) % size);
+
+      if (replicaHealth.getOrDefault(key, Boolean.FALSE)) {
+        return key;
+      }
+    }
+
+    return PRIMARY;
+  }
+
+  private boolean wroteRecently(String username) {
+    Long writtenAt = lastWriteByUser.get(username);
+
+    return writtenAt != null && System.nanoTime() - writtenAt < readYourWritesWindowNanos;
+  }
+
+  private void registerWrite(String username) {
+    if (username == null || readYourWritesWindowNanos <= 0
+            || !TransactionSynchronizationManager.isSynchronizationActive()) {
+      return;
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        lastWriteByUser.put(username, System.nanoTime());
+      }
+    });
+  }
+
+  private static boolean isValid(DataSource dataSource) {
+    try (Connection connection = dataSource.getConnection()) {
+      return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  private static String currentUsername() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+    return authentication != null && authentication.isAuthenticated() ? authentication.getName() : null;
+  }
+}
@@ -0,0 +1,68 @@
+package academy.devdojo.springboot2.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Sends connections to the shard selected with {@link #callOnShard}, and to the home shard otherwise.
+ * Must be wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} so a transaction
+ * picks its shard at its first statement. The transaction then stays on that shard, it never spans two.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+  public static final int HOME_SHARD = 0;
+  private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+
+  private final List<DataSource> shards;
+
+  public ShardRoutingDataSource(List<DataSource> shards) {
+    this.shards = List.copyOf(shards);
+  }
+
+  public static <T> T callOnShard(int shard, Supplier<T> action) {
+    Integer previous = CURRENT_SHARD.get();
+    CURRENT_SHARD.set(shard);
+
+    try {
+      return action.get();
+    } finally {
+      if (previous == null) {
+        CURRENT_SHARD.remove();
+      } else {
+        CURRENT_SHARD.set(previous);
+      }
+    }
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    Map<Object, Object> targets = new HashMap<>();
+
+    for (int shard = 0; shard < shards.size(); shard++) {
+      targets.put(shard, shards.get(shard));
+    }
+
+    setTargetDataSources(targets);
+    setDefaultTargetDataSource(shards.get(HOME_SHARD));
+    super.afterPropertiesSet();
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    Integer shard = CURRENT_SHARD.get();
+
+    return shard == null ? HOME_SHARD : shard;
+  }
+
+  public List<DataSource> getShards() {
+    return shards;
+  }
+
+  public int getShardCount() {
+    return shards.size();
+  }
+}
@@ -0,0 +1,33 @@
+package academy.devdojo.springboot2.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hash-sharded anime storage. The home shard is {@code spring.datasource}, which also keeps users and the id
+ * sequences; {@code shards} lists the others. Change log entries are written with their anime, on its shard. The
+ * shard count must not change once animes are stored, and sharding cannot be combined with replica routing.
+ */
+@Data
+@ConfigurationProperties(prefix = "devdojo.datasource.sharding")
+public class ShardingProperties {
+  private boolean enabled;
+  private int idBlockSize = 100;
+  private int scatterThreads = 16;
+  private Duration scatterTimeout = Duration.ofSeconds(5);
+  // Every shard reads offset + size rows for a page, so deep pages are refused
+  private int maxScatterWindow = 10_000;
+  private List<Shard> shards = new ArrayList<>();
+
+  @Data
+  public static class Shard {
+    private String url;
+    private String username;
+    private String password;
+    private String driverClassName;
+  }
+}
@@ -4,6 +4,8 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import jakarta.validation.constraints.NotEmpty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -22,6 +24,7 @@ import java.util.stream.Collectors;
 @NoArgsConstructor
 @Entity
 @Builder
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_dev_dojo_user_username", columnNames = "username"))
 public class DevDojoUser implements UserDetails {
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,11 @@
+package academy.devdojo.springboot2.event;
+
+import academy.devdojo.springboot2.domain.Anime;
+
+public record AnimeChangedEvent(Type type, Anime anime) {
+  public enum Type {
+    CREATED,
+    REPLACED,
+    DELETED
+  }
+}
@@ -0,0 +1,7 @@
+package academy.devdojo.springboot2.event;
+
+import java.util.List;
+
+// Changes committed together, published once for the whole batch instead of once per anime
+public record AnimesChangedEvent(List<AnimeChangedEvent> changes) {
+}
@@ -0,0 +1,11 @@
+package academy.devdojo.springboot2.exception;
+
+/**
+ * Still a 400 over REST like every other bad request, but lets gRPC callers tell a missing anime (NOT_FOUND) from a
+ * malformed request (INVALID_ARGUMENT).
+ */
+public class AnimeNotFoundException extends BadRequestException {
+  public AnimeNotFoundException() {
+    super("Anime not found");
+  }
+}
@@ -0,0 +1,367 @@
+package academy.devdojo.springboot2.feed;
+
+import academy.devdojo.springboot2.domain.Anime;
+import academy.devdojo.springboot2.domain.AnimeChange;
+import academy.devdojo.springboot2.sync.AnimeChangeLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-sent events for the committed anime changes of every node, polled from the shared change log once
+ * they are past its settle window. Events carry the change id, so Last-Event-ID resumes on any node and
+ * across restarts. Publishing only enqueues into each subscriber's bounded buffer; a small sender pool
+ * writes to the connections, and a subscriber whose buffer overflows is told so and disconnected instead
+ * of slowing everyone else down. A write that stalls past the send timeout drops its subscriber too: it is
+ * left blocking on a writer thread while the senders move on. The writers are bounded by the subscriber limit;
+ * once every one of them is stalled, further subscribers are dropped rather than given new threads.
+ */
+@Component
+@Log4j2
+@EnableConfigurationProperties(AnimeChangeFeedProperties.class)
+public class AnimeChangeFeed implements InitializingBean, DisposableBean {
+  static final String RESET = "reset";
+  static final String DROPPED = "dropped";
+  private static final FeedMessage HEARTBEAT = new FeedMessage(null, null, null);
+
+  private final AnimeChangeFeedProperties properties;
+  private final AnimeChangeLog animeChangeLog;
+  private final Counter droppedSubscribers;
+  private final Object lock = new Object();
+  private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+  private volatile long published;
+  private ExecutorService senders;
+  private ExecutorService writers;
+  private ScheduledExecutorService heartbeats;
+  private ScheduledExecutorService poller;
+
+  public AnimeChangeFeed(AnimeChangeFeedProperties properties, AnimeChangeLog animeChangeLog,
+                         MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.animeChangeLog = animeChangeLog;
+    this.droppedSubscribers = Counter.builder("anime.change.feed.dropped")
+            .description("Subscribers disconnected because they could not keep up")
+            .register(meterRegistry);
+
+    Gauge.builder("anime.change.feed.subscribers", subscribers, Set::size)
+            .register(meterRegistry);
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    // Changes settled before startup were either sent by the previous run or are replayed on resume
+    published = animeChangeLog.settledToken();
+
+    AtomicInteger threads = new AtomicInteger();
+
+    senders = Executors.newFixedThreadPool(properties.getSenderThreads(), runnable -> {
+      Thread thread = new Thread(runnable, "anime-change-feed-" + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    AtomicInteger writerThreads = new AtomicInteger();
+    // Grows past the senders only for writes left stalled, at most one per subscriber
+    writers = new ThreadPoolExecutor(properties.getSenderThreads(),
+            Math.max(properties.getSenderThreads(), properties.getMaxSubscribers()),
+            1, TimeUnit.MINUTES, new SynchronousQueue<>(), runnable -> {
+      Thread thread = new Thread(runnable, "anime-change-feed-writer-" + writerThreads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "anime-change-feed-heartbeat");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "anime-change-feed-poll");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    long heartbeatMillis = properties.getHeartbeatInterval().toMillis();
+    heartbeats.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+
+    long pollMillis = properties.getPollInterval().toMillis();
+    poller.scheduleWithFixedDelay(this::pollSafely, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+  }
+
+  public SseEmitter subscribe(Long lastSeenEventId) {
+    if (subscribers.size() >= properties.getMaxSubscribers()) {
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many change feed subscribers");
+    }
+
+    SseEmitter emitter = createEmitter();
+    // A client resuming from a change this node has not published yet only gets the changes after it
+    long resumeAfter = lastSeenEventId == null ? 0 : lastSeenEventId;
+    Subscriber subscriber = new Subscriber(emitter, new ArrayBlockingQueue<>(properties.getSubscriberBufferSize()),
+            resumeAfter);
+
+    emitter.onCompletion(() -> subscribers.remove(subscriber));
+    emitter.onTimeout(() -> subscribers.remove(subscriber));
+    emitter.onError(e -> subscribers.remove(subscriber));
+
+    // The missed changes are read outside the lock so a reconnect does not hold up publishing, only the ones
+    // published in the meantime are caught up with under it
+    List<AnimeChange> missed = new ArrayList<>();
+    long replayedUpTo = published;
+    boolean resumable = lastSeenEventId == null || replay(missed, lastSeenEventId, replayedUpTo);
+
+    synchronized (lock) {
+      if (resumable && lastSeenEventId != null) {
+        resumable = catchUp(missed, Math.max(lastSeenEventId, replayedUpTo), published);
+      }
+
+      if (resumable) {
+        missed.forEach(change -> subscriber.queue().offer(toMessage(change)));
+      } else {
+        reset(subscriber);
+      }
+
+      subscribers.add(subscriber);
+    }
+
+    schedule(subscriber);
+
+    return emitter;
+  }
+
+  // Publishes the changes settled since the last poll, in sequence order
+  public int poll() {
+    List<AnimeChange> changes = animeChangeLog.settledChangesAfter(published, properties.getPollBatchSize());
+
+    if (changes.isEmpty()) {
+      return 0;
+    }
+
+    synchronized (lock) {
+      for (AnimeChange change : changes) {
+        FeedMessage message = toMessage(change);
+
+        subscribers.stream()
+                .filter(subscriber -> change.getId() > subscriber.resumeAfter())
+                .forEach(subscriber -> offer(subscriber, message));
+      }
+
+      published = changes.get(changes.size() - 1).getId();
+    }
+
+    subscribers.forEach(this::schedule);
+
+    return changes.size();
+  }
+
+  public int getSubscriberCount() {
+    return subscribers.size();
+  }
+
+  @Override
+  public void destroy() {
+    poller.shutdownNow();
+    heartbeats.shutdownNow();
+    senders.shutdownNow();
+    writers.shutdownNow();
+    subscribers.forEach(subscriber -> subscriber.emitter().complete());
+  }
+
+  SseEmitter createEmitter() {
+    return new SseEmitter(properties.getEmitterTimeout().toMillis());
+  }
+
+  // Reads the changes missed since the last seen one back from the change log, false if the client has to
+  // reload the catalog instead
+  private boolean replay(List<AnimeChange> missed, long lastSeenEventId, long upTo) {
+    if (lastSeenEventId >= upTo) {
+      return true;
+    }
+
+    return !animeChangeLog.isExpired(lastSeenEventId) && catchUp(missed, lastSeenEventId, upTo);
+  }
+
+  // Adds the settled changes after the given id, up to the given one, as long as they fit the subscriber buffer
+  private boolean catchUp(List<AnimeChange> missed, long after, long upTo) {
+    if (after >= upTo) {
+      return true;
+    }
+
+    int bufferSize = properties.getSubscriberBufferSize();
+    animeChangeLog.settledChangesAfter(after, bufferSize - missed.size() + 1).stream()
+            .filter(change -> change.getId() <= upTo)
+            .forEach(missed::add);
+
+    return missed.size() <= bufferSize;
+  }
+
+  private void reset(Subscriber subscriber) {
+    subscriber.queue().offer(new FeedMessage(published, RESET,
+            "Resume point is no longer available, reload the catalog"));
+  }
+
+  private void pollSafely() {
+    try {
+      poll();
+    } catch (RuntimeException e) {
+      log.warn("Could not poll the anime change log for the change feed", e);
+    }
+  }
+
+  private void heartbeat() {
+    subscribers.forEach(subscriber -> {
+      offer(subscriber, HEARTBEAT);
+      schedule(subscriber);
+    });
+  }
+
+  private void offer(Subscriber subscriber, FeedMessage message) {
+    if (!subscriber.queue().offer(message) && subscribers.remove(subscriber)) {
+      subscriber.dropped().set(true);
+      droppedSubscribers.increment();
+      schedule(subscriber);
+    }
+  }
+
+  private void schedule(Subscriber subscriber) {
+    if (!subscriber.closed().get() && subscriber.draining().compareAndSet(false, true)) {
+      senders.execute(() -> drain(subscriber));
+    }
+  }
+
+  private void drain(Subscriber subscriber) {
+    try {
+      if (subscriber.dropped().get()) {
+        subscriber.queue().clear();
+        send(subscriber.emitter(), new FeedMessage(null, DROPPED,
+                "Subscriber buffer overflowed, reconnect with Last-Event-ID"));
+        close(subscriber);
+        return;
+      }
+
+      FeedMessage message;
+
+      while (!subscriber.dropped().get() && (message = subscriber.queue().poll()) != null) {
+        send(subscriber.emitter(), message);
+      }
+    } catch (IOException | IllegalStateException e) {
+      subscribers.remove(subscriber);
+      subscriber.closed().set(true);
+    } catch (TimeoutException | RejectedExecutionException e) {
+      // A stalled write completes the emitter once it gives up, a rejected one means every writer is stalled
+      if (subscribers.remove(subscriber)) {
+        droppedSubscribers.increment();
+      }
+
+      subscriber.closed().set(true);
+      subscriber.queue().clear();
+
+      if (e instanceof RejectedExecutionException) {
+        subscriber.emitter().complete();
+      }
+    } finally {
+      subscriber.draining().set(false);
+    }
+
+    if (!subscriber.queue().isEmpty() || subscriber.dropped().get()) {
+      schedule(subscriber);
+    }
+  }
+
+  private void close(Subscriber subscriber) {
+    subscriber.closed().set(true);
+    subscriber.emitter().complete();
+  }
+
+  private void send(SseEmitter emitter, FeedMessage message) throws IOException, TimeoutException {
+    CompletableFuture<Void> write = new CompletableFuture<>();
+    writers.execute(() -> {
+      try {
+        write(emitter, message);
+        write.complete(null);
+      } catch (IOException | RuntimeException e) {
+        write.completeExceptionally(e);
+      }
+    });
+
+    try {
+      write.get(properties.getSendTimeout().toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      // The emitter stays locked by the stalled write, so the writer completes it once the write gives up
+      write.whenComplete((ignored, failure) -> emitter.complete());
+      throw e;
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException ioException) {
+        throw ioException;
+      }
+
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+
+      throw new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while sending to a change feed subscriber", e);
+    }
+  }
+
+  private static void write(SseEmitter emitter, FeedMessage message) throws IOException {
+    if (message == HEARTBEAT) {
+      emitter.send(SseEmitter.event().comment("heartbeat"));
+      return;
+    }
+
+    SseEmitter.SseEventBuilder event = SseEmitter.event().name(message.name()).data(message.data(), MediaType.APPLICATION_JSON);
+
+    if (message.id() != null) {
+      event.id(String.valueOf(message.id()));
+    }
+
+    emitter.send(event);
+  }
+
+  // Deletes are tombstones without a name
+  private static FeedMessage toMessage(AnimeChange change) {
+    Anime anime = Anime.builder().id(change.getAnimeId()).name(change.getName()).build();
+
+    return new FeedMessage(change.getId(), change.getType().name().toLowerCase(), anime);
+  }
+
+  record FeedMessage(Long id, String name, Object data) {
+  }
+
+  private record Subscriber(SseEmitter emitter, BlockingQueue<FeedMessage> queue, long resumeAfter,
+                            AtomicBoolean draining, AtomicBoolean dropped, AtomicBoolean closed) {
+    Subscriber(SseEmitter emitter, BlockingQueue<FeedMessage> queue, long resumeAfter) {
+      this(emitter, queue, resumeAfter, new AtomicBoolean(), new AtomicBoolean(), new AtomicBoolean());
+    }
+  }
+}
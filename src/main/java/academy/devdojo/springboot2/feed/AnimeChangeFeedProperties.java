@@ -0,0 +1,20 @@
+package academy.devdojo.springboot2.feed;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.change-feed")
+public class AnimeChangeFeedProperties {
+  private int maxSubscribers = 1000;
+  private int subscriberBufferSize = 256;
+  private int senderThreads = 4;
+  // A subscriber whose write takes longer is dropped, the write itself is left to the connection's own timeout
+  private Duration sendTimeout = Duration.ofSeconds(5);
+  private Duration heartbeatInterval = Duration.ofSeconds(15);
+  private Duration emitterTimeout = Duration.ofMinutes(30);
+  private Duration pollInterval = Duration.ofMillis(500);
+  private int pollBatchSize = 1000;
+}
@@ -0,0 +1,57 @@
+package academy.devdojo.springboot2.fieldset;
+
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.data.domain.Sort;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Anime properties a client picked with {@code ?fields=}. Carries the Jackson filter serializing only those
+ * properties, built once per distinct set by the {@link AnimeFieldsetResolver}.
+ */
+public final class AnimeFieldset {
+  public static final String FILTER_ID = "animeFieldset";
+  public static final AnimeFieldset ALL = new AnimeFieldset(Set.of());
+
+  private static final String ID = "id";
+
+  private final Set<String> properties;
+  private final FilterProvider filters;
+
+  AnimeFieldset(Set<String> properties) {
+    this.properties = Set.copyOf(properties);
+    this.filters = new SimpleFilterProvider().addFilter(FILTER_ID, properties.isEmpty()
+            ? SimpleBeanPropertyFilter.serializeAll()
+            : SimpleBeanPropertyFilter.filterOutAllExcept(properties));
+  }
+
+  public boolean isAll() {
+    return properties.isEmpty();
+  }
+
+  public Set<String> properties() {
+    return properties;
+  }
+
+  public FilterProvider filters() {
+    return filters;
+  }
+
+  // Queries still select the id, which shard merges and page tie-breaks order by, and the properties they sort by
+  public Set<String> columns(Sort sort) {
+    Set<String> columns = new LinkedHashSet<>();
+    columns.add(ID);
+    columns.addAll(properties);
+    sort.forEach(order -> columns.add(order.getProperty()));
+
+    return columns;
+  }
+
+  @Override
+  public String toString() {
+    return isAll() ? "all" : String.join(",", properties);
+  }
+}
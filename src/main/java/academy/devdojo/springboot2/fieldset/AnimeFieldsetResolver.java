@@ -0,0 +1,78 @@
+package academy.devdojo.springboot2.fieldset;
+
+import academy.devdojo.springboot2.exception.BadRequestException;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves {@code ?fields=id,name} into an {@link AnimeFieldset}, accepting only persistent properties of the anime
+ * entity. Fieldsets are cached per distinct set of properties, which the entity bounds, so requests only pay for
+ * splitting the parameter. The resolved fieldset is kept as a request attribute for the
+ * {@link AnimeFieldsetResponseAdvice}.
+ */
+public class AnimeFieldsetResolver implements HandlerMethodArgumentResolver {
+  public static final String PARAMETER = "fields";
+  static final String ATTRIBUTE = AnimeFieldset.class.getName();
+
+  private final Set<String> properties;
+  private final Map<Set<String>, AnimeFieldset> fieldsets = new ConcurrentHashMap<>();
+
+  public AnimeFieldsetResolver(Collection<String> properties) {
+    this.properties = new TreeSet<>(properties);
+  }
+
+  @Override
+  public boolean supportsParameter(MethodParameter parameter) {
+    return AnimeFieldset.class.equals(parameter.getParameterType());
+  }
+
+  @Override
+  public AnimeFieldset resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                       NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+    AnimeFieldset fieldset = resolve(webRequest.getParameterValues(PARAMETER));
+    webRequest.setAttribute(ATTRIBUTE, fieldset, RequestAttributes.SCOPE_REQUEST);
+
+    return fieldset;
+  }
+
+  private AnimeFieldset resolve(String[] values) {
+    if (values == null) {
+      return AnimeFieldset.ALL;
+    }
+
+    Set<String> requested = new LinkedHashSet<>();
+
+    for (String value : values) {
+      for (String property : value.split(",")) {
+        String trimmed = property.trim();
+
+        if (trimmed.isEmpty()) {
+          continue;
+        }
+
+        if (!properties.contains(trimmed)) {
+          throw new BadRequestException("Field '%s' does not exist, fields are %s".formatted(trimmed, properties));
+        }
+
+        requested.add(trimmed);
+      }
+    }
+
+    if (requested.isEmpty() || requested.equals(properties)) {
+      return AnimeFieldset.ALL;
+    }
+
+    return fieldsets.computeIfAbsent(requested, AnimeFieldset::new);
+  }
+}
@@ -0,0 +1,36 @@
+package academy.devdojo.springboot2.fieldset;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+import java.util.Arrays;
+
+/**
+ * Serializes the responses of handlers taking an {@link AnimeFieldset} with the fieldset's cached filter.
+ */
+@RestControllerAdvice
+public class AnimeFieldsetResponseAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+  @Override
+  public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+    return super.supports(returnType, converterType)
+            && Arrays.asList(returnType.getExecutable().getParameterTypes()).contains(AnimeFieldset.class);
+  }
+
+  @Override
+  protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType,
+                                         MethodParameter returnType, ServerHttpRequest request,
+                                         ServerHttpResponse response) {
+    if (request instanceof ServletServerHttpRequest servletRequest
+            && servletRequest.getServletRequest().getAttribute(AnimeFieldsetResolver.ATTRIBUTE)
+            instanceof AnimeFieldset fieldset) {
+      bodyContainer.setFilters(fieldset.filters());
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package academy.devdojo.springboot2.grpc;
+
+import io.grpc.Grpc;
+import io.grpc.InsecureServerCredentials;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves {@link AnimeGrpcService} on its own port next to the web server. Started with the web server once the
+ * context is refreshed rather than at bean creation, so no call arrives before every bean is ready. Plaintext like
+ * the HTTP port, TLS is expected to be terminated in front of both.
+ */
+@Component
+@Log4j2
+@RequiredArgsConstructor
+@EnableConfigurationProperties(GrpcProperties.class)
+public class AnimeGrpcServer implements SmartLifecycle {
+  private final GrpcProperties properties;
+  private final AnimeGrpcService animeGrpcService;
+  private final GrpcSecurityInterceptor grpcSecurityInterceptor;
+  private volatile Server server;
+
+  @Override
+  public void start() {
+    if (!properties.isEnabled()) {
+      return;
+    }
+
+    try {
+      server = Grpc.newServerBuilderForPort(properties.getPort(), InsecureServerCredentials.create())
+              .addService(ServerInterceptors.intercept(animeGrpcService, grpcSecurityInterceptor))
+              .build()
+              .start();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not start the gRPC server on port " + properties.getPort(), e);
+    }
+
+    log.info("gRPC server started on port {}", server.getPort());
+  }
+
+  @Override
+  public void stop() {
+    Server running = server;
+
+    if (running == null) {
+      return;
+    }
+
+    server = null;
+    running.shutdown();
+
+    try {
+      if (!running.awaitTermination(properties.getShutdownTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+        running.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      running.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return server != null;
+  }
+
+  public int getPort() {
+    Server running = server;
+
+    return running == null ? -1 : running.getPort();
+  }
+}
@@ -0,0 +1,257 @@
+package academy.devdojo.springboot2.grpc;
+
+import academy.devdojo.springboot2.bulkhead.Bulkhead;
+import academy.devdojo.springboot2.bulkhead.BulkheadInterceptor;
+import academy.devdojo.springboot2.bulkhead.BulkheadType;
+import academy.devdojo.springboot2.exception.AnimeNotFoundException;
+import academy.devdojo.springboot2.exception.BadRequestException;
+import academy.devdojo.springboot2.grpc.v1.Anime;
+import academy.devdojo.springboot2.grpc.v1.AnimeServiceGrpc;
+import academy.devdojo.springboot2.grpc.v1.BatchGetAnimesRequest;
+import academy.devdojo.springboot2.grpc.v1.BatchGetAnimesResponse;
+import academy.devdojo.springboot2.grpc.v1.CreateAnimeRequest;
+import academy.devdojo.springboot2.grpc.v1.DeleteAnimeRequest;
+import academy.devdojo.springboot2.grpc.v1.GetAnimeRequest;
+import academy.devdojo.springboot2.grpc.v1.ListAnimesRequest;
+import academy.devdojo.springboot2.grpc.v1.ReplaceAnimeRequest;
+import academy.devdojo.springboot2.projection.AnimeView;
+import academy.devdojo.springboot2.requests.AnimePostRequestBody;
+import academy.devdojo.springboot2.requests.AnimePutRequestBody;
+import academy.devdojo.springboot2.service.AnimeService;
+import academy.devdojo.springboot2.wrapper.AnimeBatchResponse;
+import com.google.protobuf.Empty;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * The {@link AnimeService} operations over gRPC, for internal services. Calls run within the same bulkheads as the
+ * matching REST endpoints and fail with the status closest to the REST one: NOT_FOUND for a missing anime,
+ * INVALID_ARGUMENT for any other 400 and UNAVAILABLE for a 503.
+ */
+@Component
+@Log4j2
+@RequiredArgsConstructor
+public class AnimeGrpcService extends AnimeServiceGrpc.AnimeServiceImplBase {
+  private final AnimeService animeService;
+  private final BulkheadInterceptor bulkheadInterceptor;
+  private final Validator validator;
+  private final GrpcProperties properties;
+
+  @Override
+  public void getAnime(GetAnimeRequest request, StreamObserver<Anime> responseObserver) {
+    unary(responseObserver, BulkheadType.READ,
+            () -> toMessage(animeService.findByIdOrThrowBadRequestException(request.getId())));
+  }
+
+  @Override
+  public void batchGetAnimes(BatchGetAnimesRequest request, StreamObserver<BatchGetAnimesResponse> responseObserver) {
+    unary(responseObserver, BulkheadType.READ, () -> {
+      AnimeBatchResponse batch = animeService.findAllById(request.getIdsList());
+
+      return BatchGetAnimesResponse.newBuilder()
+              .addAllAnimes(batch.animes().stream().map(AnimeGrpcService::toMessage).toList())
+              .addAllMissingIds(batch.missingIds())
+              .build();
+    });
+  }
+
+  @Override
+  public void listAnimes(ListAnimesRequest request, StreamObserver<Anime> responseObserver) {
+    int pageSize = request.getPageSize() == 0 ? properties.getListPageSize() : request.getPageSize();
+
+    if (pageSize < 0 || pageSize > properties.getMaxListPageSize()) {
+      responseObserver.onError(Status.INVALID_ARGUMENT
+              .withDescription("The page size must be between 1 and %d".formatted(properties.getMaxListPageSize()))
+              .asRuntimeException());
+      return;
+    }
+
+    new AnimeListStream((ServerCallStreamObserver<Anime>) responseObserver, pageSize).start();
+  }
+
+  @Override
+  public void createAnime(CreateAnimeRequest request, StreamObserver<Anime> responseObserver) {
+    unary(responseObserver, BulkheadType.WRITE, () -> {
+      AnimePostRequestBody body = AnimePostRequestBody.builder().name(request.getName()).build();
+      Set<ConstraintViolation<AnimePostRequestBody>> violations = validator.validate(body);
+
+      if (!violations.isEmpty()) {
+        throw new BadRequestException(violations.stream().map(ConstraintViolation::getMessage)
+                .collect(Collectors.joining(", ")));
+      }
+
+      return toMessage(animeService.save(body));
+    });
+  }
+
+  @Override
+  public void replaceAnime(ReplaceAnimeRequest request, StreamObserver<Empty> responseObserver) {
+    unary(responseObserver, BulkheadType.WRITE, () -> {
+      animeService.replace(AnimePutRequestBody.builder().id(request.getId()).name(request.getName()).build());
+
+      return Empty.getDefaultInstance();
+    });
+  }
+
+  @Override
+  public void deleteAnime(DeleteAnimeRequest request, StreamObserver<Empty> responseObserver) {
+    unary(responseObserver, BulkheadType.ADMIN, () -> {
+      animeService.delete(request.getId());
+
+      return Empty.getDefaultInstance();
+    });
+  }
+
+  private <T> void unary(StreamObserver<T> responseObserver, BulkheadType type, Supplier<T> call) {
+    T response;
+
+    try {
+      response = within(type, call);
+    } catch (RuntimeException e) {
+      responseObserver.onError(toStatus(e));
+      return;
+    }
+
+    responseObserver.onNext(response);
+    responseObserver.onCompleted();
+  }
+
+  private <T> T within(BulkheadType type, Supplier<T> call) {
+    Bulkhead bulkhead = bulkheadInterceptor.bulkhead(type);
+
+    if (bulkhead == null) {
+      return call.get();
+    }
+
+    boolean acquired = false;
+
+    try {
+      acquired = bulkhead.tryAcquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    if (!acquired) {
+      throw Status.UNAVAILABLE.withDescription("The %s bulkhead has all of its %d permits in use, retry shortly"
+              .formatted(type.name().toLowerCase(), bulkhead.getMaxConcurrent())).asRuntimeException();
+    }
+
+    try {
+      return call.get();
+    } finally {
+      bulkhead.release();
+    }
+  }
+
+  private static StatusRuntimeException toStatus(RuntimeException e) {
+    if (e instanceof StatusRuntimeException status) {
+      return status;
+    }
+
+    if (e instanceof AnimeNotFoundException) {
+      return Status.NOT_FOUND.withDescription(e.getMessage()).asRuntimeException();
+    }
+
+    if (e instanceof BadRequestException) {
+      return Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException();
+    }
+
+    if (e instanceof ResponseStatusException responseStatus) {
+      if (responseStatus.getStatusCode().isSameCodeAs(HttpStatus.SERVICE_UNAVAILABLE)) {
+        return Status.UNAVAILABLE.withDescription(responseStatus.getReason()).asRuntimeException();
+      }
+
+      if (responseStatus.getStatusCode().is4xxClientError()) {
+        return Status.INVALID_ARGUMENT.withDescription(responseStatus.getReason()).asRuntimeException();
+      }
+    }
+
+    log.error("Anime gRPC call failed", e);
+
+    return Status.INTERNAL.withDescription("Internal error").asRuntimeException();
+  }
+
+  private static Anime toMessage(academy.devdojo.springboot2.domain.Anime anime) {
+    return toMessage(anime.getId(), anime.getName());
+  }
+
+  private static Anime toMessage(AnimeView anime) {
+    return toMessage(anime.id(), anime.name());
+  }
+
+  private static Anime toMessage(Long id, String name) {
+    Anime.Builder message = Anime.newBuilder().setId(id);
+
+    return name == null ? message.build() : message.setName(name).build();
+  }
+
+  /**
+   * Sends the animes while the transport takes more and reads the next page, within the read bulkhead, once the
+   * previous one is sent, so a slow client holds neither a permit nor more than a page. Pages are read by keyset,
+   * after the last id sent, so the last page of a large catalog costs no more than the first. Every callback runs on
+   * the call's serialized executor.
+   */
+  private final class AnimeListStream {
+    private final ServerCallStreamObserver<Anime> call;
+    private final int pageSize;
+    private long lastId;
+    private boolean lastPage;
+    private Iterator<AnimeView> rows = Collections.emptyIterator();
+    private boolean done;
+
+    private AnimeListStream(ServerCallStreamObserver<Anime> call, int pageSize) {
+      this.call = call;
+      this.pageSize = pageSize;
+    }
+
+    private void start() {
+      call.setOnCancelHandler(() -> done = true);
+      call.setOnReadyHandler(this::drain);
+      drain();
+    }
+
+    private void drain() {
+      while (!done && call.isReady()) {
+        if (rows.hasNext()) {
+          call.onNext(toMessage(rows.next()));
+        } else if (lastPage) {
+          done = true;
+          call.onCompleted();
+        } else {
+          readNextPage();
+        }
+      }
+    }
+
+    private void readNextPage() {
+      try {
+        List<AnimeView> page = within(BulkheadType.READ, () -> animeService.listAfter(lastId, pageSize));
+        rows = page.iterator();
+        lastPage = page.size() < pageSize;
+
+        if (!page.isEmpty()) {
+          lastId = page.get(page.size() - 1).id();
+        }
+      } catch (RuntimeException e) {
+        done = true;
+        call.onError(toStatus(e));
+      }
+    }
+  }
+}
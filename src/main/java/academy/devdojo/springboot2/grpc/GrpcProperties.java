@@ -0,0 +1,22 @@
+package academy.devdojo.springboot2.grpc;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.grpc")
+public class GrpcProperties {
+  private boolean enabled = true;
+  // 0 picks a free port
+  private int port = 9090;
+  // Calls still running after this on shutdown are cancelled
+  private Duration shutdownTimeout = Duration.ofSeconds(10);
+  private int listPageSize = 100;
+  private int maxListPageSize = 1000;
+  // Verified credentials are trusted again for this long, so machine callers do not pay a password hash per call.
+  // A changed password or authorities apply once the entry expires
+  private Duration credentialsCacheTtl = Duration.ofMinutes(1);
+  private int credentialsCacheSize = 1000;
+}
@@ -0,0 +1,217 @@
+package academy.devdojo.springboot2.grpc;
+
+import academy.devdojo.springboot2.grpc.v1.AnimeServiceGrpc;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Authenticates gRPC calls with the Basic credentials of their authorization metadata, against the same users and
+ * authorities as the REST API: deletes need ROLE_ADMIN, every other call ROLE_USER. The service then runs each call
+ * callback with the caller in the {@link SecurityContextHolder}.
+ */
+@Component
+public class GrpcSecurityInterceptor implements ServerInterceptor {
+  public static final Metadata.Key<String> AUTHORIZATION =
+          Metadata.Key.of("authorization", Metadata.ASCII_STRING_MARSHALLER);
+  private static final String BASIC = "Basic ";
+  private static final String DEFAULT_AUTHORITY = "ROLE_USER";
+  private static final Map<String, String> AUTHORITIES = Map.of(
+          AnimeServiceGrpc.getDeleteAnimeMethod().getFullMethodName(), "ROLE_ADMIN");
+
+  private final GrpcProperties properties;
+  private final AuthenticationProvider authenticationProvider;
+  private final Clock clock;
+  // Keyed by a hash of the authorization metadata so no password is kept around
+  private final Map<String, VerifiedCredentials> verified = new ConcurrentHashMap<>();
+
+  @Autowired
+  public GrpcSecurityInterceptor(GrpcProperties properties, AuthenticationProvider authenticationProvider) {
+    this(properties, authenticationProvider, Clock.systemUTC());
+  }
+
+  GrpcSecurityInterceptor(GrpcProperties properties, AuthenticationProvider authenticationProvider, Clock clock) {
+    this.properties = properties;
+    this.authenticationProvider = authenticationProvider;
+    this.clock = clock;
+  }
+
+  @Override
+  public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                               ServerCallHandler<ReqT, RespT> next) {
+    Authentication authentication;
+
+    try {
+      authentication = authenticate(headers.get(AUTHORIZATION));
+    } catch (AuthenticationException e) {
+      call.close(Status.UNAUTHENTICATED.withDescription(e.getMessage()), new Metadata());
+      return new ServerCall.Listener<>() {
+      };
+    }
+
+    String authority = AUTHORITIES.getOrDefault(call.getMethodDescriptor().getFullMethodName(), DEFAULT_AUTHORITY);
+
+    if (authentication.getAuthorities().stream().noneMatch(granted -> authority.equals(granted.getAuthority()))) {
+      call.close(Status.PERMISSION_DENIED.withDescription("Requires " + authority), new Metadata());
+      return new ServerCall.Listener<>() {
+      };
+    }
+
+    SecurityContext context = SecurityContextHolder.createEmptyContext();
+    context.setAuthentication(authentication);
+
+    return new AuthenticatedListener<>(callWith(context, () -> next.startCall(call, headers)), context);
+  }
+
+  private Authentication authenticate(String authorization) {
+    if (authorization == null || !authorization.regionMatches(true, 0, BASIC, 0, BASIC.length())) {
+      throw new BadCredentialsException("Basic credentials are required");
+    }
+
+    String key = sha256(authorization);
+    Instant now = clock.instant();
+    VerifiedCredentials credentials = verified.get(key);
+
+    if (credentials != null && now.isBefore(credentials.expiresAt())) {
+      return credentials.authentication();
+    }
+
+    String usernameAndPassword;
+
+    try {
+      usernameAndPassword = new String(Base64.getDecoder().decode(authorization.substring(BASIC.length()).trim()),
+              StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw new BadCredentialsException("Basic credentials are not valid base64");
+    }
+
+    int separator = usernameAndPassword.indexOf(':');
+
+    if (separator < 0) {
+      throw new BadCredentialsException("Basic credentials must be username:password");
+    }
+
+    String username = usernameAndPassword.substring(0, separator);
+    String password = usernameAndPassword.substring(separator + 1);
+    Authentication authentication = authenticationProvider.authenticate(
+            UsernamePasswordAuthenticationToken.unauthenticated(username, password));
+
+    if (authentication == null) {
+      throw new BadCredentialsException("Basic credentials are not supported");
+    }
+
+    if (authentication instanceof CredentialsContainer container) {
+      container.eraseCredentials();
+    }
+
+    remember(key, authentication, now);
+
+    return authentication;
+  }
+
+  // Expired entries are only purged once the cache is full, credentials beyond its size are verified every call
+  private void remember(String key, Authentication authentication, Instant now) {
+    if (properties.getCredentialsCacheTtl().isZero()) {
+      return;
+    }
+
+    if (verified.size() >= properties.getCredentialsCacheSize()) {
+      verified.values().removeIf(credentials -> !now.isBefore(credentials.expiresAt()));
+
+      if (verified.size() >= properties.getCredentialsCacheSize()) {
+        return;
+      }
+    }
+
+    verified.put(key, new VerifiedCredentials(authentication, now.plus(properties.getCredentialsCacheTtl())));
+  }
+
+  private static String sha256(String value) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+              .digest(value.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static <T> T callWith(SecurityContext context, Supplier<T> callback) {
+    SecurityContextHolder.setContext(context);
+
+    try {
+      return callback.get();
+    } finally {
+      SecurityContextHolder.clearContext();
+    }
+  }
+
+  private record VerifiedCredentials(Authentication authentication, Instant expiresAt) {
+  }
+
+  // Callbacks of one call may run on different threads of the server executor
+  private static final class AuthenticatedListener<ReqT>
+          extends ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT> {
+    private final SecurityContext context;
+
+    private AuthenticatedListener(ServerCall.Listener<ReqT> delegate, SecurityContext context) {
+      super(delegate);
+      this.context = context;
+    }
+
+    @Override
+    public void onMessage(ReqT message) {
+      runWith(() -> super.onMessage(message));
+    }
+
+    @Override
+    public void onHalfClose() {
+      runWith(super::onHalfClose);
+    }
+
+    @Override
+    public void onCancel() {
+      runWith(super::onCancel);
+    }
+
+    @Override
+    public void onComplete() {
+      runWith(super::onComplete);
+    }
+
+    @Override
+    public void onReady() {
+      runWith(super::onReady);
+    }
+
+    private void runWith(Runnable callback) {
+      callWith(context, () -> {
+        callback.run();
+        return null;
+      });
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package academy.devdojo.springboot2.idempotency;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.idempotency")
+public class IdempotencyProperties {
+  private boolean enabled = true;
+  private Duration ttl = Duration.ofHours(24);
+  private int maxEntries = 10_000;
+  // How long a duplicate waits for the first request with its key before getting a 409
+  private Duration waitTimeout = Duration.ofSeconds(10);
+  private int maxKeyLength = 255;
+}
@@ -0,0 +1,217 @@
+package academy.devdojo.springboot2.idempotency;
+
+import academy.devdojo.springboot2.bulkhead.BulkheadInterceptor;
+import academy.devdojo.springboot2.exception.BadRequestException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the responses of write requests sent with an {@code Idempotency-Key}, per user and operation, so a
+ * client retrying after a timeout gets the original response instead of a second write. A duplicate arriving while
+ * the first request is still running waits for it, without holding a bulkhead permit as it does no work of its own.
+ * Failed requests are forgotten, so they can be retried.
+ * <p>
+ * Entries expire after the configured ttl and the oldest are evicted beyond the configured maximum.
+ */
+@Component
+@EnableConfigurationProperties(IdempotencyProperties.class)
+public class IdempotencyStore {
+  public static final String KEY_HEADER = "Idempotency-Key";
+  public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+  private final IdempotencyProperties properties;
+  private final MeterRegistry meterRegistry;
+  private final Clock clock;
+  private final Map<EntryKey, Entry> entries = new ConcurrentHashMap<>();
+  // Oldest first, which is also expiry order as every entry gets the same ttl
+  private final Queue<Map.Entry<EntryKey, Entry>> insertionOrder = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger queued = new AtomicInteger();
+  // Operations are only known once called, their counters are registered on first use
+  private final Map<CounterKey, Counter> counters = new ConcurrentHashMap<>();
+
+  @Autowired
+  public IdempotencyStore(IdempotencyProperties properties, MeterRegistry meterRegistry) {
+    this(properties, meterRegistry, Clock.systemUTC());
+  }
+
+  IdempotencyStore(IdempotencyProperties properties, MeterRegistry meterRegistry, Clock clock) {
+    this.properties = properties;
+    this.meterRegistry = meterRegistry;
+    this.clock = clock;
+
+    Gauge.builder("http.idempotency.entries", entries, Map::size)
+            .description("Idempotency keys currently remembered")
+            .register(meterRegistry);
+  }
+
+  /**
+   * Runs {@code action} once per key: without a key, or with idempotency disabled, it just runs it. A replay of a
+   * completed request returns the stored response with an {@value #REPLAYED_HEADER} header, reusing the key for
+   * another request body is a 422 and a duplicate still waiting for the first request after the wait timeout a 409.
+   */
+  public <T> ResponseEntity<T> execute(String idempotencyKey, String operation, Object request,
+                                       Supplier<ResponseEntity<T>> action) {
+    if (idempotencyKey == null || !properties.isEnabled()) {
+      return action.get();
+    }
+
+    if (idempotencyKey.isBlank() || idempotencyKey.length() > properties.getMaxKeyLength()) {
+      throw new BadRequestException("%s must be between 1 and %d characters"
+              .formatted(KEY_HEADER, properties.getMaxKeyLength()));
+    }
+
+    EntryKey key = new EntryKey(currentUser(), operation, idempotencyKey);
+    Instant now = clock.instant();
+    evict(now);
+
+    Entry entry = new Entry(request, now.plus(properties.getTtl()));
+    Entry existing = entries.putIfAbsent(key, entry);
+
+    // Expired but not evicted yet, because newer-looking entries were inserted ahead of it by a racing thread
+    while (existing != null && existing.isExpired(now)) {
+      existing = entries.replace(key, existing, entry) ? null : entries.putIfAbsent(key, entry);
+    }
+
+    if (existing != null) {
+      return replay(idempotencyKey, operation, request, action, existing);
+    }
+
+    insertionOrder.add(Map.entry(key, entry));
+    queued.incrementAndGet();
+    count(operation, "executed");
+
+    try {
+      ResponseEntity<T> response = action.get();
+      entry.response.complete(response);
+      return response;
+    } catch (Throwable e) {
+      entries.remove(key, entry);
+      entry.response.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> ResponseEntity<T> replay(String idempotencyKey, String operation, Object request,
+                                       Supplier<ResponseEntity<T>> action, Entry existing) {
+    if (!Objects.equals(existing.request, request)) {
+      count(operation, "mismatch");
+      throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+              "%s was already used for another request".formatted(KEY_HEADER));
+    }
+
+    ResponseEntity<?> stored;
+    BulkheadInterceptor.releasePermit();
+
+    try {
+      stored = existing.response.get(properties.getWaitTimeout().toMillis(), TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      // The first request failed and was forgotten, so this one takes its place
+      reacquirePermit(operation);
+      return execute(idempotencyKey, operation, request, action);
+    } catch (TimeoutException e) {
+      count(operation, "conflict");
+      throw new ResponseStatusException(HttpStatus.CONFLICT,
+              "A request with this %s is still in progress".formatted(KEY_HEADER));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for an idempotent request", e);
+    }
+
+    count(operation, "replayed");
+
+    return ResponseEntity.status(stored.getStatusCode())
+            .headers(headers -> {
+              headers.addAll(stored.getHeaders());
+              headers.set(REPLAYED_HEADER, "true");
+            })
+            .body((T) stored.getBody());
+  }
+
+  private void reacquirePermit(String operation) {
+    try {
+      if (BulkheadInterceptor.reacquirePermit()) {
+        return;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    count(operation, "rejected");
+    throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+            "The first request with this %s failed and the bulkhead is full, retry shortly".formatted(KEY_HEADER));
+  }
+
+  // Evicting a running request under size pressure lets a duplicate run again, the lesser evil than unbounded growth
+  private void evict(Instant now) {
+    Map.Entry<EntryKey, Entry> oldest;
+
+    while ((oldest = insertionOrder.peek()) != null
+            && (oldest.getValue().isExpired(now) || queued.get() >= properties.getMaxEntries())) {
+      if (insertionOrder.remove(oldest)) {
+        queued.decrementAndGet();
+        entries.remove(oldest.getKey(), oldest.getValue());
+      }
+    }
+  }
+
+  private void count(String operation, String result) {
+    counters.computeIfAbsent(new CounterKey(operation, result), key -> Counter.builder("http.idempotency.requests")
+            .description("Idempotent requests executed, replayed, rejected while in progress (conflict), reusing a key "
+                    + "(mismatch) or with no bulkhead permit left to run again (rejected)")
+            .tag("operation", key.operation())
+            .tag("result", key.result())
+            .register(meterRegistry))
+            .increment();
+  }
+
+  private static String currentUser() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+    return authentication == null ? "" : authentication.getName();
+  }
+
+  private record EntryKey(String user, String operation, String idempotencyKey) {
+  }
+
+  private record CounterKey(String operation, String result) {
+  }
+
+  private static final class Entry {
+    private final Object request;
+    private final Instant expiresAt;
+    private final CompletableFuture<ResponseEntity<?>> response = new CompletableFuture<>();
+
+    private Entry(Object request, Instant expiresAt) {
+      this.request = request;
+      this.expiresAt = expiresAt;
+    }
+
+    private boolean isExpired(Instant now) {
+      return !now.isBefore(expiresAt);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package academy.devdojo.springboot2.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+
+/**
+ * Queue depth and dropped events of every {@link MeteredAsyncAppender} attached to the root logger. Under a
+ * devtools restart the appender was loaded by another class loader and is not found, so nothing is bound.
+ */
+@Component
+public class AsyncLoggingMetrics implements MeterBinder {
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext loggerContext)) {
+      return;
+    }
+
+    Logger root = loggerContext.getLogger(Logger.ROOT_LOGGER_NAME);
+
+    for (Iterator<Appender<ILoggingEvent>> appenders = root.iteratorForAppenders(); appenders.hasNext(); ) {
+      if (appenders.next() instanceof MeteredAsyncAppender appender) {
+        bind(registry, appender);
+      }
+    }
+  }
+
+  private static void bind(MeterRegistry registry, MeteredAsyncAppender appender) {
+    String name = appender.getName();
+
+    Gauge.builder("logging.async.queue.depth", appender, MeteredAsyncAppender::getNumberOfElementsInQueue)
+            .description("Log events waiting for the async appender worker")
+            .tag("appender", name)
+            .register(registry);
+    Gauge.builder("logging.async.queue.capacity", appender, MeteredAsyncAppender::getQueueSize)
+            .description("Capacity of the async appender queue")
+            .tag("appender", name)
+            .register(registry);
+    FunctionCounter.builder("logging.async.dropped", appender, MeteredAsyncAppender::getDiscardedCount)
+            .description("Log events dropped instead of blocking the logging thread")
+            .tag("appender", name)
+            .tag("reason", "discarded")
+            .register(registry);
+    FunctionCounter.builder("logging.async.dropped", appender, MeteredAsyncAppender::getOverflowedCount)
+            .description("Log events dropped instead of blocking the logging thread")
+            .tag("appender", name)
+            .tag("reason", "overflow")
+            .register(registry);
+  }
+}
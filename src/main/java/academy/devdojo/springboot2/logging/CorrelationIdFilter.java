@@ -0,0 +1,43 @@
+package academy.devdojo.springboot2.logging;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Puts a correlation id in the logging MDC for the duration of each request, taken from the
+ * {@value #HEADER} request header when it is well-formed or generated otherwise, and echoes it in the response.
+ */
+public class CorrelationIdFilter extends OncePerRequestFilter {
+  public static final String HEADER = "X-Correlation-Id";
+  public static final String MDC_KEY = "correlationId";
+
+  // Client supplied ids end up in every log line, so only short tokens are accepted
+  private static final Pattern VALID_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+          throws ServletException, IOException {
+    String correlationId = request.getHeader(HEADER);
+
+    if (correlationId == null || !VALID_ID.matcher(correlationId).matches()) {
+      correlationId = UUID.randomUUID().toString();
+    }
+
+    response.setHeader(HEADER, correlationId);
+    MDC.put(MDC_KEY, correlationId);
+
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      MDC.remove(MDC_KEY);
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package academy.devdojo.springboot2.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.encoder.EncoderBase;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Encodes each log event as one JSON object per line: timestamp, level, thread, logger, the formatted message, every
+ * MDC entry (such as the correlation id) as a top-level field and the stack trace, if any, as a single string.
+ */
+public class JsonLineEncoder extends EncoderBase<ILoggingEvent> {
+  private static final byte[] NO_BYTES = new byte[0];
+
+  @Override
+  public byte[] headerBytes() {
+    return NO_BYTES;
+  }
+
+  @Override
+  public byte[] encode(ILoggingEvent event) {
+    StringBuilder json = new StringBuilder(256);
+
+    json.append('{');
+    appendField(json, "timestamp", Instant.ofEpochMilli(event.getTimeStamp()).toString());
+    json.append(',');
+    appendField(json, "level", event.getLevel().toString());
+    json.append(',');
+    appendField(json, "thread", event.getThreadName());
+    json.append(',');
+    appendField(json, "logger", event.getLoggerName());
+    json.append(',');
+    appendField(json, "message", event.getFormattedMessage());
+
+    Map<String, String> mdc = event.getMDCPropertyMap();
+
+    if (mdc != null) {
+      mdc.forEach((key, value) -> appendField(json.append(','), key, value));
+    }
+
+    IThrowableProxy throwable = event.getThrowableProxy();
+
+    if (throwable != null) {
+      appendField(json.append(','), "exception", ThrowableProxyUtil.asString(throwable));
+    }
+
+    return json.append("}\n").toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public byte[] footerBytes() {
+    return NO_BYTES;
+  }
+
+  private static void appendField(StringBuilder json, String name, String value) {
+    JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+
+    json.append('"');
+    encoder.quoteAsString(name, json);
+    json.append("\":");
+
+    if (value == null) {
+      json.append("null");
+    } else {
+      json.append('"');
+      encoder.quoteAsString(value, json);
+      json.append('"');
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package academy.devdojo.springboot2.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logback {@link AsyncAppender} that counts what it drops, so the cost of never blocking a request thread on
+ * logging is visible. Events are discarded once the queue is nearly full (TRACE to INFO only) or lost when it is
+ * completely full with {@code neverBlock} set.
+ */
+public class MeteredAsyncAppender extends AsyncAppender {
+  private final AtomicLong discarded = new AtomicLong();
+  private final AtomicLong overflowed = new AtomicLong();
+
+  // Only asked once the queue is below the discarding threshold, so true means the event is dropped
+  @Override
+  protected boolean isDiscardable(ILoggingEvent event) {
+    boolean discardable = super.isDiscardable(event);
+
+    if (discardable) {
+      discarded.incrementAndGet();
+    }
+
+    return discardable;
+  }
+
+  // Runs right before the event is offered to the queue; a full queue at this point (racy, but close enough for a
+  // metric) means the offer fails and the event is lost
+  @Override
+  protected void preprocess(ILoggingEvent event) {
+    super.preprocess(event);
+
+    if (isNeverBlock() && getRemainingCapacity() == 0) {
+      overflowed.incrementAndGet();
+    }
+  }
+
+  public long getDiscardedCount() {
+    return discarded.get();
+  }
+
+  public long getOverflowedCount() {
+    return overflowed.get();
+  }
+}
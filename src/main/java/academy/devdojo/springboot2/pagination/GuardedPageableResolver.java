@@ -0,0 +1,102 @@
+package academy.devdojo.springboot2.pagination;
+
+import academy.devdojo.springboot2.exception.BadRequestException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.MethodParameter;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Pageable resolver that keeps paged queries on indexes: page sizes are clamped to a maximum, only whitelisted
+ * properties can be sorted on, each mapped to an indexed entity property, and the id always ends the sort so
+ * pages stay stable when the other keys tie.
+ */
+public class GuardedPageableResolver extends PageableHandlerMethodArgumentResolver {
+  static final String TIE_BREAKER = "id";
+
+  private final PaginationProperties properties;
+  private final Counter sizeClamped;
+  private final Counter sortClamped;
+  private final Counter sortRejected;
+
+  public GuardedPageableResolver(PaginationProperties properties, MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.sizeClamped = adjustments(meterRegistry, "size", "clamped");
+    this.sortClamped = adjustments(meterRegistry, "sort", "clamped");
+    this.sortRejected = adjustments(meterRegistry, "sort", "rejected");
+
+    setFallbackPageable(PageRequest.of(0, properties.getDefaultPageSize()));
+    setMaxPageSize(properties.getMaxPageSize());
+  }
+
+  @Override
+  public Pageable resolveArgument(MethodParameter methodParameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+    String size = webRequest.getParameter(getParameterNameToUse(getSizeParameterName(), methodParameter));
+
+    if (exceedsMaxPageSize(size)) {
+      sizeClamped.increment();
+    }
+
+    Pageable pageable = super.resolveArgument(methodParameter, mavContainer, webRequest, binderFactory);
+
+    return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), guard(pageable.getSort()));
+  }
+
+  private Sort guard(Sort sort) {
+    List<Sort.Order> orders = new ArrayList<>();
+    Set<String> sorted = new LinkedHashSet<>();
+
+    for (Sort.Order order : sort) {
+      String property = properties.getSortableProperties().get(order.getProperty());
+
+      if (property == null) {
+        sortRejected.increment();
+        throw new BadRequestException("Sorting by '%s' is not supported, sortable properties are %s"
+                .formatted(order.getProperty(), properties.getSortableProperties().keySet()));
+      }
+
+      // Case-insensitive ordering and explicit null placement cannot be served from the index
+      if (order.isIgnoreCase() || order.getNullHandling() != Sort.NullHandling.NATIVE) {
+        sortClamped.increment();
+      }
+
+      if (sorted.add(property)) {
+        orders.add(new Sort.Order(order.getDirection(), property));
+      }
+    }
+
+    if (!sorted.contains(TIE_BREAKER)) {
+      orders.add(Sort.Order.asc(TIE_BREAKER));
+    }
+
+    return Sort.by(orders);
+  }
+
+  private boolean exceedsMaxPageSize(String size) {
+    try {
+      return size != null && Integer.parseInt(size.trim()) > properties.getMaxPageSize();
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  private static Counter adjustments(MeterRegistry meterRegistry, String parameter, String outcome) {
+    return Counter.builder("http.pageable.adjustments")
+            .description("Paging parameters clamped or rejected by the pageable resolver")
+            .tag("parameter", parameter)
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+  }
+}
@@ -0,0 +1,16 @@
+package academy.devdojo.springboot2.pagination;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.pagination")
+public class PaginationProperties {
+  private int defaultPageSize = 5;
+  private int maxPageSize = 100;
+  // Sort property accepted in requests to the entity property it orders by, each one backed by an index
+  private Map<String, String> sortableProperties = new LinkedHashMap<>();
+}
@@ -0,0 +1,340 @@
+package academy.devdojo.springboot2.prefetch;
+
+import academy.devdojo.springboot2.event.AnimeChangedEvent;
+import academy.devdojo.springboot2.event.AnimesChangedEvent;
+import academy.devdojo.springboot2.fieldset.AnimeFieldset;
+import academy.devdojo.springboot2.projection.AnimeView;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Prefetches the next page for clients paging through the anime list in order. Each client's paging stream (user,
+ * page size, sort and fieldset) remembers the last page it read: once a page follows the previous one, the next page
+ * is loaded in background while the current one is returned, and the following request takes it instead of querying.
+ * <p>
+ * A prefetch runs with the security context of the request that triggered it, so its reads are routed like the
+ * client's own and still see the client's recent writes.
+ * <p>
+ * Prefetched pages are dropped on any anime write and expire after the configured ttl. Prefetching gives up, without
+ * affecting the request, when its executor queue is full or the prefetched pages already hold the maximum rows.
+ */
+@Component
+@Log4j2
+@EnableConfigurationProperties(PagePrefetchProperties.class)
+public class AnimePagePrefetcher implements InitializingBean, DisposableBean {
+  private final PagePrefetchProperties properties;
+  private final Clock clock;
+  private final Map<StreamKey, PageStream> streams = new ConcurrentHashMap<>();
+  private final AtomicInteger rows = new AtomicInteger();
+  // Bumped by every anime write, prefetches started before one are not kept
+  private final AtomicLong writes = new AtomicLong();
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter used;
+  private final Counter wasted;
+  private final Counter invalidated;
+  private final Counter rejected;
+  private final Counter failed;
+  private ThreadPoolExecutor executor;
+  private Executor securityContextExecutor;
+
+  @Autowired
+  public AnimePagePrefetcher(PagePrefetchProperties properties, MeterRegistry meterRegistry) {
+    this(properties, meterRegistry, Clock.systemUTC());
+  }
+
+  AnimePagePrefetcher(PagePrefetchProperties properties, MeterRegistry meterRegistry, Clock clock) {
+    this.properties = properties;
+    this.clock = clock;
+    this.hits = requests(meterRegistry, "hit");
+    this.misses = requests(meterRegistry, "miss");
+    this.used = prefetches(meterRegistry, "used");
+    this.wasted = prefetches(meterRegistry, "wasted");
+    this.invalidated = prefetches(meterRegistry, "invalidated");
+    this.rejected = prefetches(meterRegistry, "rejected");
+    this.failed = prefetches(meterRegistry, "failed");
+
+    Gauge.builder("anime.prefetch.rows", rows, AtomicInteger::get)
+            .description("Rows held by prefetched anime pages")
+            .register(meterRegistry);
+    Gauge.builder("anime.prefetch.streams", streams, Map::size)
+            .description("Client paging streams tracked for sequential access")
+            .register(meterRegistry);
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    if (!properties.isEnabled()) {
+      return;
+    }
+
+    AtomicInteger threads = new AtomicInteger();
+    executor = new ThreadPoolExecutor(properties.getThreads(), properties.getThreads(), 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(properties.getQueueCapacity()), runnable -> {
+      Thread thread = new Thread(runnable, "anime-prefetch-" + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    securityContextExecutor = new DelegatingSecurityContextExecutor(executor);
+  }
+
+  @Override
+  public void destroy() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Returns the page from the client's prefetch when there is one, waiting for it if it is still loading, and from
+   * {@code loader} otherwise. {@code loader} must be safe to call from another thread.
+   */
+  public Page<AnimeView> load(Pageable pageable, AnimeFieldset fields, Function<Pageable, Page<AnimeView>> loader) {
+    if (!properties.isEnabled() || pageable.isUnpaged()) {
+      return loader.apply(pageable);
+    }
+
+    PageStream stream = stream(new StreamKey(currentUser(), pageable.getPageSize(), pageable.getSort(),
+            fields.properties()));
+
+    if (stream == null) {
+      misses.increment();
+      return loader.apply(pageable);
+    }
+
+    Instant now = clock.instant();
+    Prefetch prefetch;
+    boolean sequential;
+
+    synchronized (stream) {
+      prefetch = stream.take();
+      sequential = stream.lastPage == pageable.getPageNumber() - 1 && now.isBefore(stream.expiresAt);
+      stream.lastPage = pageable.getPageNumber();
+      stream.expiresAt = now.plus(properties.getTtl());
+    }
+
+    Page<AnimeView> page = prefetched(prefetch, pageable.getPageNumber(), now);
+
+    if (page == null) {
+      misses.increment();
+      page = loader.apply(pageable);
+    }
+
+    if (sequential && page.hasNext()) {
+      prefetch(stream, pageable.next(), now, loader);
+    }
+
+    return page;
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onAnimeChanged(AnimeChangedEvent event) {
+    invalidate();
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onAnimesChanged(AnimesChangedEvent event) {
+    invalidate();
+  }
+
+  private void invalidate() {
+    writes.incrementAndGet();
+
+    streams.values().forEach(stream -> {
+      synchronized (stream) {
+        release(stream.take(), invalidated);
+      }
+    });
+  }
+
+  private PageStream stream(StreamKey key) {
+    PageStream stream = streams.get(key);
+
+    if (stream != null) {
+      return stream;
+    }
+
+    if (streams.size() >= properties.getMaxStreams()) {
+      purgeExpired();
+
+      if (streams.size() >= properties.getMaxStreams()) {
+        return null;
+      }
+    }
+
+    return streams.computeIfAbsent(key, ignored -> new PageStream());
+  }
+
+  // A prefetch of another page is dropped, the client is no longer where it was expected to be
+  private Page<AnimeView> prefetched(Prefetch prefetch, int pageNumber, Instant now) {
+    if (prefetch == null) {
+      return null;
+    }
+
+    if (prefetch.pageNumber() != pageNumber || !now.isBefore(prefetch.expiresAt())) {
+      release(prefetch, wasted);
+      return null;
+    }
+
+    rows.addAndGet(-prefetch.rows());
+
+    try {
+      Page<AnimeView> page = prefetch.result().join();
+      hits.increment();
+      used.increment();
+
+      return page;
+    } catch (CompletionException e) {
+      failed.increment();
+      log.warn("Prefetching page {} failed, loading it again", prefetch.pageNumber(), e.getCause());
+
+      return null;
+    }
+  }
+
+  private void prefetch(PageStream stream, Pageable next, Instant now,
+                        Function<Pageable, Page<AnimeView>> loader) {
+    int size = next.getPageSize();
+
+    if (!reserve(size)) {
+      purgeExpired();
+
+      if (!reserve(size)) {
+        rejected.increment();
+        return;
+      }
+    }
+
+    long writesBefore = writes.get();
+    CompletableFuture<Page<AnimeView>> result;
+
+    try {
+      result = CompletableFuture.supplyAsync(() -> loader.apply(next), securityContextExecutor);
+    } catch (RejectedExecutionException e) {
+      rows.addAndGet(-size);
+      rejected.increment();
+      return;
+    }
+
+    Prefetch prefetch = new Prefetch(next.getPageNumber(), result, now.plus(properties.getTtl()), size);
+
+    synchronized (stream) {
+      if (writes.get() != writesBefore) {
+        release(prefetch, invalidated);
+        return;
+      }
+
+      // Only there when the same client read another page concurrently
+      release(stream.take(), wasted);
+      stream.prefetch = prefetch;
+    }
+  }
+
+  private boolean reserve(int size) {
+    int held;
+
+    do {
+      held = rows.get();
+
+      if (held + size > properties.getMaxRows()) {
+        return false;
+      }
+    } while (!rows.compareAndSet(held, held + size));
+
+    return true;
+  }
+
+  // Idle streams and unused prefetches past their ttl, run when a limit is reached
+  private void purgeExpired() {
+    Instant now = clock.instant();
+
+    streams.entrySet().removeIf(entry -> {
+      PageStream stream = entry.getValue();
+
+      synchronized (stream) {
+        if (stream.prefetch != null && !now.isBefore(stream.prefetch.expiresAt())) {
+          release(stream.take(), wasted);
+        }
+
+        return stream.prefetch == null && !now.isBefore(stream.expiresAt);
+      }
+    });
+  }
+
+  private void release(Prefetch prefetch, Counter outcome) {
+    if (prefetch != null) {
+      rows.addAndGet(-prefetch.rows());
+      prefetch.result().cancel(false);
+      outcome.increment();
+    }
+  }
+
+  private static String currentUser() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+    return authentication == null ? "" : authentication.getName();
+  }
+
+  private static Counter requests(MeterRegistry meterRegistry, String result) {
+    return Counter.builder("anime.prefetch.requests")
+            .description("Paged anime list reads served from a prefetched page (hit) or the database (miss)")
+            .tag("result", result)
+            .register(meterRegistry);
+  }
+
+  private static Counter prefetches(MeterRegistry meterRegistry, String outcome) {
+    return Counter.builder("anime.prefetch.pages")
+            .description("Prefetched anime pages by outcome: used, wasted (expired or skipped), invalidated by a write, rejected or failed")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+  }
+
+  private record StreamKey(String user, int pageSize, Sort sort, Set<String> fields) {
+  }
+
+  private record Prefetch(int pageNumber, CompletableFuture<Page<AnimeView>> result, Instant expiresAt, int rows) {
+  }
+
+  private static final class PageStream {
+    private int lastPage = -1;
+    private Instant expiresAt = Instant.MIN;
+    private Prefetch prefetch;
+
+    private Prefetch take() {
+      Prefetch taken = prefetch;
+      prefetch = null;
+
+      return taken;
+    }
+  }
+}
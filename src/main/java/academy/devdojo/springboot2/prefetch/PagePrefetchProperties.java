@@ -0,0 +1,20 @@
+package academy.devdojo.springboot2.prefetch;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.prefetch")
+public class PagePrefetchProperties {
+  private boolean enabled = true;
+  private int threads = 2;
+  // Prefetches waiting for a thread beyond this are dropped, the client then simply reads its next page itself
+  private int queueCapacity = 32;
+  // Also bounds how stale a prefetched page can be after a write on another node
+  private Duration ttl = Duration.ofSeconds(5);
+  // Rows held by prefetched pages across all clients
+  private int maxRows = 10_000;
+  private int maxStreams = 10_000;
+}
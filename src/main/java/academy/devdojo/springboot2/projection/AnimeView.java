@@ -0,0 +1,13 @@
+package academy.devdojo.springboot2.projection;
+
+import academy.devdojo.springboot2.fieldset.AnimeFieldset;
+import com.fasterxml.jackson.annotation.JsonFilter;
+
+/**
+ * Read-only anime row for list endpoints, built straight from the query so no entity is managed.
+ * Serializes the same way as {@link academy.devdojo.springboot2.domain.Anime}, limited to the requested
+ * {@link AnimeFieldset} when there is one.
+ */
+@JsonFilter(AnimeFieldset.FILTER_ID)
+public record AnimeView(Long id, String name) {
+}
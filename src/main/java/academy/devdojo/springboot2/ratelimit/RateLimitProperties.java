@@ -0,0 +1,35 @@
+package academy.devdojo.springboot2.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.rate-limit")
+public class RateLimitProperties {
+  private boolean enabled = true;
+  // Beyond this the buckets of idle users are swept, every sweep interval rather than on the request path
+  private int maxBuckets = 100_000;
+  private Duration sweepInterval = Duration.ofSeconds(1);
+  // Role (without the ROLE_ prefix) to budget, the first role the user holds wins
+  private Map<String, Budget> budgets = new LinkedHashMap<>();
+  private List<Endpoint> endpoints = new ArrayList<>();
+
+  @Data
+  public static class Budget {
+    private long capacity;
+    private double refillPerSecond;
+  }
+
+  @Data
+  public static class Endpoint {
+    private String method;
+    private String pattern;
+    private Map<String, Budget> budgets = new LinkedHashMap<>();
+  }
+}
@@ -0,0 +1,176 @@
+package academy.devdojo.springboot2.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Component
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimiter implements InitializingBean, DisposableBean {
+  private static final String DEFAULT_ENDPOINT = "default";
+
+  private final RateLimitProperties properties;
+  private final List<EndpointRule> endpointRules;
+  private final Map<BucketKey, TokenBucket> buckets = new ConcurrentHashMap<>();
+  // Registered once up front, every endpoint and role pair is known from the configuration
+  private final Map<CounterKey, RequestCounters> counters = new HashMap<>();
+  private ScheduledExecutorService sweeper;
+
+  public RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.endpointRules = properties.getEndpoints().stream()
+            .map(endpoint -> new EndpointRule(endpoint, PathPatternParser.defaultInstance.parse(endpoint.getPattern())))
+            .toList();
+
+    List<String> endpointNames = new ArrayList<>(endpointRules.stream().map(EndpointRule::name).toList());
+    endpointNames.add(DEFAULT_ENDPOINT);
+
+    for (String endpoint : endpointNames) {
+      for (String role : properties.getBudgets().keySet()) {
+        counters.put(new CounterKey(endpoint, role), new RequestCounters(
+                requests(meterRegistry, endpoint, role, "admitted"),
+                requests(meterRegistry, endpoint, role, "rejected")));
+      }
+    }
+
+    Gauge.builder("http.rate.limit.buckets", buckets, Map::size)
+            .description("Token buckets currently tracked")
+            .register(meterRegistry);
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    if (!properties.isEnabled()) {
+      return;
+    }
+
+    sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "rate-limit-sweep");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    long sweepMillis = properties.getSweepInterval().toMillis();
+    sweeper.scheduleWithFixedDelay(this::sweep, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void destroy() {
+    if (sweeper != null) {
+      sweeper.shutdownNow();
+    }
+  }
+
+  /**
+   * @return 0 when the request is admitted, otherwise the nanos until the caller may retry
+   */
+  public long tryAcquire(Authentication authentication, String method, String path) {
+    if (!properties.isEnabled() || authentication == null || !authentication.isAuthenticated()) {
+      return 0;
+    }
+
+    EndpointRule endpointRule = findEndpointRule(method, path);
+    Set<String> authorities = authentication.getAuthorities().stream()
+            .map(GrantedAuthority::getAuthority)
+            .collect(Collectors.toSet());
+
+    for (Map.Entry<String, RateLimitProperties.Budget> roleBudget : properties.getBudgets().entrySet()) {
+      String role = roleBudget.getKey();
+
+      if (!authorities.contains("ROLE_" + role)) {
+        continue;
+      }
+
+      RateLimitProperties.Budget budget = endpointRule == null ? roleBudget.getValue()
+              : endpointRule.endpoint().getBudgets().getOrDefault(role, roleBudget.getValue());
+      String endpointName = endpointRule == null ? DEFAULT_ENDPOINT : endpointRule.name();
+
+      return consume(new BucketKey(authentication.getName(), endpointName), budget, role);
+    }
+
+    return 0;
+  }
+
+  /**
+   * Drops the buckets idle long enough to be full again once more than the max buckets are tracked, forgetting them
+   * loses nothing. Runs on the sweeper thread so no request pays for the scan.
+   */
+  void sweep() {
+    if (buckets.size() < properties.getMaxBuckets()) {
+      return;
+    }
+
+    long now = System.nanoTime();
+    buckets.values().removeIf(bucket -> bucket.isFull(now));
+  }
+
+  int bucketCount() {
+    return buckets.size();
+  }
+
+  private long consume(BucketKey key, RateLimitProperties.Budget budget, String role) {
+    long now = System.nanoTime();
+    long waitNanos = buckets
+            .computeIfAbsent(key, k -> new TokenBucket(budget.getCapacity(), budget.getRefillPerSecond(), now))
+            .tryConsume(now);
+
+    RequestCounters requestCounters = counters.get(new CounterKey(key.endpoint(), role));
+    (waitNanos == 0 ? requestCounters.admitted() : requestCounters.rejected()).increment();
+
+    return waitNanos;
+  }
+
+  private static Counter requests(MeterRegistry meterRegistry, String endpoint, String role, String result) {
+    return Counter.builder("http.rate.limit.requests")
+            .description("Requests checked by the per-user rate limiter")
+            .tag("endpoint", endpoint)
+            .tag("role", role)
+            .tag("result", result)
+            .register(meterRegistry);
+  }
+
+  private EndpointRule findEndpointRule(String method, String path) {
+    PathContainer pathContainer = PathContainer.parsePath(path);
+
+    return endpointRules.stream()
+            .filter(rule -> rule.endpoint().getMethod() == null || rule.endpoint().getMethod().equalsIgnoreCase(method))
+            .filter(rule -> rule.pattern().matches(pathContainer))
+            .findFirst()
+            .orElse(null);
+  }
+
+  private record BucketKey(String username, String endpoint) {
+  }
+
+  private record CounterKey(String endpoint, String role) {
+  }
+
+  private record RequestCounters(Counter admitted, Counter rejected) {
+  }
+
+  private record EndpointRule(RateLimitProperties.Endpoint endpoint, PathPattern pattern) {
+    String name() {
+      return endpoint.getMethod() == null ? endpoint.getPattern() : endpoint.getMethod() + " " + endpoint.getPattern();
+    }
+  }
+}
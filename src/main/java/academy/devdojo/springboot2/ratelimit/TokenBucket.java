@@ -0,0 +1,47 @@
+package academy.devdojo.springboot2.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket in its GCRA form: the whole state is the theoretical arrival time of the
+ * next request, so taking a token is a single compare-and-set.
+ */
+public class TokenBucket {
+  private final long emissionIntervalNanos;
+  private final long capacityNanos;
+  private final AtomicLong theoreticalArrivalTime;
+
+  public TokenBucket(long capacity, double refillPerSecond, long nowNanos) {
+    if (capacity < 1 || refillPerSecond <= 0) {
+      throw new IllegalArgumentException("Token bucket needs a positive capacity and refill rate");
+    }
+
+    this.emissionIntervalNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / refillPerSecond));
+    this.capacityNanos = capacity * emissionIntervalNanos;
+    this.theoreticalArrivalTime = new AtomicLong(nowNanos);
+  }
+
+  /**
+   * @return 0 when a token was taken, otherwise the nanos to wait until one is available
+   */
+  public long tryConsume(long nowNanos) {
+    while (true) {
+      long current = theoreticalArrivalTime.get();
+      long next = (current - nowNanos > 0 ? current : nowNanos) + emissionIntervalNanos;
+      long excess = next - nowNanos - capacityNanos;
+
+      if (excess > 0) {
+        return excess;
+      }
+
+      if (theoreticalArrivalTime.compareAndSet(current, next)) {
+        return 0;
+      }
+    }
+  }
+
+  public boolean isFull(long nowNanos) {
+    return theoreticalArrivalTime.get() - nowNanos <= 0;
+  }
+}
@@ -0,0 +1,31 @@
+package academy.devdojo.springboot2.repository;
+
+import academy.devdojo.springboot2.domain.AnimeChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface AnimeChangeRepository extends JpaRepository<AnimeChange, Long>, AnimeChangeRepositoryCustom {
+  List<AnimeChange> findByIdGreaterThanAndChangedAtBeforeOrderByIdAsc(Long id, Instant changedAt, Pageable pageable);
+
+  List<AnimeChange> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+  @Query("select min(c.id) from AnimeChange c")
+  Long findOldestId();
+
+  @Query("select max(c.id) from AnimeChange c")
+  Long findLatestId();
+
+  @Query("select max(c.id) from AnimeChange c where c.changedAt < :changedAt")
+  Long findLatestIdChangedBefore(Instant changedAt);
+
+  @Modifying
+  @Transactional
+  @Query("delete from AnimeChange c where c.id <= :id")
+  int deleteUpTo(Long id);
+}
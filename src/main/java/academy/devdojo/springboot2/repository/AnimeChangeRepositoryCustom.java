@@ -0,0 +1,9 @@
+package academy.devdojo.springboot2.repository;
+
+import academy.devdojo.springboot2.domain.AnimeChange;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface AnimeChangeRepositoryCustom {
+  @Transactional
+  AnimeChange insertWithId(AnimeChange change);
+}
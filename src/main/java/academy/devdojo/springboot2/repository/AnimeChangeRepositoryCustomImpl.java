@@ -0,0 +1,30 @@
+package academy.devdojo.springboot2.repository;
+
+import academy.devdojo.springboot2.domain.AnimeChange;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.query.NativeQuery;
+
+@RequiredArgsConstructor
+public class AnimeChangeRepositoryCustomImpl implements AnimeChangeRepositoryCustom {
+  private final EntityManager entityManager;
+
+  // Sharded change ids come from the AnimeIdAllocator, which the identity mapping cannot take. Written on the
+  // transaction's connection, so the change lands on the shard of its anime. Synchronized on the change table only,
+  // otherwise the native insert would evict every second-level cache region
+  @Override
+  public AnimeChange insertWithId(AnimeChange change) {
+    entityManager.createNativeQuery(
+                    "insert into anime_change (id, anime_id, name, type, changed_at) values (?1, ?2, ?3, ?4, ?5)")
+            .unwrap(NativeQuery.class)
+            .addSynchronizedEntityClass(AnimeChange.class)
+            .setParameter(1, change.getId())
+            .setParameter(2, change.getAnimeId())
+            .setParameter(3, change.getName())
+            .setParameter(4, change.getType().name())
+            .setParameter(5, change.getChangedAt())
+            .executeUpdate();
+
+    return change;
+  }
+}
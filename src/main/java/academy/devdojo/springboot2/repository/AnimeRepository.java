@@ -1,10 +1,72 @@
 package academy.devdojo.springboot2.repository;
 
 import academy.devdojo.springboot2.domain.Anime;
+import academy.devdojo.springboot2.projection.AnimeView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface AnimeRepository extends JpaRepository<Anime, Long> {
+public interface AnimeRepository extends JpaRepository<Anime, Long>, AnimeRepositoryCustom {
+  @QueryHints({
+          @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+          @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "anime-query")
+  })
   List<Anime> findByName(String name);
+
+  @Override
+  @QueryHints({
+          @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+          @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "anime-query")
+  })
+  List<Anime> findAll();
+
+  @Override
+  @QueryHints({
+          @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+          @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "anime-query")
+  })
+  Page<Anime> findAll(Pageable pageable);
+
+  @QueryHints({
+          @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+          @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "anime-query")
+  })
+  @Query(value = "select new academy.devdojo.springboot2.projection.AnimeView(a.id, a.name) from Anime a",
+          countQuery = "select count(a) from Anime a")
+  @Transactional(readOnly = true)
+  Page<AnimeView> findAllViews(Pageable pageable);
+
+  @QueryHints({
+          @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+          @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "anime-query")
+  })
+  @Query("select new academy.devdojo.springboot2.projection.AnimeView(a.id, a.name) from Anime a")
+  @Transactional(readOnly = true)
+  List<AnimeView> findAllViews();
+
+  // Keyset pages, each one costs its own rows wherever it starts; not cached as every page has its own key
+  @Query("select new academy.devdojo.springboot2.projection.AnimeView(a.id, a.name) from Anime a where a.id > :id "
+          + "order by a.id")
+  @Transactional(readOnly = true)
+  List<AnimeView> findViewsAfter(Long id, Pageable pageable);
+
+  @QueryHints({
+          @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+          @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+          @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+  })
+  @Query("select a from Anime a")
+  Stream<Anime> streamAll();
+
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  @Query("select new academy.devdojo.springboot2.projection.AnimeView(a.id, a.name) from Anime a order by a.id")
+  Stream<AnimeView> streamAllViewsOrderById();
 }
@@ -0,0 +1,22 @@
+package academy.devdojo.springboot2.repository;
+
+import academy.devdojo.springboot2.domain.Anime;
+import academy.devdojo.springboot2.projection.AnimeView;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Set;
+
+public interface AnimeRepositoryCustom {
+  List<Anime> findAllByIdKeepingOrder(List<Long> ids);
+
+  Anime insertWithId(Anime anime);
+
+  @Transactional(readOnly = true)
+  Page<AnimeView> findAllViews(Set<String> columns, Pageable pageable);
+
+  @Transactional(readOnly = true)
+  List<AnimeView> findAllViews(Set<String> columns);
+}
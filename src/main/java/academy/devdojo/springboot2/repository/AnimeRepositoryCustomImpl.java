@@ -0,0 +1,115 @@
+package academy.devdojo.springboot2.repository;
+
+import academy.devdojo.springboot2.domain.Anime;
+import academy.devdojo.springboot2.projection.AnimeView;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+@RequiredArgsConstructor
+public class AnimeRepositoryCustomImpl implements AnimeRepositoryCustom {
+  private final EntityManager entityManager;
+
+  // Served from the persistence context and the second-level cache first, the rest in a single IN query
+  @Override
+  public List<Anime> findAllByIdKeepingOrder(List<Long> ids) {
+    if (ids.isEmpty()) {
+      return List.of();
+    }
+
+    return entityManager.unwrap(Session.class)
+            .byMultipleIds(Anime.class)
+            .with(CacheMode.NORMAL)
+            .enableSessionCheck(true)
+            .enableOrderedReturn(true)
+            .withBatchSize(ids.size())
+            .multiLoad(ids)
+            .stream()
+            .filter(Objects::nonNull)
+            .toList();
+  }
+
+  // Sharded ids come from the AnimeIdAllocator, which the identity mapping cannot take. The row is new, so no cache
+  // can hold a stale copy of it and it is written on the transaction's connection without the persistence context
+  @Override
+  public Anime insertWithId(Anime anime) {
+    entityManager.unwrap(Session.class).doWork(connection -> {
+      try (PreparedStatement insert = connection.prepareStatement("insert into anime (id, name) values (?, ?)")) {
+        insert.setLong(1, anime.getId());
+        insert.setString(2, anime.getName());
+        insert.executeUpdate();
+      }
+    });
+
+    return anime;
+  }
+
+  // Sparse fieldsets select only the requested columns, the rest of the view is left null
+  @Override
+  public Page<AnimeView> findAllViews(Set<String> columns, Pageable pageable) {
+    TypedQuery<Tuple> query = viewsQuery(columns, pageable.getSort());
+
+    if (pageable.isPaged()) {
+      query.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize());
+    }
+
+    List<AnimeView> views = toViews(query.getResultList(), columns);
+
+    return PageableExecutionUtils.getPage(views, pageable, this::count);
+  }
+
+  @Override
+  public List<AnimeView> findAllViews(Set<String> columns) {
+    return toViews(viewsQuery(columns, Sort.unsorted()).getResultList(), columns);
+  }
+
+  private TypedQuery<Tuple> viewsQuery(Set<String> columns, Sort sort) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Tuple> query = builder.createTupleQuery();
+    Root<Anime> anime = query.from(Anime.class);
+
+    query.multiselect(columns.stream().<Selection<?>>map(column -> anime.get(column).alias(column)).toList());
+    query.orderBy(QueryUtils.toOrders(sort, anime, builder));
+
+    return entityManager.createQuery(query)
+            .setHint(HibernateHints.HINT_CACHEABLE, true)
+            .setHint(HibernateHints.HINT_CACHE_REGION, "anime-query");
+  }
+
+  private long count() {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Long> query = builder.createQuery(Long.class);
+    query.select(builder.count(query.from(Anime.class)));
+
+    return entityManager.createQuery(query)
+            .setHint(HibernateHints.HINT_CACHEABLE, true)
+            .setHint(HibernateHints.HINT_CACHE_REGION, "anime-query")
+            .getSingleResult();
+  }
+
+  private static List<AnimeView> toViews(List<Tuple> rows, Set<String> columns) {
+    return rows.stream()
+            .map(row -> new AnimeView(
+                    columns.contains("id") ? row.get("id", Long.class) : null,
+                    columns.contains("name") ? row.get("name", String.class) : null))
+            .toList();
+  }
+}
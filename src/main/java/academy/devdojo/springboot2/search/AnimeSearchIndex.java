@@ -0,0 +1,461 @@
+package academy.devdojo.springboot2.search;
+
+import academy.devdojo.springboot2.domain.Anime;
+import academy.devdojo.springboot2.event.AnimeChangedEvent;
+import academy.devdojo.springboot2.event.AnimesChangedEvent;
+import academy.devdojo.springboot2.exception.BadRequestException;
+import academy.devdojo.springboot2.repository.AnimeRepository;
+import academy.devdojo.springboot2.shard.AnimeShards;
+import jakarta.persistence.EntityManager;
+import lombok.extern.log4j.Log4j2;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Near-real-time Lucene index of anime names. Each full rebuild writes a new index generation next to the
+ * live one and swaps it in, so searches keep running on the previous generation until the swap.
+ */
+@Component
+@Log4j2
+@EnableConfigurationProperties(AnimeSearchProperties.class)
+public class AnimeSearchIndex implements InitializingBean, DisposableBean {
+  private static final String ID = "id";
+  private static final String NAME = "name";
+  private static final String GENERATION_PREFIX = "generation-";
+
+  private final AnimeSearchProperties properties;
+  private final AnimeRepository animeRepository;
+  private final AnimeShards animeShards;
+  private final EntityManager entityManager;
+  private final TransactionTemplate readOnlyTransaction;
+  private final Analyzer analyzer = new AnimeNameAnalyzer();
+  private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+  private final Queue<AnimeChangedEvent> changesDuringRebuild = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean rebuilding = new AtomicBoolean();
+  private ScheduledExecutorService executor;
+  private volatile Generation current;
+  private long lastCommitNanos = System.nanoTime();
+
+  public AnimeSearchIndex(AnimeSearchProperties properties, AnimeRepository animeRepository, AnimeShards animeShards,
+                          EntityManager entityManager, PlatformTransactionManager transactionManager) {
+    this.properties = properties;
+    this.animeRepository = animeRepository;
+    this.animeShards = animeShards;
+    this.entityManager = entityManager;
+    this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+    this.readOnlyTransaction.setReadOnly(true);
+  }
+
+  @Override
+  public void afterPropertiesSet() throws IOException {
+    Files.createDirectories(properties.getIndexPath());
+    current = Generation.open(properties.getIndexPath(), latestCommittedGeneration(), analyzer);
+
+    AtomicInteger threads = new AtomicInteger();
+    executor = Executors.newScheduledThreadPool(2, runnable -> {
+      Thread thread = new Thread(runnable, "anime-search-" + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    long refreshMillis = properties.getRefreshInterval().toMillis();
+    executor.scheduleWithFixedDelay(this::refresh, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuildOnStartup() {
+    if (properties.isRebuildOnStartup()) {
+      rebuildAsync();
+    }
+  }
+
+  public Page<Anime> search(String text, Pageable pageable) {
+    if (pageable.isUnpaged()) {
+      pageable = Pageable.ofSize(20);
+    }
+
+    if (pageable.getOffset() + pageable.getPageSize() > properties.getMaxResultWindow()) {
+      throw new BadRequestException("Search results are limited to the first " + properties.getMaxResultWindow() + " matches");
+    }
+
+    Query query = buildQuery(text);
+
+    if (query == null) {
+      return Page.empty(pageable);
+    }
+
+    while (true) {
+      Generation generation = current;
+      IndexSearcher searcher;
+
+      try {
+        searcher = generation.searcherManager.acquire();
+      } catch (AlreadyClosedException e) {
+        continue;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+
+      try {
+        return search(searcher, query, pageable);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } finally {
+        release(generation, searcher);
+      }
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onAnimeChanged(AnimeChangedEvent event) {
+    onAnimesChanged(new AnimesChangedEvent(List.of(event)));
+  }
+
+  // A batch goes into one generation as a whole, a rebuild swaps generations either before or after it
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onAnimesChanged(AnimesChangedEvent event) {
+    swapLock.readLock().lock();
+
+    try {
+      IndexWriter writer = current.writer;
+
+      for (AnimeChangedEvent change : event.changes()) {
+        try {
+          apply(writer, change);
+        } catch (IOException e) {
+          log.warn("Could not index change {} of anime {}", change.type(), change.anime().getId(), e);
+        }
+      }
+
+      if (rebuilding.get()) {
+        changesDuringRebuild.addAll(event.changes());
+      }
+    } finally {
+      swapLock.readLock().unlock();
+    }
+  }
+
+  public boolean rebuildAsync() {
+    if (rebuilding.get()) {
+      return false;
+    }
+
+    executor.execute(this::rebuild);
+
+    return true;
+  }
+
+  public boolean rebuild() {
+    if (!rebuilding.compareAndSet(false, true)) {
+      return false;
+    }
+
+    long started = System.nanoTime();
+    Generation next = null;
+
+    try {
+      changesDuringRebuild.clear();
+      next = Generation.open(properties.getIndexPath(), current.number + 1, analyzer);
+      long count = scanInto(next.writer);
+      Generation previous;
+
+      swapLock.writeLock().lock();
+
+      try {
+        AnimeChangedEvent change;
+
+        while ((change = changesDuringRebuild.poll()) != null) {
+          apply(next.writer, change);
+        }
+
+        next.writer.commit();
+        next.searcherManager.maybeRefreshBlocking();
+        previous = current;
+        current = next;
+      } finally {
+        swapLock.writeLock().unlock();
+      }
+
+      previous.closeAndDelete();
+      log.info("Rebuilt anime search index generation {} with {} animes in {} ms", next.number, count,
+              TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+      return true;
+    } catch (Exception e) {
+      log.error("Anime search index rebuild failed, keeping generation {}", current.number, e);
+
+      if (next != null && next != current) {
+        next.closeAndDelete();
+      }
+
+      return false;
+    } finally {
+      rebuilding.set(false);
+    }
+  }
+
+  void refresh() {
+    Generation generation = current;
+
+    try {
+      generation.searcherManager.maybeRefresh();
+
+      if (System.nanoTime() - lastCommitNanos > properties.getCommitInterval().toNanos()) {
+        lastCommitNanos = System.nanoTime();
+
+        if (generation.writer.hasUncommittedChanges()) {
+          generation.writer.commit();
+        }
+      }
+    } catch (AlreadyClosedException e) {
+      // swapped out by a rebuild, the next run refreshes the new generation
+    } catch (IOException e) {
+      log.warn("Could not refresh anime search index", e);
+    }
+  }
+
+  @Override
+  public void destroy() throws IOException {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+
+    if (current != null) {
+      current.close();
+    }
+  }
+
+  private Page<Anime> search(IndexSearcher searcher, Query query, Pageable pageable) throws IOException {
+    int offset = (int) pageable.getOffset();
+    TopScoreDocCollector collector = TopScoreDocCollector.create(offset + pageable.getPageSize(), Integer.MAX_VALUE);
+
+    searcher.search(query, collector);
+
+    StoredFields storedFields = searcher.storedFields();
+    List<Anime> animes = new ArrayList<>();
+
+    for (ScoreDoc scoreDoc : collector.topDocs(offset, pageable.getPageSize()).scoreDocs) {
+      Document document = storedFields.document(scoreDoc.doc);
+
+      animes.add(Anime.builder()
+              .id(Long.valueOf(document.get(ID)))
+              .name(document.get(NAME))
+              .build());
+    }
+
+    return new PageImpl<>(animes, pageable, collector.getTotalHits());
+  }
+
+  // Every term must match, either exactly (ranked higher) or as a prefix of a longer word
+  private Query buildQuery(String text) {
+    BooleanQuery.Builder query = new BooleanQuery.Builder();
+    boolean hasTerms = false;
+
+    try (TokenStream tokens = analyzer.tokenStream(NAME, text)) {
+      CharTermAttribute term = tokens.addAttribute(CharTermAttribute.class);
+      tokens.reset();
+
+      while (tokens.incrementToken()) {
+        Term nameTerm = new Term(NAME, term.toString());
+
+        query.add(new BooleanQuery.Builder()
+                .add(new BoostQuery(new TermQuery(nameTerm), 2f), BooleanClause.Occur.SHOULD)
+                .add(new PrefixQuery(nameTerm), BooleanClause.Occur.SHOULD)
+                .build(), BooleanClause.Occur.MUST);
+        hasTerms = true;
+      }
+
+      tokens.end();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    return hasTerms ? query.build() : null;
+  }
+
+  // Shard by shard, a scan takes longer than the scatter timeout allows for request reads
+  private long scanInto(IndexWriter writer) {
+    long indexed = 0;
+
+    for (int shard = 0; shard < animeShards.count(); shard++) {
+      indexed += animeShards.onShard(shard, () -> scanShardInto(writer));
+    }
+
+    return indexed;
+  }
+
+  private long scanShardInto(IndexWriter writer) {
+    Long count = readOnlyTransaction.execute(status -> {
+      long indexed = 0;
+
+      try (Stream<Anime> animes = animeRepository.streamAll()) {
+        for (Iterator<Anime> iterator = animes.iterator(); iterator.hasNext(); ) {
+          writer.addDocument(toDocument(iterator.next()));
+
+          if (++indexed % properties.getScanBatchSize() == 0) {
+            entityManager.clear();
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+
+      return indexed;
+    });
+
+    return count == null ? 0 : count;
+  }
+
+  private static void apply(IndexWriter writer, AnimeChangedEvent event) throws IOException {
+    Term id = new Term(ID, String.valueOf(event.anime().getId()));
+
+    if (event.type() == AnimeChangedEvent.Type.DELETED) {
+      writer.deleteDocuments(id);
+    } else {
+      writer.updateDocument(id, toDocument(event.anime()));
+    }
+  }
+
+  private static Document toDocument(Anime anime) {
+    Document document = new Document();
+
+    document.add(new StringField(ID, String.valueOf(anime.getId()), Field.Store.YES));
+    document.add(new TextField(NAME, anime.getName(), Field.Store.YES));
+
+    return document;
+  }
+
+  private static void release(Generation generation, IndexSearcher searcher) {
+    try {
+      generation.searcherManager.release(searcher);
+    } catch (IOException e) {
+      log.warn("Could not release anime index searcher", e);
+    }
+  }
+
+  // A crash mid-rebuild leaves a newer generation without a commit behind, and maybe the older one it replaced:
+  // the newest committed generation is kept and every other one deleted
+  private long latestCommittedGeneration() throws IOException {
+    List<Long> numbers;
+
+    try (Stream<Path> paths = Files.list(properties.getIndexPath())) {
+      numbers = paths.map(path -> path.getFileName().toString())
+              .filter(name -> name.startsWith(GENERATION_PREFIX))
+              .map(name -> Long.parseLong(name.substring(GENERATION_PREFIX.length())))
+              .sorted(Comparator.reverseOrder())
+              .toList();
+    }
+
+    long latest = numbers.isEmpty() ? 0 : numbers.get(0);
+
+    for (long number : numbers) {
+      if (isCommitted(number)) {
+        latest = number;
+        break;
+      }
+    }
+
+    for (long number : numbers) {
+      if (number != latest) {
+        log.info("Removing stale anime search index generation {}", number);
+        FileSystemUtils.deleteRecursively(generationPath(number));
+      }
+    }
+
+    return latest;
+  }
+
+  private boolean isCommitted(long number) throws IOException {
+    try (Directory directory = FSDirectory.open(generationPath(number))) {
+      return DirectoryReader.indexExists(directory);
+    }
+  }
+
+  private Path generationPath(long number) {
+    return properties.getIndexPath().resolve(GENERATION_PREFIX + number);
+  }
+
+  private record Generation(long number, Path path, Directory directory, IndexWriter writer,
+                            SearcherManager searcherManager) implements Closeable {
+    static Generation open(Path basePath, long number, Analyzer analyzer) throws IOException {
+      Path path = basePath.resolve(GENERATION_PREFIX + number);
+      Directory directory = FSDirectory.open(path);
+      IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+              .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+
+      return new Generation(number, path, directory, writer, new SearcherManager(writer, null));
+    }
+
+    @Override
+    public void close() throws IOException {
+      searcherManager.close();
+      writer.close();
+      directory.close();
+    }
+
+    void closeAndDelete() {
+      try {
+        close();
+        FileSystemUtils.deleteRecursively(path);
+      } catch (IOException e) {
+        log.warn("Could not remove anime search index generation {}", number, e);
+      }
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package academy.devdojo.springboot2.search;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.search")
+public class AnimeSearchProperties {
+  private Path indexPath = Path.of(System.getProperty("java.io.tmpdir"), "springboot2-essentials", "anime-index");
+  private Duration refreshInterval = Duration.ofMillis(500);
+  private Duration commitInterval = Duration.ofSeconds(30);
+  private boolean rebuildOnStartup = true;
+  private int maxResultWindow = 10_000;
+  private int scanBatchSize = 500;
+}
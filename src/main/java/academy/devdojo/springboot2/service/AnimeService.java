@@ -1,56 +1,266 @@
 package academy.devdojo.springboot2.service;
 
+import academy.devdojo.springboot2.bulk.AnimeImportFormat;
+import academy.devdojo.springboot2.bulk.AnimeImportSummary;
+import academy.devdojo.springboot2.bulk.AnimeImporter;
+import academy.devdojo.springboot2.catalog.AnimeCatalog;
+import academy.devdojo.springboot2.catalog.AnimeCatalogSnapshot;
 import academy.devdojo.springboot2.domain.Anime;
+import academy.devdojo.springboot2.event.AnimeChangedEvent;
+import academy.devdojo.springboot2.exception.AnimeNotFoundException;
 import academy.devdojo.springboot2.exception.BadRequestException;
+import academy.devdojo.springboot2.feed.AnimeChangeFeed;
+import academy.devdojo.springboot2.fieldset.AnimeFieldset;
 import academy.devdojo.springboot2.mapper.AnimeMapper;
+import academy.devdojo.springboot2.prefetch.AnimePagePrefetcher;
+import academy.devdojo.springboot2.projection.AnimeView;
 import academy.devdojo.springboot2.requests.AnimePostRequestBody;
 import academy.devdojo.springboot2.repository.AnimeRepository;
 import academy.devdojo.springboot2.requests.AnimePutRequestBody;
+import academy.devdojo.springboot2.search.AnimeSearchIndex;
+import academy.devdojo.springboot2.shard.AnimeShards;
+import academy.devdojo.springboot2.sync.AnimeChangeLog;
+import academy.devdojo.springboot2.sync.AnimeChanges;
+import academy.devdojo.springboot2.wrapper.AnimeBatchResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.InputStream;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class AnimeService {
+  // Writes are recorded in the change log, which only settles changes whose transaction cannot outlast this
+  private static final String COMMIT_TIMEOUT = "${devdojo.change-log.commit-timeout:3}";
+
   private final AnimeRepository animeRepository;
+  private final RequestCoalescer requestCoalescer;
+  private final ApplicationEventPublisher applicationEventPublisher;
+  private final AnimeSearchIndex animeSearchIndex;
+  private final AnimeChangeFeed animeChangeFeed;
+  private final AnimeChangeLog animeChangeLog;
+  private final AnimeImporter animeImporter;
+  private final AnimeCatalog animeCatalog;
+  private final AnimeShards animeShards;
+  private final AnimePagePrefetcher animePagePrefetcher;
+  @Value("${devdojo.batch.max-ids:200}")
+  private int maxBatchIds;
+
+  public Page<AnimeView> listAll(Pageable pageable) {
+    return listAll(pageable, AnimeFieldset.ALL);
+  }
+
+  // Not transactional so catalog hits never take a connection, the repository reads in its own read-only transaction.
+  // Catalog hits are already in memory, the fieldset only trims their serialization
+  public Page<AnimeView> listAll(Pageable pageable, AnimeFieldset fields) {
+    Optional<AnimeCatalogSnapshot> catalog = animeCatalog.snapshot();
+
+    if (catalog.isPresent() && isIdOrder(pageable.getSort())) {
+      return catalog.get().findAll(pageable);
+    }
+
+    // Ordered by id when unsorted, so pages are stable and the shard results can be merged
+    Pageable ordered = pageable.isPaged() && pageable.getSort().isUnsorted()
+            ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by("id"))
+            : pageable;
+
+    Function<Pageable, Page<AnimeView>> query = fields.isAll()
+            ? animeRepository::findAllViews
+            : page -> animeRepository.findAllViews(fields.columns(page.getSort()), page);
+
+    Comparator<AnimeView> order = viewOrder(ordered.getSort());
+
+    return animePagePrefetcher.load(ordered, fields, page -> animeShards.scatterPage(page, query, order));
+  }
+
+  // Keyset paging for clients reading through the whole list, a page costs the same wherever it starts
+  public List<AnimeView> listAfter(long id, int limit) {
+    Optional<AnimeCatalogSnapshot> catalog = animeCatalog.snapshot();
+
+    if (catalog.isPresent()) {
+      return catalog.get().findAfter(id, limit);
+    }
+
+    List<AnimeView> animes = animeShards.scatterSorted(
+            shard -> animeRepository.findViewsAfter(id, PageRequest.of(0, limit)), Comparator.comparing(AnimeView::id));
 
-  public Page<Anime> listAll(Pageable pageable) {
-    return animeRepository.findAll(pageable);
+    return animes.size() > limit ? animes.subList(0, limit) : animes;
   }
 
-  public List<Anime> listAllNonPageable() {
-    return animeRepository.findAll();
+  public List<AnimeView> listAllNonPageable() {
+    return listAllNonPageable(AnimeFieldset.ALL);
   }
 
+  public List<AnimeView> listAllNonPageable(AnimeFieldset fields) {
+    return animeCatalog.snapshot()
+            .map(AnimeCatalogSnapshot::findAll)
+            .orElseGet(() -> animeShards.scatterSorted(shard -> fields.isAll()
+                            ? animeRepository.findAllViews()
+                            : animeRepository.findAllViews(fields.columns(Sort.unsorted())),
+                    Comparator.comparing(AnimeView::id)));
+  }
+
+  // Not transactional so callers waiting on a coalesced load do not hold a connection. Catalog misses still go to
+  // the database, an anime created on another node may not have reached the snapshot yet
   public Anime findByIdOrThrowBadRequestException(Long id) {
-    return animeRepository.findById(id)
-            .orElseThrow(() -> new BadRequestException("Anime not found"));
+    return animeCatalog.snapshot()
+            .flatMap(catalog -> catalog.findById(id))
+            .map(anime -> Anime.builder().id(anime.id()).name(anime.name()).build())
+            .orElseGet(() -> requestCoalescer.load("findById", id, () -> findById(id), AnimeService::copy));
+  }
+
+  @Transactional(readOnly = true)
+  public AnimeBatchResponse findAllById(List<Long> ids) {
+    if (ids.stream().anyMatch(Objects::isNull)) {
+      throw new BadRequestException("Anime ids cannot be null");
+    }
+
+    List<Long> distinctIds = List.copyOf(new LinkedHashSet<>(ids));
+
+    if (distinctIds.size() > maxBatchIds) {
+      throw new BadRequestException("At most %d ids can be requested at once".formatted(maxBatchIds));
+    }
+
+    Map<Long, Integer> positions = new HashMap<>();
+    distinctIds.forEach(id -> positions.put(id, positions.size()));
+    Map<Integer, List<Long>> idsByShard = distinctIds.stream().collect(Collectors.groupingBy(animeShards::shardOf));
+
+    List<Anime> animes = animeShards.scatterSorted(
+            shard -> animeRepository.findAllByIdKeepingOrder(idsByShard.getOrDefault(shard, List.of())),
+            Comparator.comparing(anime -> positions.get(anime.getId())));
+    Set<Long> foundIds = new LinkedHashSet<>(animes.stream().map(Anime::getId).toList());
+    List<Long> missingIds = distinctIds.stream().filter(id -> !foundIds.contains(id)).toList();
+
+    return new AnimeBatchResponse(animes, missingIds);
   }
 
   public List<Anime> findByName(String name) {
-    return animeRepository.findByName(name);
+    return requestCoalescer.load("findByName", name, () -> animeShards.scatterSorted(
+            shard -> animeRepository.findByName(name), Comparator.comparing(Anime::getId)),
+            animes -> animes.stream().map(AnimeService::copy).toList());
+  }
+
+  public Page<Anime> search(String text, Pageable pageable) {
+    return animeSearchIndex.search(text, pageable);
+  }
+
+  public boolean rebuildSearchIndex() {
+    return animeSearchIndex.rebuildAsync();
+  }
+
+  public SseEmitter subscribeToChanges(Long lastEventId) {
+    return animeChangeFeed.subscribe(lastEventId);
   }
 
+  // Without a token the client gets the settled one back, to be taken before loading the full catalog. The
+  // newest id could skip a change that commits after a higher one
+  @Transactional(readOnly = true)
+  public AnimeChanges listChangesSince(Long token) {
+    if (token == null) {
+      return new AnimeChanges(List.of(), animeChangeLog.settledToken(), false);
+    }
+
+    return animeChangeLog.changesSince(token);
+  }
+
+  @Transactional(timeoutString = COMMIT_TIMEOUT)
   public Anime save(AnimePostRequestBody animePostRequestBody) {
-    return animeRepository.save(AnimeMapper.INSTANCE.toAnime(animePostRequestBody));
+    Anime anime = AnimeMapper.INSTANCE.toAnime(animePostRequestBody);
+    Anime savedAnime;
+
+    if (animeShards.isEnabled()) {
+      anime.setId(animeShards.allocateId());
+      savedAnime = animeShards.onShardOf(anime.getId(), () -> animeRepository.insertWithId(anime));
+    } else {
+      savedAnime = animeRepository.save(anime);
+    }
+
+    applicationEventPublisher.publishEvent(new AnimeChangedEvent(AnimeChangedEvent.Type.CREATED, savedAnime));
+
+    return savedAnime;
   }
 
+  // The transaction connects at its first statement, which picks its shard. Reads may be served from the cache, so
+  // writes are flushed while the anime's shard is selected
+  @Transactional(timeoutString = COMMIT_TIMEOUT)
   public void delete(Long id) {
-    animeRepository.delete(findByIdOrThrowBadRequestException(id));
+    Anime anime = animeShards.onShardOf(id, () -> {
+      Anime savedAnime = findById(id);
+
+      animeRepository.delete(savedAnime);
+      animeRepository.flush();
+
+      return savedAnime;
+    });
+
+    applicationEventPublisher.publishEvent(new AnimeChangedEvent(AnimeChangedEvent.Type.DELETED, anime));
   }
 
+  @Transactional(timeoutString = COMMIT_TIMEOUT)
   public void replace(AnimePutRequestBody animePutRequestBody) {
-    Anime savedAnime = findByIdOrThrowBadRequestException(animePutRequestBody.getId());
+    Anime anime = animeShards.onShardOf(animePutRequestBody.getId(), () -> {
+      Anime savedAnime = findById(animePutRequestBody.getId());
+
+      Anime replacement = AnimeMapper.INSTANCE.toAnime(animePutRequestBody);
 
-    Anime anime = AnimeMapper.INSTANCE.toAnime(animePutRequestBody);
+      replacement.setId(savedAnime.getId());
 
-    anime.setId(savedAnime.getId());
+      return animeRepository.saveAndFlush(replacement);
+    });
 
-    animeRepository.save(anime);
+    applicationEventPublisher.publishEvent(new AnimeChangedEvent(AnimeChangedEvent.Type.REPLACED, anime));
   }
 
+  // Not transactional, the importer commits one transaction per batch
+  public AnimeImportSummary importAnimes(InputStream body, AnimeImportFormat format, long resumeAfterLine) {
+    return animeImporter.importAnimes(body, format, resumeAfterLine);
+  }
+
+  private static boolean isIdOrder(Sort sort) {
+    return sort.isUnsorted() || sort.equals(Sort.by(Sort.Direction.ASC, "id"));
+  }
+
+  // The database sorts nulls first, string comparison matches binary collations
+  private static Comparator<AnimeView> viewOrder(Sort sort) {
+    Comparator<AnimeView> order = (left, right) -> 0;
+
+    for (Sort.Order property : sort) {
+      Comparator<AnimeView> comparator = switch (property.getProperty()) {
+        case "id" -> Comparator.comparing(AnimeView::id);
+        case "name" -> Comparator.comparing(AnimeView::name, Comparator.nullsFirst(Comparator.naturalOrder()));
+        default -> throw new BadRequestException("Sorting by '%s' is not supported".formatted(property.getProperty()));
+      };
+
+      order = order.thenComparing(property.isAscending() ? comparator : comparator.reversed());
+    }
+
+    return order.thenComparing(AnimeView::id);
+  }
+
+  private static Anime copy(Anime anime) {
+    return Anime.builder().id(anime.getId()).name(anime.getName()).build();
+  }
+
+  private Anime findById(Long id) {
+    return animeShards.onShardOf(id, () -> animeRepository.findById(id))
+            .orElseThrow(AnimeNotFoundException::new);
+  }
 }
@@ -0,0 +1,137 @@
+package academy.devdojo.springboot2.service;
+
+import io.micrometer.core.instrument.Counter;
+import academy.devdojo.springboot2.datasource.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Single-flight loads: concurrent callers asking for the same key share the first caller's load.
+ * When that load outlasts the wait timeout, one waiter starts a new load and the others wait for it instead; a load
+ * started that way is waited for without a timeout, as each waiter would otherwise have run it itself.
+ * <p>
+ * Callers whose reads are pinned to the primary, to see their own recent writes, only share loads among themselves,
+ * never with callers reading from a replica. Every caller gets its own copy of a shared result.
+ */
+@Component
+public class RequestCoalescer {
+  private static final Object TIMED_OUT = new Object();
+
+  private final Map<FlightKey, Flight> inFlight = new ConcurrentHashMap<>();
+  // Operations are only known once called, their counters are registered on first use
+  private final Map<CounterKey, Counter> counters = new ConcurrentHashMap<>();
+  private final MeterRegistry meterRegistry;
+  private final Optional<ReplicaRoutingDataSource> replicaRoutingDataSource;
+  private final Duration timeout;
+
+  @Autowired
+  public RequestCoalescer(MeterRegistry meterRegistry, Optional<ReplicaRoutingDataSource> replicaRoutingDataSource,
+                          @Value("${devdojo.coalescing.timeout:2s}") Duration timeout) {
+    this.meterRegistry = meterRegistry;
+    this.replicaRoutingDataSource = replicaRoutingDataSource;
+    this.timeout = timeout;
+  }
+
+  RequestCoalescer(MeterRegistry meterRegistry, Duration timeout) {
+    this(meterRegistry, Optional.empty(), timeout);
+  }
+
+  // For immutable results, which callers can share as they are
+  public <T> T load(String operation, Object key, Supplier<T> loader) {
+    return load(operation, key, loader, UnaryOperator.identity());
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> T load(String operation, Object key, Supplier<T> loader, UnaryOperator<T> copy) {
+    boolean primary = replicaRoutingDataSource.map(ReplicaRoutingDataSource::isPinnedToPrimary).orElse(false);
+    FlightKey flightKey = new FlightKey(operation, key, primary);
+    Flight flight = new Flight(new CompletableFuture<>(), false);
+    Flight leader = inFlight.putIfAbsent(flightKey, flight);
+
+    while (leader != null) {
+      Object result = await(operation, leader);
+
+      if (result != TIMED_OUT) {
+        return copy.apply((T) result);
+      }
+
+      // The first waiter to get here replaces the slow flight, the others find and join the new one
+      flight = new Flight(flight.result(), true);
+      leader = inFlight.replace(flightKey, leader, flight) ? null : inFlight.putIfAbsent(flightKey, flight);
+    }
+
+    count(operation, "executed");
+
+    try {
+      T result = loader.get();
+      // Waiters copy from a copy of their own, the caller may change its result before they get to it
+      flight.result().complete(copy.apply(result));
+      return result;
+    } catch (Throwable e) {
+      flight.result().completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(flightKey, flight);
+    }
+  }
+
+  private Object await(String operation, Flight leader) {
+    try {
+      Object result = leader.takeover()
+              ? leader.result().get()
+              : leader.result().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+      count(operation, "coalesced");
+      return result;
+    } catch (ExecutionException e) {
+      count(operation, "coalesced");
+      Throwable cause = e.getCause();
+
+      if (cause instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+
+      if (cause instanceof Error error) {
+        throw error;
+      }
+
+      throw new IllegalStateException(cause);
+    } catch (TimeoutException e) {
+      count(operation, "timeout");
+      return TIMED_OUT;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for a coalesced load", e);
+    }
+  }
+
+  private void count(String operation, String result) {
+    counters.computeIfAbsent(new CounterKey(operation, result), key -> Counter.builder("anime.coalescing.loads")
+            .description("Loads executed, served from another caller's load (coalesced) or given up on after a wait timeout")
+            .tag("operation", key.operation())
+            .tag("result", key.result())
+            .register(meterRegistry))
+            .increment();
+  }
+
+  private record Flight(CompletableFuture<Object> result, boolean takeover) {
+  }
+
+  private record FlightKey(String operation, Object key, boolean primary) {
+  }
+
+  private record CounterKey(String operation, String result) {
+  }
+}
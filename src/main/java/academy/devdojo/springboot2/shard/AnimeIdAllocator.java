@@ -0,0 +1,78 @@
+package academy.devdojo.springboot2.shard;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Globally unique ids for sharded storage, handed out from blocks reserved on the {@code anime_id_sequence} row of
+ * the home shard, so only one allocation per block touches the database. The sequence is named after the table whose
+ * ids it hands out. Ids are unique across nodes, but with blocks larger than one, nodes hand out their blocks
+ * concurrently, so ids only roughly follow creation order.
+ */
+public class AnimeIdAllocator {
+  public static final String ANIMES = "anime";
+  public static final String CHANGES = "anime_change";
+
+  private final String sequence;
+  private final JdbcTemplate homeShard;
+  private final TransactionTemplate transaction;
+  private final List<DataSource> shards;
+  private final int blockSize;
+  private long next;
+  private long limit;
+  private boolean floorChecked;
+
+  public AnimeIdAllocator(List<DataSource> shards, String sequence, int blockSize) {
+    this.sequence = sequence;
+    this.homeShard = new JdbcTemplate(shards.get(0));
+    this.transaction = new TransactionTemplate(new DataSourceTransactionManager(shards.get(0)));
+    this.shards = List.copyOf(shards);
+    this.blockSize = blockSize;
+  }
+
+  public synchronized long allocate() {
+    if (next == limit) {
+      next = reserve(blockSize);
+      limit = next + blockSize;
+    }
+
+    return next++;
+  }
+
+  // The first of count consecutive ids, reserved on their own so they are not interleaved with other allocations
+  public synchronized long allocate(int count) {
+    return reserve(count);
+  }
+
+  private long reserve(int count) {
+    Long start = transaction.execute(status -> {
+      long first = homeShard.queryForObject("select next_value from anime_id_sequence where name = ? for update",
+              Long.class, sequence);
+
+      if (!floorChecked) {
+        first = Math.max(first, highestStoredId() + 1);
+      }
+
+      homeShard.update("update anime_id_sequence set next_value = ? where name = ?", first + count, sequence);
+
+      return first;
+    });
+
+    floorChecked = true;
+
+    return start;
+  }
+
+  // Rows stored before sharding was enabled keep their auto increment ids
+  private long highestStoredId() {
+    return shards.stream()
+            .mapToLong(shard -> new JdbcTemplate(shard).queryForObject("select coalesce(max(id), 0) from " + sequence,
+                    Long.class))
+            .max()
+            .orElse(0);
+  }
+}
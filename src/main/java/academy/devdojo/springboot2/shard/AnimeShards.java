@@ -0,0 +1,215 @@
+package academy.devdojo.springboot2.shard;
+
+import academy.devdojo.springboot2.datasource.ShardRoutingDataSource;
+import academy.devdojo.springboot2.datasource.ShardingProperties;
+import academy.devdojo.springboot2.exception.BadRequestException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Spreads anime storage across the shards of a {@link ShardRoutingDataSource} by a hash of the id. Point operations
+ * run on the anime's shard, listings scatter to every shard in parallel, each in a read-only transaction, and merge
+ * the results. With sharding disabled there is a single shard and everything runs inline on the caller's thread.
+ */
+public class AnimeShards implements InitializingBean, DisposableBean {
+  private final ShardingProperties properties;
+  private final TransactionTemplate readOnlyTransaction;
+  private final AnimeIdAllocator idAllocator;
+  private final AnimeIdAllocator changeIdAllocator;
+  private final int count;
+  private ExecutorService executor;
+
+  public AnimeShards(ShardingProperties properties, PlatformTransactionManager transactionManager,
+                     AnimeIdAllocator idAllocator, AnimeIdAllocator changeIdAllocator) {
+    this.properties = properties;
+    this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+    this.readOnlyTransaction.setReadOnly(true);
+    this.idAllocator = idAllocator;
+    this.changeIdAllocator = changeIdAllocator;
+    this.count = properties.isEnabled() ? 1 + properties.getShards().size() : 1;
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    if (!properties.isEnabled()) {
+      return;
+    }
+
+    AtomicInteger threads = new AtomicInteger();
+    executor = Executors.newFixedThreadPool(properties.getScatterThreads(), runnable -> {
+      Thread thread = new Thread(runnable, "anime-shards-" + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @Override
+  public void destroy() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  public boolean isEnabled() {
+    return properties.isEnabled();
+  }
+
+  public int count() {
+    return count;
+  }
+
+  // Murmur3's 64-bit finalizer, so ids handed out in blocks still spread evenly
+  public int shardOf(long id) {
+    long hash = id;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+
+    return (int) Math.floorMod(hash, (long) count);
+  }
+
+  public long allocateId() {
+    if (idAllocator == null) {
+      throw new IllegalStateException("Ids are only allocated for sharded storage");
+    }
+
+    return idAllocator.allocate();
+  }
+
+  // Reserved per transaction, so change ids follow the order changes are recorded in on every node
+  public long allocateChangeIds(int count) {
+    if (changeIdAllocator == null) {
+      throw new IllegalStateException("Change ids are only allocated for sharded storage");
+    }
+
+    return changeIdAllocator.allocate(count);
+  }
+
+  public <T> T onShard(int shard, Supplier<T> action) {
+    return properties.isEnabled() ? ShardRoutingDataSource.callOnShard(shard, action) : action.get();
+  }
+
+  public <T> T onShardOf(long id, Supplier<T> action) {
+    return onShard(shardOf(id), action);
+  }
+
+  /**
+   * Runs {@code query} on every shard in parallel and returns the results in shard order. Fails with the first
+   * shard failure, or with a 503 when a shard does not answer within the scatter timeout.
+   */
+  public <T> List<T> scatter(IntFunction<T> query) {
+    if (!properties.isEnabled()) {
+      return Collections.singletonList(
+              readOnlyTransaction.execute(status -> query.apply(ShardRoutingDataSource.HOME_SHARD)));
+    }
+
+    List<Future<T>> futures = new ArrayList<>(count);
+
+    for (int shard = 0; shard < count; shard++) {
+      int target = shard;
+      futures.add(executor.submit(() -> ShardRoutingDataSource.callOnShard(target,
+              () -> readOnlyTransaction.execute(status -> query.apply(target)))));
+    }
+
+    long deadline = System.nanoTime() + properties.getScatterTimeout().toNanos();
+    List<T> results = new ArrayList<>(count);
+
+    try {
+      for (Future<T> future : futures) {
+        results.add(future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+      }
+
+      return results;
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+
+      if (cause instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+
+      if (cause instanceof Error error) {
+        throw error;
+      }
+
+      throw new IllegalStateException(cause);
+    } catch (TimeoutException e) {
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+              "Shard %d did not answer within %s".formatted(results.size(), properties.getScatterTimeout()));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the shards", e);
+    } finally {
+      futures.forEach(future -> future.cancel(true));
+    }
+  }
+
+  // Unsharded results are returned as they are
+  public <T> List<T> scatterSorted(IntFunction<List<T>> query, Comparator<? super T> order) {
+    List<List<T>> results = scatter(query);
+
+    return results.size() == 1 ? results.get(0) : merge(results, order);
+  }
+
+  /**
+   * Pages across shards: every shard returns its first offset + size rows in page order and the merge keeps the
+   * requested window of them. {@code order} must sort like the page's sort does in the database.
+   */
+  public <T> Page<T> scatterPage(Pageable pageable, Function<Pageable, Page<T>> query, Comparator<? super T> order) {
+    if (!properties.isEnabled()) {
+      return query.apply(pageable);
+    }
+
+    if (pageable.isUnpaged()) {
+      return new PageImpl<>(scatterSorted(shard -> query.apply(pageable).getContent(), order));
+    }
+
+    long window = pageable.getOffset() + pageable.getPageSize();
+
+    if (window > properties.getMaxScatterWindow()) {
+      throw new BadRequestException("Only the first %d animes can be paged through"
+              .formatted(properties.getMaxScatterWindow()));
+    }
+
+    Pageable shardPage = PageRequest.of(0, (int) window, pageable.getSort());
+    List<Page<T>> pages = scatter(shard -> query.apply(shardPage));
+    List<T> merged = merge(pages.stream().map(Page::getContent).toList(), order);
+    int from = (int) Math.min(pageable.getOffset(), merged.size());
+    int to = (int) Math.min(window, merged.size());
+
+    return new PageImpl<>(merged.subList(from, to), pageable, pages.stream().mapToLong(Page::getTotalElements).sum());
+  }
+
+  // TimSort merges the runs of shards returning sorted rows in about linear time
+  private static <T> List<T> merge(List<List<T>> results, Comparator<? super T> order) {
+    List<T> merged = new ArrayList<>(results.stream().mapToInt(List::size).sum());
+    results.forEach(merged::addAll);
+    merged.sort(order);
+
+    return merged;
+  }
+}
@@ -0,0 +1,238 @@
+package academy.devdojo.springboot2.sync;
+
+import academy.devdojo.springboot2.domain.AnimeChange;
+import academy.devdojo.springboot2.event.AnimeChangedEvent;
+import academy.devdojo.springboot2.event.AnimesChangedEvent;
+import academy.devdojo.springboot2.repository.AnimeChangeRepository;
+import academy.devdojo.springboot2.shard.AnimeShards;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only log of anime writes, including tombstones for deletes, that lets clients sync their
+ * copy of the catalog with the changes since their last token instead of downloading it again.
+ * With sharded storage each change is kept on the shard of its anime under an id from one global
+ * sequence, and reads merge the shards by id, so a token stays a single sequence number.
+ */
+@Component
+@Log4j2
+@EnableConfigurationProperties(AnimeChangeLogProperties.class)
+public class AnimeChangeLog implements InitializingBean, DisposableBean {
+  private static final Comparator<AnimeChange> SEQUENCE_ORDER = Comparator.comparing(AnimeChange::getId);
+
+  private final AnimeChangeLogProperties properties;
+  private final AnimeChangeRepository animeChangeRepository;
+  private final AnimeShards animeShards;
+  private final Clock clock;
+  private ScheduledExecutorService purger;
+
+  @Autowired
+  public AnimeChangeLog(AnimeChangeLogProperties properties, AnimeChangeRepository animeChangeRepository,
+                        AnimeShards animeShards) {
+    this(properties, animeChangeRepository, animeShards, Clock.systemUTC());
+  }
+
+  AnimeChangeLog(AnimeChangeLogProperties properties, AnimeChangeRepository animeChangeRepository,
+                 AnimeShards animeShards, Clock clock) {
+    this.properties = properties;
+    this.animeChangeRepository = animeChangeRepository;
+    this.animeShards = animeShards;
+    this.clock = clock;
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    // Changes are stamped before commit, so only a bounded commit keeps a lower id from showing up once settled
+    if (properties.getSettleWindow().compareTo(properties.getCommitTimeout()) <= 0) {
+      throw new IllegalStateException(("devdojo.change-log.settle-window (%s) must be longer than "
+              + "devdojo.change-log.commit-timeout (%s)")
+              .formatted(properties.getSettleWindow(), properties.getCommitTimeout()));
+    }
+
+    purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "anime-change-log-purge");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    long purgeMillis = properties.getPurgeInterval().toMillis();
+    purger.scheduleWithFixedDelay(this::purgeSafely, purgeMillis, purgeMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void destroy() {
+    purger.shutdownNow();
+  }
+
+  // Written in the same transaction as the anime itself, so on its shard, as late as possible so sequence order
+  // follows commit order
+  @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+  public void onAnimeChanged(AnimeChangedEvent event) {
+    record(List.of(event));
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+  public void onAnimesChanged(AnimesChangedEvent event) {
+    record(event.changes());
+  }
+
+  private void record(List<AnimeChangedEvent> events) {
+    Instant now = clock.instant();
+    List<AnimeChange> changes = events.stream()
+            .map(event -> AnimeChange.builder()
+                    .animeId(event.anime().getId())
+                    .name(event.type() == AnimeChangedEvent.Type.DELETED ? null : event.anime().getName())
+                    .type(event.type())
+                    .changedAt(now)
+                    .build())
+            .toList();
+
+    if (animeShards.isEnabled()) {
+      long id = animeShards.allocateChangeIds(changes.size());
+
+      for (AnimeChange change : changes) {
+        change.setId(id++);
+        animeChangeRepository.insertWithId(change);
+      }
+    } else {
+      animeChangeRepository.saveAll(changes);
+    }
+  }
+
+  public long currentToken() {
+    Long latestId = latestId();
+
+    return latestId == null ? 0 : latestId;
+  }
+
+  // Every change after the id in sequence order, including the ones still inside the settle window
+  public List<AnimeChange> changesAfter(long id, int limit) {
+    List<AnimeChange> changes = animeShards.scatterSorted(
+            shard -> animeChangeRepository.findByIdGreaterThanOrderByIdAsc(id, PageRequest.of(0, limit)),
+            SEQUENCE_ORDER);
+
+    return changes.size() > limit ? changes.subList(0, limit) : changes;
+  }
+
+  // Ids are global, the oldest one retained on any shard tells which tokens are still valid
+  public boolean isExpired(long token) {
+    Long oldestId = animeShards.scatter(shard -> animeChangeRepository.findOldestId()).stream()
+            .filter(Objects::nonNull)
+            .min(Long::compare)
+            .orElse(null);
+
+    return oldestId != null && token < oldestId - 1;
+  }
+
+  // Changes younger than the settle window may still have lower-sequence transactions committing around them
+  public List<AnimeChange> settledChangesAfter(long token, int limit) {
+    Instant settled = clock.instant().minus(properties.getSettleWindow());
+    List<AnimeChange> changes = animeShards.scatterSorted(
+            shard -> animeChangeRepository.findByIdGreaterThanAndChangedAtBeforeOrderByIdAsc(
+                    token, settled, PageRequest.of(0, limit)),
+            SEQUENCE_ORDER);
+
+    return changes.size() > limit ? changes.subList(0, limit) : changes;
+  }
+
+  // The newest settled change, no change at or below it can still show up
+  public long settledToken() {
+    Instant settled = clock.instant().minus(properties.getSettleWindow());
+
+    return animeShards.scatter(shard -> animeChangeRepository.findLatestIdChangedBefore(settled)).stream()
+            .filter(Objects::nonNull)
+            .mapToLong(Long::longValue)
+            .max()
+            .orElse(0);
+  }
+
+  public AnimeChanges changesSince(long token) {
+    if (isExpired(token)) {
+      throw new ResponseStatusException(HttpStatus.GONE, "Sync token expired, reload the catalog and start from a new token");
+    }
+
+    int limit = properties.getMaxChangesPerRequest();
+    List<AnimeChange> changes = settledChangesAfter(token, limit + 1);
+
+    boolean hasMore = changes.size() > limit;
+    List<AnimeChange> page = hasMore ? changes.subList(0, limit) : changes;
+    long nextToken = page.isEmpty() ? token : page.get(page.size() - 1).getId();
+
+    return new AnimeChanges(latestPerAnime(page), nextToken, hasMore);
+  }
+
+  public int purge() {
+    Long latestId = latestId();
+    Instant expired = clock.instant().minus(properties.getRetention());
+    Long expiredId = animeShards.scatter(shard -> animeChangeRepository.findLatestIdChangedBefore(expired)).stream()
+            .filter(Objects::nonNull)
+            .max(Long::compare)
+            .orElse(null);
+
+    if (latestId == null || expiredId == null) {
+      return 0;
+    }
+
+    // Every shard is cut at the same id, and the newest change is always kept, so the oldest retained id keeps
+    // telling which tokens are still valid
+    long upTo = Math.min(expiredId, latestId - 1);
+    int purged = 0;
+
+    for (int shard = 0; shard < animeShards.count(); shard++) {
+      purged += animeShards.onShard(shard, () -> animeChangeRepository.deleteUpTo(upTo));
+    }
+
+    return purged;
+  }
+
+  private Long latestId() {
+    return animeShards.scatter(shard -> animeChangeRepository.findLatestId()).stream()
+            .filter(Objects::nonNull)
+            .max(Long::compare)
+            .orElse(null);
+  }
+
+  private void purgeSafely() {
+    try {
+      int purged = purge();
+
+      if (purged > 0) {
+        log.info("Purged {} anime changes older than {}", purged, properties.getRetention());
+      }
+    } catch (RuntimeException e) {
+      log.warn("Could not purge anime change log", e);
+    }
+  }
+
+  private static List<AnimeChange> latestPerAnime(List<AnimeChange> changes) {
+    Map<Long, AnimeChange> latest = new LinkedHashMap<>();
+
+    for (AnimeChange change : changes) {
+      latest.remove(change.getAnimeId());
+      latest.put(change.getAnimeId(), change);
+    }
+
+    return new ArrayList<>(latest.values());
+  }
+}
@@ -0,0 +1,21 @@
+package academy.devdojo.springboot2.sync;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.convert.DurationUnit;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.change-log")
+public class AnimeChangeLogProperties {
+  private Duration retention = Duration.ofDays(7);
+  private Duration purgeInterval = Duration.ofHours(1);
+  // Has to outlast the commit timeout, a change committing after it would be skipped by readers already past it
+  private Duration settleWindow = Duration.ofSeconds(5);
+  // Timeout of the write transactions that record changes, in whole seconds as transactions take it
+  @DurationUnit(ChronoUnit.SECONDS)
+  private Duration commitTimeout = Duration.ofSeconds(3);
+  private int maxChangesPerRequest = 1000;
+}
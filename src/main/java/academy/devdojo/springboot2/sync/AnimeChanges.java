@@ -0,0 +1,8 @@
+package academy.devdojo.springboot2.sync;
+
+import academy.devdojo.springboot2.domain.AnimeChange;
+
+import java.util.List;
+
+public record AnimeChanges(List<AnimeChange> changes, long nextToken, boolean hasMore) {
+}
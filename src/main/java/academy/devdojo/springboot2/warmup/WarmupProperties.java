@@ -0,0 +1,17 @@
+package academy.devdojo.springboot2.warmup;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.warmup")
+public class WarmupProperties {
+  private boolean enabled = true;
+  private Duration timeBudget = Duration.ofSeconds(15);
+  private int iterations = 5000;
+  private int httpRequests = 500;
+  private int authenticatedHttpRequests = 20;
+  private String searchText = "a";
+}
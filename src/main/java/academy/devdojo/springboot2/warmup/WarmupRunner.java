@@ -0,0 +1,174 @@
+package academy.devdojo.springboot2.warmup;
+
+import academy.devdojo.springboot2.controller.AnimeController;
+import academy.devdojo.springboot2.fieldset.AnimeFieldset;
+import academy.devdojo.springboot2.projection.AnimeView;
+import academy.devdojo.springboot2.exception.BadRequestException;
+import academy.devdojo.springboot2.service.AnimeService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Exercises the hot request paths before the readiness state turns to ACCEPTING_TRAFFIC, which Spring Boot
+ * only publishes once application runners have finished, so the first real requests find JIT-compiled
+ * code and warm caches. Only reads are issued, and the phase stops when its time budget runs out.
+ */
+@Component
+@Log4j2
+@EnableConfigurationProperties(WarmupProperties.class)
+public class WarmupRunner implements ApplicationRunner {
+  private static final String WARMUP_USER = "warmup-probe";
+
+  private final WarmupProperties properties;
+  private final AnimeController animeController;
+  private final AnimeService animeService;
+  private final ObjectMapper objectMapper;
+  private final ApplicationEventPublisher applicationEventPublisher;
+  private final Environment environment;
+  private final MeterRegistry meterRegistry;
+
+  public WarmupRunner(WarmupProperties properties, AnimeController animeController, AnimeService animeService,
+                      ObjectMapper objectMapper, ApplicationEventPublisher applicationEventPublisher,
+                      Environment environment, MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.animeController = animeController;
+    this.animeService = animeService;
+    this.objectMapper = objectMapper;
+    this.applicationEventPublisher = applicationEventPublisher;
+    this.environment = environment;
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    if (!properties.isEnabled()) {
+      return;
+    }
+
+    AvailabilityChangeEvent.publish(applicationEventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+
+    long started = System.nanoTime();
+    long deadline = started + properties.getTimeBudget().toNanos();
+    boolean finished = warmUpInProcess(deadline) && warmUpHttp(deadline);
+    long elapsed = System.nanoTime() - started;
+
+    Timer.builder("startup.warmup.duration")
+            .description("Time spent warming up before accepting traffic")
+            .tag("outcome", finished ? "completed" : "budget_exhausted")
+            .register(meterRegistry)
+            .record(Duration.ofNanos(elapsed));
+
+    log.info("Warm-up {} in {} ms", finished ? "completed" : "stopped by its time budget", Duration.ofNanos(elapsed).toMillis());
+  }
+
+  private boolean warmUpInProcess(long deadline) {
+    List<Long> ids = animeService.listAll(PageRequest.of(0, 20)).map(AnimeView::id).toList();
+    String name = animeService.listAll(PageRequest.of(0, 1)).stream().map(AnimeView::name).findFirst().orElse("warmup");
+    List<Long> batchIds = ids.isEmpty() ? List.of(-1L) : ids;
+
+    for (int i = 0; i < properties.getIterations(); i++) {
+      if (System.nanoTime() > deadline) {
+        return false;
+      }
+
+      PageRequest pageable = PageRequest.of(i % 3, 20, i % 2 == 0 ? Sort.unsorted() : Sort.by("name"));
+      long id = ids.isEmpty() ? -1 : ids.get(i % ids.size());
+
+      call("list", () -> serialize(animeController.list(pageable, AnimeFieldset.ALL).getBody()));
+      call("findById", () -> serialize(animeController.findById(id).getBody()));
+      call("findByName", () -> serialize(animeController.findByName(name).getBody()));
+      call("search", () -> serialize(animeController.search(properties.getSearchText(), pageable).getBody()));
+      call("batch", () -> serialize(animeController.findAllById(batchIds).getBody()));
+    }
+
+    return true;
+  }
+
+  // Goes through the real security filter chain; the probe user does not exist, so requests end in 401
+  private boolean warmUpHttp(long deadline) {
+    String port = environment.getProperty("local.server.port");
+
+    if (port == null) {
+      return true;
+    }
+
+    HttpClient client = HttpClient.newHttpClient();
+    String credentials = Base64.getEncoder().encodeToString((WARMUP_USER + ":" + WARMUP_USER).getBytes(StandardCharsets.UTF_8));
+
+    for (int i = 0; i < properties.getHttpRequests(); i++) {
+      if (System.nanoTime() > deadline) {
+        return false;
+      }
+
+      HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/animes?page=0&size=20"));
+
+      if (i < properties.getAuthenticatedHttpRequests()) {
+        request.header("Authorization", "Basic " + credentials);
+      }
+
+      call("http", () -> {
+        try {
+          client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException(e);
+        }
+      });
+    }
+
+    return true;
+  }
+
+  private void serialize(Object body) {
+    try {
+      objectMapper.writeValueAsBytes(body);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void call(String operation, Runnable call) {
+    String result = "success";
+
+    try {
+      call.run();
+    } catch (BadRequestException e) {
+      // Unknown ids are expected while the catalog is empty and still warm up the error path
+    } catch (RuntimeException e) {
+      result = "failure";
+      log.debug("Warm-up call {} failed", operation, e);
+    }
+
+    Counter.builder("startup.warmup.calls")
+            .description("Synthetic calls made while warming up")
+            .tags("operation", operation, "result", result)
+            .register(meterRegistry)
+            .increment();
+  }
+}
@@ -0,0 +1,8 @@
+package academy.devdojo.springboot2.wrapper;
+
+import academy.devdojo.springboot2.domain.Anime;
+
+import java.util.List;
+
+public record AnimeBatchResponse(List<Anime> animes, List<Long> missingIds) {
+}
@@ -0,0 +1,23 @@
+CREATE TABLE IF NOT EXISTS anime (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(255),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS dev_dojo_user (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(255),
+    username VARCHAR(255),
+    password VARCHAR(255),
+    authorities VARCHAR(255),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS anime_change (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    anime_id BIGINT,
+    name VARCHAR(255),
+    type VARCHAR(16),
+    changed_at DATETIME(6),
+    PRIMARY KEY (id)
+);
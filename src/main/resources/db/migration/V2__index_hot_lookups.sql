@@ -0,0 +1,5 @@
+CREATE INDEX idx_anime_name ON anime (name);
+
+CREATE UNIQUE INDEX uk_dev_dojo_user_username ON dev_dojo_user (username);
+
+CREATE INDEX idx_anime_change_changed_at ON anime_change (changed_at);
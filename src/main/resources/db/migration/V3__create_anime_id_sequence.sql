@@ -0,0 +1,7 @@
+CREATE TABLE IF NOT EXISTS anime_id_sequence (
+    name VARCHAR(64) NOT NULL,
+    next_value BIGINT NOT NULL,
+    PRIMARY KEY (name)
+);
+
+INSERT INTO anime_id_sequence (name, next_value) VALUES ('anime', 1);
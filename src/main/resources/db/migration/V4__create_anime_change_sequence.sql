@@ -0,0 +1 @@
+INSERT INTO anime_id_sequence (name, next_value) VALUES ('anime_change', 1);
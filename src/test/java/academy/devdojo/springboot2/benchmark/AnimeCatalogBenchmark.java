@@ -0,0 +1,124 @@
+package academy.devdojo.springboot2.benchmark;
+
+import academy.devdojo.springboot2.catalog.AnimeCatalogSnapshot;
+import academy.devdojo.springboot2.domain.Anime;
+import academy.devdojo.springboot2.projection.AnimeView;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalog snapshot against the same catalog held as entities in a map. The snapshot reports its retained heap per
+ * row as the bytesPerRow counter; with -prof gc, buildEntities' gc.alloc.rate.norm divided by the row count is the
+ * same figure for entities, since everything it allocates is kept.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AnimeCatalogBenchmark {
+  @Param({"10000", "100000"})
+  private int rows;
+
+  private List<AnimeView> animes;
+  private AnimeCatalogSnapshot snapshot;
+  private Map<Long, Anime> entities;
+
+  @Setup
+  public void setUp() {
+    animes = new ArrayList<>(rows);
+
+    for (long id = 1; id <= rows; id++) {
+      animes.add(new AnimeView(id, "Anime " + id));
+    }
+
+    snapshot = newSnapshot();
+    entities = newEntities();
+  }
+
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class Footprint {
+    public double bytesPerRow;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      bytesPerRow = 0;
+    }
+  }
+
+  @Benchmark
+  public AnimeCatalogSnapshot buildSnapshot(Footprint footprint) {
+    AnimeCatalogSnapshot built = newSnapshot();
+    footprint.bytesPerRow = (double) built.sizeInBytes() / rows;
+
+    return built;
+  }
+
+  @Benchmark
+  public Map<Long, Anime> buildEntities() {
+    return newEntities();
+  }
+
+  @Benchmark
+  public AnimeView snapshotFindById() {
+    return snapshot.findById(ThreadLocalRandom.current().nextLong(1, rows + 1)).orElseThrow();
+  }
+
+  @Benchmark
+  public Anime entitiesFindById() {
+    return entities.get(ThreadLocalRandom.current().nextLong(1, rows + 1));
+  }
+
+  @Benchmark
+  public int snapshotPage() {
+    int page = ThreadLocalRandom.current().nextInt(rows / 100);
+    int length = 0;
+
+    for (AnimeView anime : snapshot.findAll(PageRequest.of(page, 100))) {
+      length += anime.name().length();
+    }
+
+    return length;
+  }
+
+  private AnimeCatalogSnapshot newSnapshot() {
+    AnimeCatalogSnapshot.Builder builder = AnimeCatalogSnapshot.builder(rows);
+
+    for (AnimeView anime : animes) {
+      builder.add(anime.id(), anime.name());
+    }
+
+    return builder.build();
+  }
+
+  private Map<Long, Anime> newEntities() {
+    Map<Long, Anime> built = new HashMap<>(rows * 2);
+
+    for (AnimeView anime : animes) {
+      built.put(anime.id(), Anime.builder().id(anime.id()).name(new String(anime.name())).build());
+    }
+
+    return built;
+  }
+}
@@ -0,0 +1,102 @@
+package academy.devdojo.springboot2.benchmark;
+
+import academy.devdojo.springboot2.Springboot2EssentialsApplication;
+import academy.devdojo.springboot2.domain.Anime;
+import academy.devdojo.springboot2.repository.AnimeRepository;
+import academy.devdojo.springboot2.service.AnimeService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * List endpoint cost with managed entities (the previous path) against read-only projections, including
+ * JSON serialization. Run with -prof gc: gc.alloc.rate.norm is the heap allocated per page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AnimeListBenchmark {
+  private static final int CATALOG_SIZE = 50_000;
+
+  @Param({"100", "1000", "10000"})
+  private int pageSize;
+
+  private ConfigurableApplicationContext context;
+  private AnimeRepository animeRepository;
+  private AnimeService animeService;
+  private ObjectMapper objectMapper;
+  private TransactionTemplate transaction;
+
+  @Setup
+  public void setUp() throws Exception {
+    context = new SpringApplicationBuilder(Springboot2EssentialsApplication.class)
+            .run("--server.port=0",
+                    "--devdojo.grpc.port=0",
+                    "--spring.datasource.url=jdbc:h2:mem:list-benchmark;DB_CLOSE_ON_EXIT=FALSE;DB_CLOSE_DELAY=-1",
+                    "--spring.datasource.driver-class-name=org.h2.Driver",
+                    "--spring.datasource.username=sa",
+                    "--spring.datasource.password=",
+                    "--spring.jpa.show-sql=false",
+                    "--spring.jpa.properties.hibernate.generate_statistics=false",
+                    "--spring.jpa.properties.hibernate.cache.use_query_cache=false",
+                    "--logging.level.root=warn",
+                    "--logging.level.org.hibernate.SQL=warn",
+                    "--devdojo.search.index-path=" + Files.createTempDirectory("anime-index"),
+                    "--devdojo.search.rebuild-on-startup=false",
+                    "--devdojo.warmup.enabled=false");
+    animeRepository = context.getBean(AnimeRepository.class);
+    animeService = context.getBean(AnimeService.class);
+    objectMapper = context.getBean(ObjectMapper.class);
+    transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+    List<Object[]> names = new ArrayList<>();
+
+    for (int i = 0; i < CATALOG_SIZE; i++) {
+      names.add(new Object[]{"Anime " + i});
+    }
+
+    context.getBean(JdbcTemplate.class).batchUpdate("insert into anime (name) values (?)", names);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public byte[] managedEntities() throws Exception {
+    Page<Anime> page = transaction.execute(status -> animeRepository.findAll(PageRequest.of(0, pageSize)));
+
+    return objectMapper.writeValueAsBytes(page);
+  }
+
+  @Benchmark
+  public byte[] readOnlyProjections() throws Exception {
+    return objectMapper.writeValueAsBytes(animeService.listAll(PageRequest.of(0, pageSize)));
+  }
+}
@@ -0,0 +1,199 @@
+package academy.devdojo.springboot2.bulk;
+
+import academy.devdojo.springboot2.datasource.ShardingProperties;
+import academy.devdojo.springboot2.domain.Anime;
+import academy.devdojo.springboot2.event.AnimeChangedEvent;
+import academy.devdojo.springboot2.event.AnimesChangedEvent;
+import academy.devdojo.springboot2.exception.BadRequestException;
+import academy.devdojo.springboot2.repository.AnimeRepository;
+import academy.devdojo.springboot2.shard.AnimeIdAllocator;
+import academy.devdojo.springboot2.shard.AnimeShards;
+import academy.devdojo.springboot2.sync.AnimeChangeLogProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+@DisplayName("Tests for Anime Importer")
+class AnimeImporterTest {
+  private final List<List<String>> savedBatches = new ArrayList<>();
+  private AnimeRepository animeRepositoryMock;
+  private ApplicationEventPublisher applicationEventPublisherMock;
+  private AnimeImporter animeImporter;
+
+  @BeforeEach
+  void setUp() {
+    animeRepositoryMock = Mockito.mock(AnimeRepository.class);
+    applicationEventPublisherMock = Mockito.mock(ApplicationEventPublisher.class);
+    AnimeImportProperties properties = new AnimeImportProperties();
+    properties.setBatchSize(2);
+
+    animeImporter = new AnimeImporter(properties, new AnimeChangeLogProperties(), animeRepositoryMock,
+            Mockito.mock(PlatformTransactionManager.class),
+            Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(),
+            applicationEventPublisherMock, new AnimeShards(new ShardingProperties(),
+            Mockito.mock(PlatformTransactionManager.class), null, null));
+
+    BDDMockito.when(animeRepositoryMock.saveAll(ArgumentMatchers.<List<Anime>>any())).thenAnswer(invocation -> {
+      List<Anime> batch = invocation.getArgument(0);
+      savedBatches.add(batch.stream().map(Anime::getName).toList());
+      return batch;
+    });
+  }
+
+  @Test
+  @DisplayName("Import animes saves valid CSV lines in batches and reports rejected line numbers")
+  void importAnimes_SavesValidCsvLinesInBatchesAndReportsRejectedLineNumbers() {
+    AnimeImportSummary summary = animeImporter.importAnimes(
+            body("id,name\n1,Overlord\n2,\n3,\"Boku no Hero, Academia\"\n4,Berserk\n"), AnimeImportFormat.CSV, 0);
+
+    Assertions.assertThat(savedBatches).containsExactly(
+            List.of("Overlord", "Boku no Hero, Academia"),
+            List.of("Berserk"));
+    Assertions.assertThat(summary.accepted()).isEqualTo(3);
+    Assertions.assertThat(summary.rejected()).isEqualTo(1);
+    Assertions.assertThat(summary.rejections())
+            .containsExactly(new AnimeImportSummary.Rejection(3, "The anime name cannot be blank or null"));
+    Assertions.assertThat(summary.lastCommittedLine()).isEqualTo(5);
+    Assertions.assertThat(summary.completed()).isTrue();
+  }
+
+  @Test
+  @DisplayName("Import animes publishes one change event per committed batch")
+  void importAnimes_PublishesOneChangeEventPerCommittedBatch() {
+    animeImporter.importAnimes(body("name\nOverlord\nBerserk\nMonster\n"), AnimeImportFormat.CSV, 0);
+
+    ArgumentCaptor<AnimesChangedEvent> captor = ArgumentCaptor.forClass(AnimesChangedEvent.class);
+    BDDMockito.verify(applicationEventPublisherMock, Mockito.times(2)).publishEvent(captor.capture());
+
+    Assertions.assertThat(captor.getAllValues())
+            .extracting(event -> event.changes().stream().map(change -> change.anime().getName()).toList())
+            .containsExactly(List.of("Overlord", "Berserk"), List.of("Monster"));
+    Assertions.assertThat(captor.getAllValues()).flatExtracting(AnimesChangedEvent::changes)
+            .extracting(AnimeChangedEvent::type)
+            .containsOnly(AnimeChangedEvent.Type.CREATED);
+  }
+
+  @Test
+  @DisplayName("Import animes rejects malformed NDJSON lines when successful")
+  void importAnimes_RejectsMalformedNdjsonLines_WhenSuccessful() {
+    AnimeImportSummary summary = animeImporter.importAnimes(
+            body("{\"name\":\"Overlord\"}\n{\"name\":\n\n{\"name\":\"Berserk\"}\n"), AnimeImportFormat.NDJSON, 0);
+
+    Assertions.assertThat(savedBatches).containsExactly(List.of("Overlord", "Berserk"));
+    Assertions.assertThat(summary.rejections()).extracting(AnimeImportSummary.Rejection::line).containsExactly(2L);
+  }
+
+  @Test
+  @DisplayName("Import animes skips lines already committed when resuming")
+  void importAnimes_SkipsLinesAlreadyCommitted_WhenResuming() {
+    AnimeImportSummary summary = animeImporter.importAnimes(
+            body("name\nOverlord\nBerserk\nNaruto\n"), AnimeImportFormat.CSV, 3);
+
+    Assertions.assertThat(savedBatches).containsExactly(List.of("Naruto"));
+    Assertions.assertThat(summary.accepted()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Import animes reports the last committed line when a batch fails")
+  void importAnimes_ReportsLastCommittedLine_WhenABatchFails() {
+    BDDMockito.willAnswer(invocation -> invocation.getArgument(0))
+            .willThrow(new DataAccessResourceFailureException("Connection lost"))
+            .given(animeRepositoryMock).saveAll(ArgumentMatchers.<List<Anime>>any());
+
+    AnimeImportSummary summary = animeImporter.importAnimes(
+            body("name\nOverlord\nBerserk\nNaruto\nBleach\n"), AnimeImportFormat.CSV, 0);
+
+    Assertions.assertThat(summary.completed()).isFalse();
+    Assertions.assertThat(summary.accepted()).isEqualTo(2);
+    Assertions.assertThat(summary.lastCommittedLine()).isEqualTo(3);
+    Assertions.assertThat(summary.error()).isEqualTo("Connection lost");
+  }
+
+  @Test
+  @DisplayName("Import animes reports the lines saved on earlier shards when a later shard of the batch fails")
+  void importAnimes_ReportsTheLinesSavedOnEarlierShards_WhenALaterShardOfTheBatchFails() {
+    AnimeShards animeShards = shardedAnimeShards();
+    int failingShard = LongStream.rangeClosed(1, 6).mapToInt(animeShards::shardOf).distinct().sorted()
+            .skip(1).findFirst().orElseThrow();
+    BDDMockito.when(animeRepositoryMock.insertWithId(ArgumentMatchers.any(Anime.class))).thenAnswer(invocation -> {
+      Anime anime = invocation.getArgument(0);
+
+      if (animeShards.shardOf(anime.getId()) == failingShard) {
+        throw new DataAccessResourceFailureException("Shard down");
+      }
+
+      return anime;
+    });
+
+    AnimeImportSummary summary = shardedImporter(animeShards).importAnimes(
+            body("name\nOverlord\nBerserk\nNaruto\nBleach\nMonster\nAkira\n"), AnimeImportFormat.CSV, 0);
+
+    // Ids are handed out in line order from 1, after the header line
+    List<Long> savedLines = LongStream.rangeClosed(1, 6)
+            .filter(id -> animeShards.shardOf(id) < failingShard)
+            .mapToObj(id -> id + 1)
+            .toList();
+    Assertions.assertThat(savedLines).isNotEmpty();
+    Assertions.assertThat(summary.completed()).isFalse();
+    Assertions.assertThat(summary.lastCommittedLine()).isZero();
+    Assertions.assertThat(summary.savedLines()).isEqualTo(savedLines);
+    Assertions.assertThat(summary.accepted()).isEqualTo(savedLines.size());
+  }
+
+  @Test
+  @DisplayName("Import animes throws bad request exception when resuming with sharded storage")
+  void importAnimes_ThrowsBadRequestException_WhenResumingWithShardedStorage() {
+    AnimeImporter shardedImporter = shardedImporter(shardedAnimeShards());
+
+    Assertions.assertThatExceptionOfType(BadRequestException.class)
+            .isThrownBy(() -> shardedImporter.importAnimes(body("name\nOverlord\n"), AnimeImportFormat.CSV, 1));
+    BDDMockito.verifyNoInteractions(animeRepositoryMock);
+  }
+
+  @Test
+  @DisplayName("Import animes throws bad request exception when CSV header has no name column")
+  void importAnimes_ThrowsBadRequestException_WhenCsvHeaderHasNoNameColumn() {
+    Assertions.assertThatExceptionOfType(BadRequestException.class)
+            .isThrownBy(() -> animeImporter.importAnimes(body("title\nOverlord\n"), AnimeImportFormat.CSV, 0));
+  }
+
+  private AnimeShards shardedAnimeShards() {
+    ShardingProperties shardingProperties = new ShardingProperties();
+    shardingProperties.setEnabled(true);
+    shardingProperties.setShards(List.of(new ShardingProperties.Shard(), new ShardingProperties.Shard()));
+    AnimeIdAllocator idAllocatorMock = Mockito.mock(AnimeIdAllocator.class);
+    BDDMockito.when(idAllocatorMock.allocate()).thenReturn(1L, 2L, 3L, 4L, 5L, 6L);
+
+    return new AnimeShards(shardingProperties, Mockito.mock(PlatformTransactionManager.class), idAllocatorMock, null);
+  }
+
+  private AnimeImporter shardedImporter(AnimeShards animeShards) {
+    AnimeImportProperties properties = new AnimeImportProperties();
+    properties.setBatchSize(10);
+
+    return new AnimeImporter(properties, new AnimeChangeLogProperties(), animeRepositoryMock,
+            Mockito.mock(PlatformTransactionManager.class), Validation.buildDefaultValidatorFactory().getValidator(),
+            new ObjectMapper(), applicationEventPublisherMock, animeShards);
+  }
+
+  private static InputStream body(String content) {
+    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+  }
+}
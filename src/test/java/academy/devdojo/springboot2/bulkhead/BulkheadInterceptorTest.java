@@ -0,0 +1,116 @@
+package academy.devdojo.springboot2.bulkhead;
+
+import academy.devdojo.springboot2.controller.AnimeController;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.method.HandlerMethod;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+@DisplayName("Tests for Bulkhead Interceptor")
+class BulkheadInterceptorTest {
+  private BulkheadInterceptor interceptor;
+
+  @BeforeEach
+  void setUp() {
+    BulkheadProperties properties = new BulkheadProperties();
+    properties.getBudgets().put(BulkheadType.READ, budget(1));
+    properties.getBudgets().put(BulkheadType.WRITE, budget(1));
+    interceptor = new BulkheadInterceptor(properties, new ObjectMapper().registerModule(new JavaTimeModule()),
+            new SimpleMeterRegistry());
+  }
+
+  @Test
+  @DisplayName("Pre handle runs handlers within the bulkhead of the method, else of the controller")
+  void preHandle_RunsHandlersWithinTheBulkheadOfTheMethodElseOfTheController() throws Exception {
+    MockHttpServletRequest save = new MockHttpServletRequest();
+    MockHttpServletRequest list = new MockHttpServletRequest();
+
+    Assertions.assertThat(interceptor.preHandle(save, new MockHttpServletResponse(), handler("save"))).isTrue();
+    Assertions.assertThat(interceptor.preHandle(list, new MockHttpServletResponse(), handler("list"))).isTrue();
+
+    Assertions.assertThat(interceptor.bulkhead(BulkheadType.WRITE).getInFlight()).isEqualTo(1);
+    Assertions.assertThat(interceptor.bulkhead(BulkheadType.READ).getInFlight()).isEqualTo(1);
+
+    interceptor.afterCompletion(save, new MockHttpServletResponse(), handler("save"), null);
+
+    Assertions.assertThat(interceptor.bulkhead(BulkheadType.WRITE).getInFlight()).isZero();
+  }
+
+  @Test
+  @DisplayName("Pre handle rejects with 503 when the bulkhead is full and keeps the other bulkheads open")
+  void preHandle_RejectsWith503_WhenTheBulkheadIsFullAndKeepsTheOtherBulkheadsOpen() throws Exception {
+    interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), handler("save"));
+    MockHttpServletResponse rejected = new MockHttpServletResponse();
+
+    Assertions.assertThat(interceptor.preHandle(new MockHttpServletRequest(), rejected, handler("replace"))).isFalse();
+    Assertions.assertThat(rejected.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+    Assertions.assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+    Assertions.assertThat(rejected.getContentAsString()).contains("The write bulkhead has all of its 1 permits in use");
+    Assertions.assertThat(interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(),
+            handler("list"))).isTrue();
+  }
+
+  @Test
+  @DisplayName("Pre handle does not limit handlers of bulkheads without a budget")
+  void preHandle_DoesNotLimitHandlersOfBulkheadsWithoutABudget() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      Assertions.assertThat(interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(),
+              handler("delete"))).isTrue();
+    }
+  }
+
+  @Test
+  @DisplayName("Release permit gives the permit of the current request back until it is reacquired")
+  void releasePermit_GivesThePermitOfTheCurrentRequestBack_UntilItIsReacquired() throws Exception {
+    MockHttpServletRequest save = new MockHttpServletRequest();
+    interceptor.preHandle(save, new MockHttpServletResponse(), handler("save"));
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(save));
+
+    try {
+      BulkheadInterceptor.releasePermit();
+
+      Assertions.assertThat(interceptor.bulkhead(BulkheadType.WRITE).getInFlight()).isZero();
+      Assertions.assertThat(BulkheadInterceptor.reacquirePermit()).isTrue();
+      Assertions.assertThat(interceptor.bulkhead(BulkheadType.WRITE).getInFlight()).isEqualTo(1);
+
+      interceptor.afterCompletion(save, new MockHttpServletResponse(), handler("save"), null);
+
+      Assertions.assertThat(interceptor.bulkhead(BulkheadType.WRITE).getInFlight()).isZero();
+    } finally {
+      RequestContextHolder.resetRequestAttributes();
+    }
+  }
+
+  private static HandlerMethod handler(String method) {
+    AnimeController controller = Mockito.mock(AnimeController.class);
+
+    return Arrays.stream(AnimeController.class.getMethods())
+            .filter(candidate -> candidate.getName().equals(method))
+            .findFirst()
+            .map(candidate -> new HandlerMethod(controller, candidate))
+            .orElseThrow();
+  }
+
+  private static BulkheadProperties.Budget budget(int maxConcurrent) {
+    BulkheadProperties.Budget budget = new BulkheadProperties.Budget();
+    budget.setMaxConcurrent(maxConcurrent);
+    budget.setMaxQueued(0);
+    budget.setMaxWait(Duration.ZERO);
+
+    return budget;
+  }
+}
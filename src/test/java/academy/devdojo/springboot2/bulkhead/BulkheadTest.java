@@ -0,0 +1,106 @@
+package academy.devdojo.springboot2.bulkhead;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+@DisplayName("Tests for Bulkhead")
+class BulkheadTest {
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+  @AfterEach
+  void tearDown() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  @DisplayName("Try acquire admits requests up to the max concurrent and reports the saturation")
+  void tryAcquire_AdmitsRequestsUpToTheMaxConcurrentAndReportsTheSaturation() throws InterruptedException {
+    Bulkhead bulkhead = bulkhead(2, 0, Duration.ZERO);
+
+    Assertions.assertThat(bulkhead.tryAcquire()).isTrue();
+    Assertions.assertThat(meterRegistry.get("http.bulkhead.saturation").tag("bulkhead", "write").gauge().value())
+            .isEqualTo(0.5);
+    Assertions.assertThat(bulkhead.tryAcquire()).isTrue();
+    Assertions.assertThat(bulkhead.tryAcquire()).isFalse();
+    Assertions.assertThat(bulkhead.getSaturation()).isEqualTo(1);
+    Assertions.assertThat(rejected()).isEqualTo(1);
+
+    bulkhead.release();
+
+    Assertions.assertThat(bulkhead.tryAcquire()).isTrue();
+  }
+
+  @Test
+  @DisplayName("Try acquire waits for a permit released within the max wait")
+  void tryAcquire_WaitsForAPermitReleasedWithinTheMaxWait() throws Exception {
+    Bulkhead bulkhead = bulkhead(1, 1, Duration.ofSeconds(5));
+    bulkhead.tryAcquire();
+
+    Future<Boolean> waiting = executorService.submit(bulkhead::tryAcquire);
+    awaitQueued(bulkhead);
+    bulkhead.release();
+
+    Assertions.assertThat(waiting.get(5, TimeUnit.SECONDS)).isTrue();
+    Assertions.assertThat(bulkhead.getQueued()).isZero();
+  }
+
+  @Test
+  @DisplayName("Try acquire rejects at once when the queue is full")
+  void tryAcquire_RejectsAtOnce_WhenTheQueueIsFull() throws Exception {
+    Bulkhead bulkhead = bulkhead(1, 1, Duration.ofSeconds(5));
+    bulkhead.tryAcquire();
+    Future<Boolean> waiting = executorService.submit(bulkhead::tryAcquire);
+    awaitQueued(bulkhead);
+
+    long started = System.nanoTime();
+
+    Assertions.assertThat(bulkhead.tryAcquire()).isFalse();
+    Assertions.assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(1));
+    Assertions.assertThat(rejected()).isEqualTo(1);
+
+    bulkhead.release();
+    Assertions.assertThat(waiting.get(5, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test
+  @DisplayName("Try acquire rejects when no permit is released within the max wait")
+  void tryAcquire_Rejects_WhenNoPermitIsReleasedWithinTheMaxWait() throws InterruptedException {
+    Bulkhead bulkhead = bulkhead(1, 1, Duration.ofMillis(20));
+    bulkhead.tryAcquire();
+
+    Assertions.assertThat(bulkhead.tryAcquire()).isFalse();
+    Assertions.assertThat(bulkhead.getQueued()).isZero();
+    Assertions.assertThat(rejected()).isEqualTo(1);
+  }
+
+  private Bulkhead bulkhead(int maxConcurrent, int maxQueued, Duration maxWait) {
+    BulkheadProperties.Budget budget = new BulkheadProperties.Budget();
+    budget.setMaxConcurrent(maxConcurrent);
+    budget.setMaxQueued(maxQueued);
+    budget.setMaxWait(maxWait);
+
+    return new Bulkhead(BulkheadType.WRITE, budget, meterRegistry);
+  }
+
+  private double rejected() {
+    return meterRegistry.get("http.bulkhead.rejected").tag("bulkhead", "write").counter().count();
+  }
+
+  private static void awaitQueued(Bulkhead bulkhead) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+    while (bulkhead.getQueued() == 0 && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+  }
+}
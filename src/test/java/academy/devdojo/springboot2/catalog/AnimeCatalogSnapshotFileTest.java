@@ -0,0 +1,108 @@
+package academy.devdojo.springboot2.catalog;
+
+import academy.devdojo.springboot2.projection.AnimeView;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+@DisplayName("Tests for Anime Catalog Snapshot File")
+class AnimeCatalogSnapshotFileTest {
+  private static final Instant WRITTEN_AT = Instant.parse("2026-10-19T10:00:00Z");
+
+  private final AnimeCatalogSnapshot snapshot = AnimeCatalogSnapshot.of(List.of(
+          new AnimeView(1L, "Hajime no Ippo"),
+          new AnimeView(2L, "進撃の巨人"),
+          new AnimeView(5L, "Naruto")));
+
+  @TempDir
+  private Path directory;
+
+  @Test
+  @DisplayName("Read returns the written snapshot when the file is intact and recent")
+  void read_ReturnsTheWrittenSnapshot_WhenTheFileIsIntactAndRecent() throws IOException {
+    Path file = directory.resolve("catalog.snapshot");
+
+    AnimeCatalogSnapshotFile.write(snapshot, file, WRITTEN_AT);
+    AnimeCatalogSnapshot read = AnimeCatalogSnapshotFile.read(file, WRITTEN_AT.minus(Duration.ofHours(1)));
+
+    Assertions.assertThat(read.findAll()).containsExactlyElementsOf(snapshot.findAll());
+    Assertions.assertThat(Files.exists(directory.resolve("catalog.snapshot.tmp"))).isFalse();
+  }
+
+  @Test
+  @DisplayName("Read throws no such file exception when there is no snapshot file")
+  void read_ThrowsNoSuchFileException_WhenThereIsNoSnapshotFile() {
+    Assertions.assertThatExceptionOfType(NoSuchFileException.class)
+            .isThrownBy(() -> AnimeCatalogSnapshotFile.read(directory.resolve("missing"), WRITTEN_AT));
+  }
+
+  @Test
+  @DisplayName("Read throws io exception when the snapshot file is stale")
+  void read_ThrowsIOException_WhenTheSnapshotFileIsStale() throws IOException {
+    Path file = directory.resolve("catalog.snapshot");
+    AnimeCatalogSnapshotFile.write(snapshot, file, WRITTEN_AT);
+
+    Assertions.assertThatIOException()
+            .isThrownBy(() -> AnimeCatalogSnapshotFile.read(file, WRITTEN_AT.plusSeconds(1)))
+            .withMessageStartingWith("Stale");
+  }
+
+  @Test
+  @DisplayName("Read throws io exception when a byte of the snapshot file is corrupt")
+  void read_ThrowsIOException_WhenAByteOfTheSnapshotFileIsCorrupt() throws IOException {
+    Path file = directory.resolve("catalog.snapshot");
+    AnimeCatalogSnapshotFile.write(snapshot, file, WRITTEN_AT);
+
+    try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+      raw.seek(raw.length() - 3);
+      int original = raw.read();
+      raw.seek(raw.length() - 3);
+      raw.write(original ^ 0x01);
+    }
+
+    Assertions.assertThatIOException()
+            .isThrownBy(() -> AnimeCatalogSnapshotFile.read(file, WRITTEN_AT))
+            .withMessage("Checksum mismatch");
+  }
+
+  @Test
+  @DisplayName("Read throws io exception when the snapshot file is truncated")
+  void read_ThrowsIOException_WhenTheSnapshotFileIsTruncated() throws IOException {
+    Path file = directory.resolve("catalog.snapshot");
+    AnimeCatalogSnapshotFile.write(snapshot, file, WRITTEN_AT);
+
+    try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+      raw.setLength(raw.length() - 1);
+    }
+
+    Assertions.assertThatIOException()
+            .isThrownBy(() -> AnimeCatalogSnapshotFile.read(file, WRITTEN_AT))
+            .withMessage("Size does not match the header");
+  }
+
+  @Test
+  @DisplayName("Read throws io exception when the snapshot file has another format version")
+  void read_ThrowsIOException_WhenTheSnapshotFileHasAnotherFormatVersion() throws IOException {
+    Path file = directory.resolve("catalog.snapshot");
+    AnimeCatalogSnapshotFile.write(snapshot, file, WRITTEN_AT);
+
+    try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+      raw.seek(Long.BYTES);
+      raw.writeInt(AnimeCatalogSnapshotFile.VERSION + 1);
+    }
+
+    Assertions.assertThatIOException()
+            .isThrownBy(() -> AnimeCatalogSnapshotFile.read(file, WRITTEN_AT))
+            .withMessageStartingWith("Unsupported format version");
+  }
+}
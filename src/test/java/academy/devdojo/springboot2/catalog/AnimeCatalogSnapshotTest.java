@@ -0,0 +1,105 @@
+package academy.devdojo.springboot2.catalog;
+
+import academy.devdojo.springboot2.projection.AnimeView;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+@DisplayName("Tests for Anime Catalog Snapshot")
+class AnimeCatalogSnapshotTest {
+  private final AnimeCatalogSnapshot snapshot = AnimeCatalogSnapshot.of(List.of(
+          new AnimeView(30L, "Naruto"),
+          new AnimeView(10L, "Hajime no Ippo"),
+          new AnimeView(20L, "進撃の巨人")));
+
+  @Test
+  @DisplayName("Find by id returns anime with its multi byte name when successful")
+  void findById_ReturnsAnimeWithMultiByteName_WhenSuccessful() {
+    Assertions.assertThat(snapshot.findById(20L)).contains(new AnimeView(20L, "進撃の巨人"));
+    Assertions.assertThat(snapshot.findById(15L)).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Find all returns page in id order when successful")
+  void findAll_ReturnsPageInIdOrder_WhenSuccessful() {
+    Page<AnimeView> page = snapshot.findAll(PageRequest.of(1, 2));
+
+    Assertions.assertThat(page.getContent()).containsExactly(new AnimeView(30L, "Naruto"));
+    Assertions.assertThat(page.getTotalElements()).isEqualTo(3);
+    Assertions.assertThat(snapshot.findAll(PageRequest.of(5, 2)).getContent()).isEmpty();
+    Assertions.assertThat(snapshot.findAll()).extracting(AnimeView::id).containsExactly(10L, 20L, 30L);
+  }
+
+  @Test
+  @DisplayName("Find after returns up to the limit of animes after the id in id order")
+  void findAfter_ReturnsUpToTheLimitOfAnimesAfterTheIdInIdOrder() {
+    Assertions.assertThat(snapshot.findAfter(0L, 2)).extracting(AnimeView::id).containsExactly(10L, 20L);
+    Assertions.assertThat(snapshot.findAfter(10L, 5)).extracting(AnimeView::id).containsExactly(20L, 30L);
+    Assertions.assertThat(snapshot.findAfter(25L, 5)).extracting(AnimeView::id).containsExactly(30L);
+    Assertions.assertThat(snapshot.findAfter(30L, 5)).isEmpty();
+  }
+
+  @Test
+  @DisplayName("With returns new snapshot and leaves the original untouched when anime is inserted or replaced")
+  void with_ReturnsNewSnapshotAndLeavesTheOriginalUntouched_WhenAnimeIsInsertedOrReplaced() {
+    AnimeCatalogSnapshot changed = snapshot
+            .with(15L, "Berserk")
+            .with(20L, "Shingeki no Kyojin")
+            .with(40L, "One Piece");
+
+    Assertions.assertThat(changed.findAll()).containsExactly(
+            new AnimeView(10L, "Hajime no Ippo"),
+            new AnimeView(15L, "Berserk"),
+            new AnimeView(20L, "Shingeki no Kyojin"),
+            new AnimeView(30L, "Naruto"),
+            new AnimeView(40L, "One Piece"));
+    Assertions.assertThat(snapshot.findAll()).containsExactly(
+            new AnimeView(10L, "Hajime no Ippo"),
+            new AnimeView(20L, "進撃の巨人"),
+            new AnimeView(30L, "Naruto"));
+  }
+
+  @Test
+  @DisplayName("Without returns snapshot without the anime when anime is removed")
+  void without_ReturnsSnapshotWithoutTheAnime_WhenAnimeIsRemoved() {
+    AnimeCatalogSnapshot changed = snapshot.without(20L).without(99L).without(10L);
+
+    Assertions.assertThat(changed.findAll()).containsExactly(new AnimeView(30L, "Naruto"));
+    Assertions.assertThat(changed.without(30L).size()).isZero();
+    Assertions.assertThat(snapshot.size()).isEqualTo(3);
+  }
+
+  @Test
+  @DisplayName("With changes inserts, replaces and removes animes in one pass when changes are batched")
+  void withChanges_InsertsReplacesAndRemovesAnimesInOnePass_WhenChangesAreBatched() {
+    SortedMap<Long, String> changes = new TreeMap<>();
+    changes.put(5L, "Berserk");
+    changes.put(10L, null);
+    changes.put(20L, "Shingeki no Kyojin");
+    changes.put(25L, null);
+    changes.put(40L, "One Piece");
+
+    Assertions.assertThat(snapshot.withChanges(changes).findAll()).containsExactly(
+            new AnimeView(5L, "Berserk"),
+            new AnimeView(20L, "Shingeki no Kyojin"),
+            new AnimeView(30L, "Naruto"),
+            new AnimeView(40L, "One Piece"));
+    Assertions.assertThat(snapshot.withChanges(new TreeMap<>())).isSameAs(snapshot);
+    Assertions.assertThat(snapshot.size()).isEqualTo(3);
+  }
+
+  @Test
+  @DisplayName("Builder throws illegal argument exception when ids are not ascending")
+  void builder_ThrowsIllegalArgumentException_WhenIdsAreNotAscending() {
+    AnimeCatalogSnapshot.Builder builder = AnimeCatalogSnapshot.builder(2).add(2L, "Naruto");
+
+    Assertions.assertThatIllegalArgumentException()
+            .isThrownBy(() -> builder.add(1L, "Berserk"));
+  }
+}
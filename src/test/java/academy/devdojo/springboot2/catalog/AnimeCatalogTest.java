@@ -0,0 +1,126 @@
+package academy.devdojo.springboot2.catalog;
+
+import academy.devdojo.springboot2.datasource.ShardingProperties;
+import academy.devdojo.springboot2.domain.Anime;
+import academy.devdojo.springboot2.event.AnimeChangedEvent;
+import academy.devdojo.springboot2.projection.AnimeView;
+import academy.devdojo.springboot2.repository.AnimeRepository;
+import academy.devdojo.springboot2.shard.AnimeShards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@DisplayName("Tests for Anime Catalog")
+class AnimeCatalogTest {
+  private final Clock clock = Clock.fixed(Instant.parse("2026-10-19T10:00:00Z"), ZoneOffset.UTC);
+  private final AnimeRepository animeRepositoryMock = Mockito.mock(AnimeRepository.class);
+  private final AnimeCatalogProperties properties = new AnimeCatalogProperties();
+  private final CountDownLatch scanStarted = new CountDownLatch(1);
+  private final CountDownLatch databaseAvailable = new CountDownLatch(1);
+  private AnimeCatalog catalog;
+
+  @TempDir
+  private Path directory;
+
+  @BeforeEach
+  void setUp() {
+    properties.setEnabled(true);
+    properties.getSnapshotFile().setPath(directory.resolve("catalog.snapshot"));
+
+    BDDMockito.when(animeRepositoryMock.count()).thenReturn(2L);
+    BDDMockito.when(animeRepositoryMock.streamAllViewsOrderById()).thenAnswer(invocation -> {
+      scanStarted.countDown();
+      databaseAvailable.await();
+      return Stream.of(new AnimeView(1L, "Hajime no Ippo"), new AnimeView(3L, "Berserk"));
+    });
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    databaseAvailable.countDown();
+
+    if (catalog != null) {
+      catalog.destroy();
+    }
+  }
+
+  @Test
+  @DisplayName("After properties set serves the snapshot file and catches up in the background when the file is intact")
+  void afterPropertiesSet_ServesTheSnapshotFileAndCatchesUpInTheBackground_WhenTheFileIsIntact() throws Exception {
+    AnimeCatalogSnapshotFile.write(AnimeCatalogSnapshot.of(List.of(new AnimeView(1L, "Hajime no Ippo"),
+            new AnimeView(2L, "Naruto"))), properties.getSnapshotFile().getPath(), clock.instant());
+
+    catalog = newCatalog();
+    catalog.afterPropertiesSet();
+
+    Assertions.assertThat(catalog.snapshot().orElseThrow().findAll()).extracting(AnimeView::id).containsExactly(1L, 2L);
+
+    // Committed while the catch-up scan is running, so it is not in the scan results
+    Assertions.assertThat(scanStarted.await(5, TimeUnit.SECONDS)).isTrue();
+    catalog.onAnimeChanged(new AnimeChangedEvent(AnimeChangedEvent.Type.CREATED,
+            Anime.builder().id(4L).name("Overlord").build()));
+    databaseAvailable.countDown();
+
+    awaitCatalogIds(1L, 3L, 4L);
+  }
+
+  @Test
+  @DisplayName("After properties set ignores the snapshot file and loads from the database when the file is corrupt")
+  void afterPropertiesSet_IgnoresTheSnapshotFileAndLoadsFromTheDatabase_WhenTheFileIsCorrupt() throws IOException {
+    Files.write(properties.getSnapshotFile().getPath(), new byte[]{1, 2, 3});
+    databaseAvailable.countDown();
+
+    catalog = newCatalog();
+    catalog.afterPropertiesSet();
+
+    Assertions.assertThat(catalog.snapshot().orElseThrow().findAll()).extracting(AnimeView::id).containsExactly(1L, 3L);
+  }
+
+  @Test
+  @DisplayName("Destroy writes the snapshot file that the next start serves when successful")
+  void destroy_WritesTheSnapshotFileThatTheNextStartServes_WhenSuccessful() throws Exception {
+    databaseAvailable.countDown();
+    catalog = newCatalog();
+    catalog.afterPropertiesSet();
+
+    catalog.destroy();
+
+    AnimeCatalogSnapshot read = AnimeCatalogSnapshotFile.read(properties.getSnapshotFile().getPath(), clock.instant());
+    Assertions.assertThat(read.findAll()).extracting(AnimeView::id).containsExactly(1L, 3L);
+  }
+
+  private AnimeCatalog newCatalog() {
+    return new AnimeCatalog(properties, animeRepositoryMock, new AnimeShards(new ShardingProperties(),
+            Mockito.mock(PlatformTransactionManager.class), null, null), Mockito.mock(PlatformTransactionManager.class),
+            new SimpleMeterRegistry(), clock);
+  }
+
+  private void awaitCatalogIds(Long... ids) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+    while (!catalog.snapshot().orElseThrow().findAll().stream().map(AnimeView::id).toList().equals(List.of(ids))
+            && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+
+    Assertions.assertThat(catalog.snapshot().orElseThrow().findAll()).extracting(AnimeView::id).containsExactly(ids);
+  }
+}
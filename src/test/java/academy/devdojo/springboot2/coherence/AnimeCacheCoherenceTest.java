@@ -0,0 +1,76 @@
+package academy.devdojo.springboot2.coherence;
+
+import academy.devdojo.springboot2.catalog.AnimeCatalog;
+import academy.devdojo.springboot2.domain.Anime;
+import academy.devdojo.springboot2.domain.AnimeChange;
+import academy.devdojo.springboot2.event.AnimeChangedEvent;
+import academy.devdojo.springboot2.search.AnimeSearchIndex;
+import academy.devdojo.springboot2.sync.AnimeChangeLog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+@DisplayName("Tests for Anime Cache Coherence")
+class AnimeCacheCoherenceTest {
+  private static final Instant NOW = Instant.parse("2024-01-10T10:00:00Z");
+
+  private final AnimeChangeLog animeChangeLogMock = Mockito.mock(AnimeChangeLog.class);
+  private final EntityManagerFactory entityManagerFactoryMock = Mockito.mock(EntityManagerFactory.class);
+  private final Cache entityCacheMock = Mockito.mock(Cache.class);
+  private final org.hibernate.Cache hibernateCacheMock = Mockito.mock(org.hibernate.Cache.class);
+  private final AnimeSearchIndex animeSearchIndexMock = Mockito.mock(AnimeSearchIndex.class);
+  private final AnimeCatalog animeCatalogMock = Mockito.mock(AnimeCatalog.class);
+  private AnimeCacheCoherence animeCacheCoherence;
+
+  @BeforeEach
+  void setUp() {
+    SessionFactory sessionFactoryMock = Mockito.mock(SessionFactory.class);
+    BDDMockito.when(entityManagerFactoryMock.getCache()).thenReturn(entityCacheMock);
+    BDDMockito.when(entityManagerFactoryMock.unwrap(SessionFactory.class)).thenReturn(sessionFactoryMock);
+    BDDMockito.when(sessionFactoryMock.getCache()).thenReturn(hibernateCacheMock);
+
+    animeCacheCoherence = new AnimeCacheCoherence(new CacheCoherenceProperties(), animeChangeLogMock,
+            entityManagerFactoryMock, animeSearchIndexMock, animeCatalogMock, new SimpleMeterRegistry(),
+            Clock.fixed(NOW, ZoneOffset.UTC));
+  }
+
+  @Test
+  @DisplayName("Poll applies unsettled changes once and evicts query regions only when something new was applied")
+  void poll_AppliesUnsettledChangesOnce_AndEvictsQueryRegionsOnlyWhenSomethingNewWasApplied() {
+    AnimeChange settled = change(1L, 10L, NOW.minusSeconds(60));
+    AnimeChange unsettled = change(3L, 30L, NOW);
+    BDDMockito.when(animeChangeLogMock.changesAfter(ArgumentMatchers.eq(0L), ArgumentMatchers.anyInt()))
+            .thenReturn(List.of(settled, unsettled));
+    BDDMockito.when(animeChangeLogMock.changesAfter(ArgumentMatchers.eq(1L), ArgumentMatchers.anyInt()))
+            .thenReturn(List.of(unsettled))
+            .thenReturn(List.of(change(2L, 20L, NOW), unsettled));
+
+    Assertions.assertThat(animeCacheCoherence.poll()).isEqualTo(2);
+    Assertions.assertThat(animeCacheCoherence.getWatermark()).isEqualTo(1L);
+    Assertions.assertThat(animeCacheCoherence.poll()).isZero();
+    Assertions.assertThat(animeCacheCoherence.poll()).isEqualTo(1);
+
+    BDDMockito.verify(entityCacheMock, Mockito.times(1)).evict(Anime.class, 30L);
+    BDDMockito.verify(entityCacheMock, Mockito.times(1)).evict(Anime.class, 20L);
+    BDDMockito.verify(animeCatalogMock, Mockito.times(2)).onAnimesChanged(ArgumentMatchers.any());
+    BDDMockito.verify(hibernateCacheMock, Mockito.times(2)).evictQueryRegions();
+  }
+
+  private static AnimeChange change(Long id, Long animeId, Instant changedAt) {
+    return AnimeChange.builder().id(id).animeId(animeId).name("Naruto").type(AnimeChangedEvent.Type.REPLACED)
+            .changedAt(changedAt).build();
+  }
+}
@@ -0,0 +1,99 @@
+package academy.devdojo.springboot2.concurrency;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@DisplayName("Tests for Gradient Concurrency Limit")
+class GradientConcurrencyLimitTest {
+  private static final long WINDOW = TimeUnit.MILLISECONDS.toNanos(100);
+  private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private ConcurrencyLimitProperties properties;
+  private GradientConcurrencyLimit limit;
+  private long now;
+
+  @BeforeEach
+  void setUp() {
+    properties = new ConcurrencyLimitProperties();
+    properties.setInitialLimit(20);
+    properties.setMinWindowSamples(1);
+    properties.setRejectionWindow(Duration.ofSeconds(1));
+    limit = new GradientConcurrencyLimit(properties, now);
+  }
+
+  @Test
+  @DisplayName("Try acquire sheds requests when the limit is reached")
+  void tryAcquire_ShedsRequests_WhenTheLimitIsReached() {
+    for (int i = 1; i <= 20; i++) {
+      Assertions.assertThat(limit.tryAcquire(now)).isEqualTo(i);
+    }
+
+    Assertions.assertThat(limit.tryAcquire(now)).isEqualTo(-1);
+
+    limit.release();
+
+    Assertions.assertThat(limit.tryAcquire(now)).isEqualTo(20);
+  }
+
+  @Test
+  @DisplayName("On sample raises the limit when latency is steady under full load")
+  void onSample_RaisesTheLimit_WhenLatencyIsSteadyUnderFullLoad() {
+    sampleWindows(20, FAST, 20);
+
+    Assertions.assertThat(limit.getLimit()).isGreaterThan(20);
+  }
+
+  @Test
+  @DisplayName("On sample lowers the limit when latency rises above the tolerance")
+  void onSample_LowersTheLimit_WhenLatencyRisesAboveTheTolerance() {
+    sampleWindows(20, FAST, 20);
+    int limitBeforeSlowdown = limit.getLimit();
+
+    sampleWindows(20, FAST * 10, limitBeforeSlowdown);
+
+    Assertions.assertThat(limit.getLimit()).isLessThan(limitBeforeSlowdown);
+  }
+
+  @Test
+  @DisplayName("On sample keeps the limit when the load is far below it")
+  void onSample_KeepsTheLimit_WhenTheLoadIsFarBelowIt() {
+    sampleWindows(20, FAST, 2);
+
+    Assertions.assertThat(limit.getLimit()).isEqualTo(20);
+  }
+
+  @Test
+  @DisplayName("On sample never lowers the limit below the minimum")
+  void onSample_NeverLowersTheLimitBelowTheMinimum() {
+    sampleWindows(5, FAST, 20);
+
+    sampleWindows(200, FAST * 100, 20);
+
+    Assertions.assertThat(limit.getLimit()).isEqualTo(properties.getMinLimit());
+  }
+
+  @Test
+  @DisplayName("Get rejection ratio returns the share of shed requests over the last window")
+  void getRejectionRatio_ReturnsTheShareOfShedRequestsOverTheLastWindow() {
+    for (int i = 0; i < 25; i++) {
+      limit.tryAcquire(now);
+    }
+
+    now += TimeUnit.SECONDS.toNanos(1);
+    limit.tryAcquire(now);
+
+    Assertions.assertThat(limit.getRejectionRatio()).isEqualTo(6.0 / 26);
+  }
+
+  private void sampleWindows(int windows, long rtt, int inFlight) {
+    for (int i = 0; i < windows; i++) {
+      now += WINDOW;
+      limit.onSample(rtt, inFlight, now);
+    }
+  }
+}
@@ -1,12 +1,18 @@
 package academy.devdojo.springboot2.controller;
 
 import academy.devdojo.springboot2.domain.Anime;
+import academy.devdojo.springboot2.fieldset.AnimeFieldset;
+import academy.devdojo.springboot2.idempotency.IdempotencyProperties;
+import academy.devdojo.springboot2.idempotency.IdempotencyStore;
+import academy.devdojo.springboot2.projection.AnimeView;
 import academy.devdojo.springboot2.requests.AnimePostRequestBody;
 import academy.devdojo.springboot2.requests.AnimePutRequestBody;
 import academy.devdojo.springboot2.service.AnimeService;
 import academy.devdojo.springboot2.util.AnimeCreator;
 import academy.devdojo.springboot2.util.AnimePostRequestBodyCreator;
 import academy.devdojo.springboot2.util.AnimePutRequestBodyCreator;
+import academy.devdojo.springboot2.wrapper.AnimeBatchResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -16,6 +22,7 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.BDDMockito;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.http.HttpStatus;
@@ -31,6 +38,8 @@ class AnimeControllerTest {
   private AnimeController animeController;
   @Mock
   private AnimeService animeServiceMock;
+  @Spy
+  private IdempotencyStore idempotencyStore = new IdempotencyStore(new IdempotencyProperties(), new SimpleMeterRegistry());
 
   @BeforeEach
   void setUp() {
@@ -38,11 +47,11 @@ class AnimeControllerTest {
     List<Anime> animeList = List.of(AnimeCreator.createValidAnime());
     Anime validAnime = AnimeCreator.createValidAnime();
 
-    BDDMockito.when(animeServiceMock.listAll(ArgumentMatchers.any()))
-            .thenReturn(animePage);
+    BDDMockito.when(animeServiceMock.listAll(ArgumentMatchers.any(), ArgumentMatchers.any()))
+            .thenReturn(new PageImpl<>(List.of(AnimeCreator.createValidAnimeView())));
 
-    BDDMockito.when(animeServiceMock.listAllNonPageable())
-            .thenReturn(animeList);
+    BDDMockito.when(animeServiceMock.listAllNonPageable(ArgumentMatchers.any()))
+            .thenReturn(List.of(AnimeCreator.createValidAnimeView()));
 
     BDDMockito.when(animeServiceMock.findByIdOrThrowBadRequestException(ArgumentMatchers.anyLong()))
             .thenReturn(validAnime);
@@ -50,6 +59,12 @@ class AnimeControllerTest {
     BDDMockito.when(animeServiceMock.findByName(ArgumentMatchers.anyString()))
             .thenReturn(animeList);
 
+    BDDMockito.when(animeServiceMock.findAllById(ArgumentMatchers.anyList()))
+            .thenReturn(new AnimeBatchResponse(animeList, List.of(99L)));
+
+    BDDMockito.when(animeServiceMock.search(ArgumentMatchers.anyString(), ArgumentMatchers.any()))
+            .thenReturn(animePage);
+
     BDDMockito.when(animeServiceMock.save(ArgumentMatchers.any(AnimePostRequestBody.class)))
             .thenReturn(validAnime);
 
@@ -63,13 +78,13 @@ class AnimeControllerTest {
   void list_ReturnsListOfAnimesInsidePageObject_WhenSuccessful() {
     String expectedName = AnimeCreator.createValidAnime().getName();
 
-    Page<Anime> animePage = animeController.list(null).getBody();
+    Page<AnimeView> animePage = animeController.list(null, AnimeFieldset.ALL).getBody();
 
     Assertions.assertThat(animePage).isNotNull();
     Assertions.assertThat(animePage.toList())
             .isNotEmpty()
             .hasSize(1);
-    Assertions.assertThat(animePage.toList().get(0).getName()).isEqualTo(expectedName);
+    Assertions.assertThat(animePage.toList().get(0).name()).isEqualTo(expectedName);
   }
 
   @Test
@@ -77,13 +92,13 @@ class AnimeControllerTest {
   void listAll_ReturnsListOfAnimes_WhenSuccessful() {
     String expectedName = AnimeCreator.createValidAnime().getName();
 
-    List<Anime> animes = animeController.listAll().getBody();
+    List<AnimeView> animes = animeController.listAll(AnimeFieldset.ALL).getBody();
 
     Assertions.assertThat(animes)
             .isNotNull()
             .isNotEmpty()
             .hasSize(1);
-    Assertions.assertThat(animes.get(0).getName()).isEqualTo(expectedName);
+    Assertions.assertThat(animes.get(0).name()).isEqualTo(expectedName);
   }
 
   @Test
@@ -99,6 +114,18 @@ class AnimeControllerTest {
             .isEqualTo(expectedId);
   }
 
+  @Test
+  @DisplayName("Find all by id returns animes and missing ids when successful")
+  void findAllById_ReturnsAnimesAndMissingIds_WhenSuccessful() {
+    Long expectedId = AnimeCreator.createValidAnime().getId();
+
+    AnimeBatchResponse animeBatch = animeController.findAllById(List.of(expectedId, 99L)).getBody();
+
+    Assertions.assertThat(animeBatch).isNotNull();
+    Assertions.assertThat(animeBatch.animes()).extracting(Anime::getId).containsExactly(expectedId);
+    Assertions.assertThat(animeBatch.missingIds()).containsExactly(99L);
+  }
+
   @Test
   @DisplayName("Find by name returns a list of anime when successful")
   void findByName_ReturnsListOfAnime_WhenSuccessful() {
@@ -127,26 +154,54 @@ class AnimeControllerTest {
             .isEmpty();
   }
 
+  @Test
+  @DisplayName("Search returns list of anime inside page object when successful")
+  void search_ReturnsListOfAnimesInsidePageObject_WhenSuccessful() {
+    String expectedName = AnimeCreator.createValidAnime().getName();
+
+    Page<Anime> animePage = animeController.search("ippo", null).getBody();
+
+    Assertions.assertThat(animePage).isNotNull();
+    Assertions.assertThat(animePage.toList())
+            .isNotEmpty()
+            .hasSize(1);
+    Assertions.assertThat(animePage.toList().get(0).getName()).isEqualTo(expectedName);
+  }
+
   @Test
   @DisplayName("Save returns anime when successful")
   void save_ReturnsAnime_WhenSuccessful() {
     AnimePostRequestBody animeToBeSaved = AnimePostRequestBodyCreator.createAnimePostRequestBody();
     Anime expectedAnime = AnimeCreator.createValidAnime();
 
-    Anime savedAnime = animeController.save(animeToBeSaved).getBody();
+    Anime savedAnime = animeController.save(animeToBeSaved, null).getBody();
 
     Assertions.assertThat(savedAnime)
             .isNotNull()
             .isEqualTo(expectedAnime);
   }
 
+  @Test
+  @DisplayName("Save returns the first response without saving again when the idempotency key is repeated")
+  void save_ReturnsTheFirstResponseWithoutSavingAgain_WhenTheIdempotencyKeyIsRepeated() {
+    AnimePostRequestBody animeToBeSaved = AnimePostRequestBodyCreator.createAnimePostRequestBody();
+
+    ResponseEntity<Anime> first = animeController.save(animeToBeSaved, "key-1");
+    ResponseEntity<Anime> retry = animeController.save(animeToBeSaved, "key-1");
+
+    Assertions.assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+    Assertions.assertThat(retry.getBody()).isEqualTo(first.getBody());
+    Assertions.assertThat(retry.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER)).isEqualTo("true");
+    BDDMockito.verify(animeServiceMock).save(animeToBeSaved);
+  }
+
   @Test
   @DisplayName("Replace updates anime when successful")
   void replace_UpdatesAnime_WhenSuccessful() {
     AnimePutRequestBody animeUpdate = AnimePutRequestBodyCreator.createAnimePutRequestBody();
-    ResponseEntity<Void> entity = animeController.replace(animeUpdate);
+    ResponseEntity<Void> entity = animeController.replace(animeUpdate, null);
 
-    Assertions.assertThatCode(() -> animeController.replace(animeUpdate)).doesNotThrowAnyException();
+    Assertions.assertThatCode(() -> animeController.replace(animeUpdate, null)).doesNotThrowAnyException();
     Assertions.assertThat(entity).isNotNull();
     Assertions.assertThat(entity.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
   }
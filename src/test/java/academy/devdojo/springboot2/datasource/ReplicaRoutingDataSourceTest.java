@@ -0,0 +1,119 @@
+package academy.devdojo.springboot2.datasource;
+
+import org.assertj.core.api.Assertions;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+@DisplayName("Tests for Replica Routing DataSource")
+class ReplicaRoutingDataSourceTest {
+  private ReplicaRoutingDataSource routingDataSource;
+
+  @AfterEach
+  void tearDown() {
+    SecurityContextHolder.clearContext();
+
+    if (routingDataSource != null) {
+      routingDataSource.destroy();
+    }
+  }
+
+  @Test
+  @DisplayName("Read only transaction is routed to replica when replica is healthy")
+  void readOnlyTransaction_IsRoutedToReplica_WhenReplicaIsHealthy() {
+    JdbcTemplate jdbcTemplate = createRoutingJdbcTemplate(createNode("primary"), createNode("replica"), Duration.ZERO);
+
+    Assertions.assertThat(readNode(jdbcTemplate, true)).isEqualTo("replica");
+  }
+
+  @Test
+  @DisplayName("Read write transaction is routed to primary")
+  void readWriteTransaction_IsRoutedToPrimary() {
+    JdbcTemplate jdbcTemplate = createRoutingJdbcTemplate(createNode("primary"), createNode("replica"), Duration.ZERO);
+
+    Assertions.assertThat(readNode(jdbcTemplate, false)).isEqualTo("primary");
+  }
+
+  @Test
+  @DisplayName("Read only transaction is routed to primary when replica is unhealthy")
+  void readOnlyTransaction_IsRoutedToPrimary_WhenReplicaIsUnhealthy() {
+    JdbcDataSource missingReplica = new JdbcDataSource();
+    missingReplica.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";IFEXISTS=TRUE");
+
+    JdbcTemplate jdbcTemplate = createRoutingJdbcTemplate(createNode("primary"), missingReplica, Duration.ZERO);
+    routingDataSource.checkReplicas();
+
+    Assertions.assertThat(routingDataSource.getHealthyReplicaCount()).isZero();
+    Assertions.assertThat(readNode(jdbcTemplate, true)).isEqualTo("primary");
+  }
+
+  @Test
+  @DisplayName("Read only transaction is routed to primary when the same user wrote inside the window")
+  void readOnlyTransaction_IsRoutedToPrimary_WhenSameUserWroteInsideTheWindow() {
+    JdbcTemplate jdbcTemplate = createRoutingJdbcTemplate(createNode("primary"), createNode("replica"), Duration.ofMinutes(1));
+
+    authenticateAs("luissfmt");
+    readNode(jdbcTemplate, false);
+
+    Assertions.assertThat(readNode(jdbcTemplate, true)).isEqualTo("primary");
+
+    authenticateAs("devdojo");
+
+    Assertions.assertThat(readNode(jdbcTemplate, true)).isEqualTo("replica");
+  }
+
+  @Test
+  @DisplayName("Read only transaction is routed to primary when called on primary")
+  void readOnlyTransaction_IsRoutedToPrimary_WhenCalledOnPrimary() {
+    JdbcTemplate jdbcTemplate = createRoutingJdbcTemplate(createNode("primary"), createNode("replica"), Duration.ZERO);
+
+    Assertions.assertThat(ReplicaRoutingDataSource.callOnPrimary(() -> readNode(jdbcTemplate, true)))
+            .isEqualTo("primary");
+    Assertions.assertThat(readNode(jdbcTemplate, true)).isEqualTo("replica");
+  }
+
+  private JdbcTemplate createRoutingJdbcTemplate(DataSource primary, DataSource replica, Duration readYourWritesWindow) {
+    routingDataSource = new ReplicaRoutingDataSource(primary, Map.of("replica-0", replica),
+            readYourWritesWindow, Duration.ZERO);
+    routingDataSource.afterPropertiesSet();
+
+    return new JdbcTemplate(new LazyConnectionDataSourceProxy(routingDataSource));
+  }
+
+  private String readNode(JdbcTemplate jdbcTemplate, boolean readOnly) {
+    TransactionTemplate transactionTemplate = new TransactionTemplate(
+            new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+    transactionTemplate.setReadOnly(readOnly);
+
+    return transactionTemplate.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM node", String.class));
+  }
+
+  private static DataSource createNode(String name) {
+    JdbcDataSource dataSource = new JdbcDataSource();
+    dataSource.setURL("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute("CREATE TABLE node (name VARCHAR(20))");
+    jdbcTemplate.update("INSERT INTO node (name) VALUES (?)", name);
+
+    return dataSource;
+  }
+
+  private static void authenticateAs(String username) {
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+            username, null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+  }
+}
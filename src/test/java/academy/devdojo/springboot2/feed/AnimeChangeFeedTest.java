@@ -0,0 +1,284 @@
+package academy.devdojo.springboot2.feed;
+
+import academy.devdojo.springboot2.domain.AnimeChange;
+import academy.devdojo.springboot2.event.AnimeChangedEvent;
+import academy.devdojo.springboot2.sync.AnimeChangeLog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@DisplayName("Tests for Anime Change Feed")
+class AnimeChangeFeedTest {
+  private static final Pattern EVENT_NAME = Pattern.compile("^event:(\\w+)$", Pattern.MULTILINE);
+  private static final Pattern EVENT_ID = Pattern.compile("^id:(\\d+)$", Pattern.MULTILINE);
+  private final List<String> sentEvents = new CopyOnWriteArrayList<>();
+  private final List<AnimeChange> changeLog = new ArrayList<>();
+  private final CountDownLatch stalledSends = new CountDownLatch(1);
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private AnimeChangeLog animeChangeLogMock;
+  private AnimeChangeFeedProperties properties;
+  private AnimeChangeFeed animeChangeFeed;
+  private CountDownLatch blockSends;
+  private boolean stallNextEmitter;
+
+  @BeforeEach
+  void setUp() {
+    properties = new AnimeChangeFeedProperties();
+    properties.setSubscriberBufferSize(2);
+    properties.setSenderThreads(1);
+    properties.setPollInterval(Duration.ofHours(1));
+    blockSends = new CountDownLatch(0);
+
+    animeChangeLogMock = Mockito.mock(AnimeChangeLog.class);
+    BDDMockito.when(animeChangeLogMock.settledChangesAfter(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt()))
+            .thenAnswer(invocation -> changeLog.stream()
+                    .filter(change -> change.getId() > invocation.<Long>getArgument(0))
+                    .limit(invocation.<Integer>getArgument(1))
+                    .toList());
+
+    animeChangeFeed = new AnimeChangeFeed(properties, animeChangeLogMock, meterRegistry) {
+      @Override
+      SseEmitter createEmitter() {
+        RecordingEmitter emitter = new RecordingEmitter(stallNextEmitter);
+        stallNextEmitter = false;
+        return emitter;
+      }
+    };
+    animeChangeFeed.afterPropertiesSet();
+  }
+
+  @AfterEach
+  void tearDown() {
+    stalledSends.countDown();
+    animeChangeFeed.destroy();
+  }
+
+  @Test
+  @DisplayName("Poll sends the settled changes of the change log in order with their change ids")
+  void poll_SendsTheSettledChangesOfTheChangeLogInOrderWithTheirChangeIds() throws InterruptedException {
+    animeChangeFeed.subscribe(null);
+
+    publish(AnimeChangedEvent.Type.CREATED);
+    publish(AnimeChangedEvent.Type.DELETED);
+
+    awaitSentEvents(2);
+    Assertions.assertThat(sentEvents).containsExactly("1:created", "2:deleted");
+  }
+
+  @Test
+  @DisplayName("Subscribe replays missed changes from the change log when last event id is still retained")
+  void subscribe_ReplaysMissedChangesFromTheChangeLog_WhenLastEventIdIsStillRetained() throws InterruptedException {
+    publish(AnimeChangedEvent.Type.CREATED);
+    publish(AnimeChangedEvent.Type.REPLACED);
+
+    animeChangeFeed.subscribe(1L);
+
+    awaitSentEvents(1);
+    Assertions.assertThat(sentEvents).containsExactly("2:replaced");
+  }
+
+  @Test
+  @DisplayName("Subscribe catches up with the changes published while it replays without holding up the poll")
+  void subscribe_CatchesUpWithTheChangesPublishedDuringTheReplay_WithoutHoldingUpThePoll()
+          throws InterruptedException {
+    publish(AnimeChangedEvent.Type.CREATED);
+    publish(AnimeChangedEvent.Type.REPLACED);
+    AtomicBoolean polled = new AtomicBoolean();
+    BDDMockito.when(animeChangeLogMock.isExpired(1L)).thenAnswer(invocation -> {
+      Thread poll = new Thread(() -> {
+        changeLog.add(change(3L, AnimeChangedEvent.Type.DELETED));
+        animeChangeFeed.poll();
+      });
+      poll.start();
+      poll.join(TimeUnit.SECONDS.toMillis(5));
+      polled.set(!poll.isAlive());
+      return false;
+    });
+
+    animeChangeFeed.subscribe(1L);
+
+    awaitSentEvents(2);
+    Assertions.assertThat(polled).isTrue();
+    Assertions.assertThat(sentEvents).containsExactly("2:replaced", "3:deleted");
+  }
+
+  @Test
+  @DisplayName("Subscribe sends reset when last event id is no longer retained in the change log")
+  void subscribe_SendsReset_WhenLastEventIdIsNoLongerRetainedInTheChangeLog() throws InterruptedException {
+    publish(AnimeChangedEvent.Type.CREATED);
+    publish(AnimeChangedEvent.Type.REPLACED);
+    BDDMockito.when(animeChangeLogMock.isExpired(0L)).thenReturn(true);
+
+    animeChangeFeed.subscribe(0L);
+
+    awaitSentEvents(1);
+    Assertions.assertThat(sentEvents).containsExactly("2:reset");
+  }
+
+  @Test
+  @DisplayName("Subscribe only sends the changes after last event id when this node has not published it yet")
+  void subscribe_OnlySendsTheChangesAfterLastEventId_WhenThisNodeHasNotPublishedItYet() throws InterruptedException {
+    changeLog.add(change(1L, AnimeChangedEvent.Type.CREATED));
+    changeLog.add(change(2L, AnimeChangedEvent.Type.CREATED));
+    animeChangeFeed.subscribe(1L);
+
+    publish(AnimeChangedEvent.Type.DELETED);
+
+    awaitSentEvents(2);
+    Assertions.assertThat(sentEvents).containsExactly("2:created", "3:deleted");
+  }
+
+  @Test
+  @DisplayName("Poll drops subscriber when its buffer overflows")
+  void poll_DropsSubscriber_WhenItsBufferOverflows() throws InterruptedException {
+    blockSends = new CountDownLatch(1);
+    animeChangeFeed.subscribe(null);
+
+    for (int i = 0; i < 5; i++) {
+      publish(AnimeChangedEvent.Type.CREATED);
+    }
+
+    Assertions.assertThat(animeChangeFeed.getSubscriberCount()).isZero();
+
+    blockSends.countDown();
+    awaitSentEvent("null:dropped");
+    Assertions.assertThat(sentEvents).last().isEqualTo("null:dropped");
+  }
+
+  @Test
+  @DisplayName("Poll drops a subscriber whose send stalls past the send timeout while the others keep receiving")
+  void poll_DropsASubscriberWhoseSendStalls_WhileTheOthersKeepReceiving() throws InterruptedException {
+    properties.setSendTimeout(Duration.ofMillis(100));
+    stallNextEmitter = true;
+    animeChangeFeed.subscribe(null);
+    animeChangeFeed.subscribe(null);
+
+    publish(AnimeChangedEvent.Type.CREATED);
+    publish(AnimeChangedEvent.Type.REPLACED);
+
+    awaitSentEvents(2);
+    awaitSubscriberCount(1);
+    Assertions.assertThat(sentEvents).containsExactly("1:created", "2:replaced");
+    Assertions.assertThat(animeChangeFeed.getSubscriberCount()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Poll drops a subscriber instead of starting another writer when the stalled writes use up the limit")
+  void poll_DropsASubscriberInsteadOfStartingAnotherWriter_WhenStalledWritesUseUpTheSubscriberLimit()
+          throws InterruptedException {
+    animeChangeFeed.destroy();
+    properties.setMaxSubscribers(1);
+    properties.setSendTimeout(Duration.ofMillis(100));
+    animeChangeFeed.afterPropertiesSet();
+    stallNextEmitter = true;
+    animeChangeFeed.subscribe(null);
+    publish(AnimeChangedEvent.Type.CREATED);
+    awaitDroppedSubscribers(1);
+
+    animeChangeFeed.subscribe(null);
+    publish(AnimeChangedEvent.Type.REPLACED);
+
+    awaitDroppedSubscribers(2);
+    Assertions.assertThat(sentEvents).isEmpty();
+    Assertions.assertThat(animeChangeFeed.getSubscriberCount()).isZero();
+  }
+
+  private void publish(AnimeChangedEvent.Type type) {
+    changeLog.add(change(changeLog.size() + 1L, type));
+    animeChangeFeed.poll();
+  }
+
+  private static AnimeChange change(long id, AnimeChangedEvent.Type type) {
+    return AnimeChange.builder().id(id).animeId(1L).name("Boku no Hero").type(type).build();
+  }
+
+  private void awaitSentEvents(int count) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+    while (sentEvents.size() < count && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+  }
+
+  private void awaitSubscriberCount(int count) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+    while (animeChangeFeed.getSubscriberCount() != count && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+  }
+
+  private void awaitDroppedSubscribers(int count) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+    while (meterRegistry.counter("anime.change.feed.dropped").count() < count && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+  }
+
+  private void awaitSentEvent(String event) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+    while (!sentEvents.contains(event) && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+  }
+
+  private class RecordingEmitter extends SseEmitter {
+    private final boolean stalled;
+
+    private RecordingEmitter(boolean stalled) {
+      this.stalled = stalled;
+    }
+
+    @Override
+    public void send(SseEventBuilder builder) {
+      try {
+        if (stalled) {
+          stalledSends.await();
+          return;
+        }
+
+        blockSends.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+
+      StringBuilder frame = new StringBuilder();
+
+      for (ResponseBodyEmitter.DataWithMediaType data : builder.build()) {
+        frame.append(data.getData());
+      }
+
+      Matcher name = EVENT_NAME.matcher(frame);
+      Matcher id = EVENT_ID.matcher(frame);
+
+      if (name.find()) {
+        sentEvents.add((id.find() ? id.group(1) : null) + ":" + name.group(1));
+      }
+    }
+
+    @Override
+    protected void extendResponse(ServerHttpResponse outputMessage) {
+    }
+  }
+}
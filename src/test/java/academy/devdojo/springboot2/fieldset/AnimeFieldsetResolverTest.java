@@ -0,0 +1,86 @@
+package academy.devdojo.springboot2.fieldset;
+
+import academy.devdojo.springboot2.exception.BadRequestException;
+import academy.devdojo.springboot2.projection.AnimeView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.List;
+
+@DisplayName("Tests for Anime Fieldset Resolver")
+class AnimeFieldsetResolverTest {
+  private final ObjectMapper objectMapper = JsonMapper.builder().build();
+  private AnimeFieldsetResolver resolver;
+  private MockHttpServletRequest request;
+
+  @BeforeEach
+  void setUp() {
+    resolver = new AnimeFieldsetResolver(List.of("id", "name", "studio"));
+    request = new MockHttpServletRequest();
+  }
+
+  @Test
+  @DisplayName("Resolve argument returns all fields when the parameter is missing or blank")
+  void resolveArgument_ReturnsAllFields_WhenTheParameterIsMissingOrBlank() {
+    Assertions.assertThat(resolve()).isSameAs(AnimeFieldset.ALL);
+
+    request.setParameter("fields", " , ");
+
+    Assertions.assertThat(resolve()).isSameAs(AnimeFieldset.ALL);
+  }
+
+  @Test
+  @DisplayName("Resolve argument returns the same cached fieldset for the same fields in any order")
+  void resolveArgument_ReturnsTheSameCachedFieldset_ForTheSameFieldsInAnyOrder() {
+    request.setParameter("fields", "name,id");
+    AnimeFieldset first = resolve();
+
+    request.setParameter("fields", "id", " name ", "id");
+
+    Assertions.assertThat(resolve()).isSameAs(first);
+    Assertions.assertThat(first.properties()).containsExactlyInAnyOrder("id", "name");
+    Assertions.assertThat(request.getAttribute(AnimeFieldsetResolver.ATTRIBUTE)).isSameAs(first);
+  }
+
+  @Test
+  @DisplayName("Resolve argument throws bad request exception when a field is not an anime property")
+  void resolveArgument_ThrowsBadRequestException_WhenAFieldIsNotAnAnimeProperty() {
+    request.setParameter("fields", "name,password");
+
+    Assertions.assertThatExceptionOfType(BadRequestException.class)
+            .isThrownBy(this::resolve)
+            .withMessageContaining("Field 'password' does not exist");
+  }
+
+  @Test
+  @DisplayName("Fieldset filters serialize only the requested properties")
+  void filters_SerializeOnlyTheRequestedProperties() throws Exception {
+    request.setParameter("fields", "name");
+    AnimeFieldset fieldset = resolve();
+
+    String json = objectMapper.writer(fieldset.filters()).writeValueAsString(new AnimeView(1L, "Berserk"));
+    String all = objectMapper.writer(AnimeFieldset.ALL.filters()).writeValueAsString(new AnimeView(1L, "Berserk"));
+
+    Assertions.assertThat(json).isEqualTo("{\"name\":\"Berserk\"}");
+    Assertions.assertThat(all).isEqualTo("{\"id\":1,\"name\":\"Berserk\"}");
+  }
+
+  @Test
+  @DisplayName("Fieldset columns add the id and the sorted properties to the requested ones")
+  void columns_AddTheIdAndTheSortedPropertiesToTheRequestedOnes() {
+    request.setParameter("fields", "studio");
+
+    Assertions.assertThat(resolve().columns(Sort.by("name"))).containsExactly("id", "studio", "name");
+  }
+
+  private AnimeFieldset resolve() {
+    return resolver.resolveArgument(null, null, new ServletWebRequest(request), null);
+  }
+}
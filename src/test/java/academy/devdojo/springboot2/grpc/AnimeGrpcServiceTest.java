@@ -0,0 +1,246 @@
+package academy.devdojo.springboot2.grpc;
+
+import academy.devdojo.springboot2.bulkhead.BulkheadInterceptor;
+import academy.devdojo.springboot2.bulkhead.BulkheadProperties;
+import academy.devdojo.springboot2.bulkhead.BulkheadType;
+import academy.devdojo.springboot2.domain.Anime;
+import academy.devdojo.springboot2.exception.AnimeNotFoundException;
+import academy.devdojo.springboot2.exception.BadRequestException;
+import academy.devdojo.springboot2.grpc.v1.AnimeServiceGrpc;
+import academy.devdojo.springboot2.grpc.v1.CreateAnimeRequest;
+import academy.devdojo.springboot2.grpc.v1.DeleteAnimeRequest;
+import academy.devdojo.springboot2.grpc.v1.GetAnimeRequest;
+import academy.devdojo.springboot2.grpc.v1.ListAnimesRequest;
+import academy.devdojo.springboot2.grpc.v1.ReplaceAnimeRequest;
+import academy.devdojo.springboot2.projection.AnimeView;
+import academy.devdojo.springboot2.requests.AnimePostRequestBody;
+import academy.devdojo.springboot2.requests.AnimePutRequestBody;
+import academy.devdojo.springboot2.service.AnimeService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.MetadataUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.LongStream;
+
+@DisplayName("Tests for Anime gRPC Service")
+class AnimeGrpcServiceTest {
+  private static final Instant NOW = Instant.parse("2026-10-19T10:00:00Z");
+
+  private final AnimeService animeService = Mockito.mock(AnimeService.class);
+  private final AuthenticationProvider authenticationProvider = Mockito.mock(AuthenticationProvider.class);
+  private final Clock clock = Mockito.mock(Clock.class);
+  private final GrpcProperties properties = new GrpcProperties();
+  private final BulkheadProperties bulkheadProperties = new BulkheadProperties();
+  private Server server;
+  private ManagedChannel channel;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    BDDMockito.when(clock.instant()).thenReturn(NOW);
+    BDDMockito.when(authenticationProvider.authenticate(ArgumentMatchers.any())).thenAnswer(invocation -> {
+      Authentication credentials = invocation.getArgument(0);
+
+      if (!"academy".equals(credentials.getCredentials())) {
+        throw new BadCredentialsException("Bad credentials");
+      }
+
+      String authorities = credentials.getName().equals("devdojo") ? "ROLE_USER,ROLE_ADMIN" : "ROLE_USER";
+
+      return UsernamePasswordAuthenticationToken.authenticated(credentials.getName(), credentials.getCredentials(),
+              AuthorityUtils.commaSeparatedStringToAuthorityList(authorities));
+    });
+
+    BulkheadProperties.Budget full = new BulkheadProperties.Budget();
+    full.setMaxConcurrent(0);
+    full.setMaxQueued(0);
+    bulkheadProperties.getBudgets().put(BulkheadType.ADMIN, full);
+    properties.setListPageSize(2);
+
+    AnimeGrpcService animeGrpcService = new AnimeGrpcService(animeService,
+            new BulkheadInterceptor(bulkheadProperties, new ObjectMapper(), new SimpleMeterRegistry()),
+            Validation.buildDefaultValidatorFactory().getValidator(), properties);
+    GrpcSecurityInterceptor securityInterceptor = new GrpcSecurityInterceptor(properties, authenticationProvider,
+            clock);
+
+    String name = InProcessServerBuilder.generateName();
+    server = InProcessServerBuilder.forName(name)
+            .directExecutor()
+            .addService(ServerInterceptors.intercept(animeGrpcService, securityInterceptor))
+            .build()
+            .start();
+    channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+  }
+
+  @AfterEach
+  void tearDown() {
+    channel.shutdownNow();
+    server.shutdownNow();
+  }
+
+  @Test
+  @DisplayName("Get anime returns the anime and runs the service as the caller when successful")
+  void getAnime_ReturnsTheAnimeAndRunsTheServiceAsTheCaller_WhenSuccessful() {
+    AtomicReference<String> caller = new AtomicReference<>();
+    BDDMockito.when(animeService.findByIdOrThrowBadRequestException(1L)).thenAnswer(invocation -> {
+      caller.set(SecurityContextHolder.getContext().getAuthentication().getName());
+
+      return Anime.builder().id(1L).name("Boku no Hero").build();
+    });
+
+    academy.devdojo.springboot2.grpc.v1.Anime anime = stub("luissfmt", "academy")
+            .getAnime(GetAnimeRequest.newBuilder().setId(1L).build());
+
+    Assertions.assertThat(anime.getId()).isEqualTo(1L);
+    Assertions.assertThat(anime.getName()).isEqualTo("Boku no Hero");
+    Assertions.assertThat(caller).hasValue("luissfmt");
+  }
+
+  @Test
+  @DisplayName("Get and replace anime fail with not found when the anime does not exist")
+  void getAndReplaceAnime_FailWithNotFound_WhenTheAnimeDoesNotExist() {
+    BDDMockito.when(animeService.findByIdOrThrowBadRequestException(1L)).thenThrow(new AnimeNotFoundException());
+    BDDMockito.doThrow(new AnimeNotFoundException()).when(animeService)
+            .replace(ArgumentMatchers.any(AnimePutRequestBody.class));
+
+    Assertions.assertThatExceptionOfType(StatusRuntimeException.class)
+            .isThrownBy(() -> stub("luissfmt", "academy").getAnime(GetAnimeRequest.newBuilder().setId(1L).build()))
+            .satisfies(e -> {
+              Assertions.assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.NOT_FOUND);
+              Assertions.assertThat(e.getStatus().getDescription()).isEqualTo("Anime not found");
+            });
+    Assertions.assertThatExceptionOfType(StatusRuntimeException.class)
+            .isThrownBy(() -> stub("luissfmt", "academy").replaceAnime(ReplaceAnimeRequest.newBuilder().setId(1L)
+                    .setName("Naruto").build()))
+            .satisfies(e -> Assertions.assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.NOT_FOUND));
+  }
+
+  @Test
+  @DisplayName("Calls fail with unauthenticated when the credentials are missing or wrong")
+  void calls_FailWithUnauthenticated_WhenTheCredentialsAreMissingOrWrong() {
+    GetAnimeRequest request = GetAnimeRequest.newBuilder().setId(1L).build();
+
+    Assertions.assertThatExceptionOfType(StatusRuntimeException.class)
+            .isThrownBy(() -> AnimeServiceGrpc.newBlockingStub(channel).getAnime(request))
+            .satisfies(e -> Assertions.assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.UNAUTHENTICATED));
+    Assertions.assertThatExceptionOfType(StatusRuntimeException.class)
+            .isThrownBy(() -> stub("luissfmt", "wrong").getAnime(request))
+            .satisfies(e -> Assertions.assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.UNAUTHENTICATED));
+    Mockito.verifyNoInteractions(animeService);
+  }
+
+  @Test
+  @DisplayName("Delete anime fails with permission denied when the caller is not an admin")
+  void deleteAnime_FailsWithPermissionDenied_WhenTheCallerIsNotAnAdmin() {
+    Assertions.assertThatExceptionOfType(StatusRuntimeException.class)
+            .isThrownBy(() -> stub("luissfmt", "academy")
+                    .deleteAnime(DeleteAnimeRequest.newBuilder().setId(1L).build()))
+            .satisfies(e -> Assertions.assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.PERMISSION_DENIED));
+    Mockito.verifyNoInteractions(animeService);
+  }
+
+  @Test
+  @DisplayName("Delete anime fails with unavailable when the admin bulkhead is full")
+  void deleteAnime_FailsWithUnavailable_WhenTheAdminBulkheadIsFull() {
+    Assertions.assertThatExceptionOfType(StatusRuntimeException.class)
+            .isThrownBy(() -> stub("devdojo", "academy")
+                    .deleteAnime(DeleteAnimeRequest.newBuilder().setId(1L).build()))
+            .satisfies(e -> {
+              Assertions.assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.UNAVAILABLE);
+              Assertions.assertThat(e.getStatus().getDescription())
+                      .isEqualTo("The admin bulkhead has all of its 0 permits in use, retry shortly");
+            });
+    Mockito.verifyNoInteractions(animeService);
+  }
+
+  @Test
+  @DisplayName("Create anime fails with invalid argument when the name is blank")
+  void createAnime_FailsWithInvalidArgument_WhenTheNameIsBlank() {
+    Assertions.assertThatExceptionOfType(StatusRuntimeException.class)
+            .isThrownBy(() -> stub("luissfmt", "academy")
+                    .createAnime(CreateAnimeRequest.newBuilder().setName(" ").build()))
+            .satisfies(e -> {
+              Assertions.assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT);
+              Assertions.assertThat(e.getStatus().getDescription()).isEqualTo("The anime name cannot be blank or null");
+            });
+    Mockito.verify(animeService, Mockito.never()).save(ArgumentMatchers.any(AnimePostRequestBody.class));
+  }
+
+  @Test
+  @DisplayName("List animes streams every page in order, reading one page at a time after the last id sent")
+  void listAnimes_StreamsEveryPageInOrder_ReadingOnePageAtATimeAfterTheLastIdSent() {
+    List<AnimeView> animes = LongStream.rangeClosed(1, 5).mapToObj(id -> new AnimeView(id, "Anime " + id)).toList();
+    BDDMockito.when(animeService.listAfter(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt()))
+            .thenAnswer(invocation -> {
+              long after = invocation.getArgument(0);
+              int limit = invocation.getArgument(1);
+
+              return animes.stream().filter(anime -> anime.id() > after).limit(limit).toList();
+            });
+
+    List<Long> ids = new ArrayList<>();
+    stub("luissfmt", "academy").listAnimes(ListAnimesRequest.getDefaultInstance())
+            .forEachRemaining(anime -> ids.add(anime.getId()));
+
+    Assertions.assertThat(ids).containsExactly(1L, 2L, 3L, 4L, 5L);
+    Mockito.verify(animeService).listAfter(0L, 2);
+    Mockito.verify(animeService).listAfter(2L, 2);
+    Mockito.verify(animeService).listAfter(4L, 2);
+    Mockito.verifyNoMoreInteractions(animeService);
+  }
+
+  @Test
+  @DisplayName("Calls verify the credentials again only once the verified credentials expired")
+  void calls_VerifyTheCredentialsAgainOnlyOnceTheVerifiedCredentialsExpired() {
+    BDDMockito.when(animeService.findByIdOrThrowBadRequestException(1L))
+            .thenReturn(Anime.builder().id(1L).name("Boku no Hero").build());
+    GetAnimeRequest request = GetAnimeRequest.newBuilder().setId(1L).build();
+
+    stub("luissfmt", "academy").getAnime(request);
+    stub("luissfmt", "academy").getAnime(request);
+    Mockito.verify(authenticationProvider, Mockito.times(1)).authenticate(ArgumentMatchers.any());
+
+    BDDMockito.when(clock.instant()).thenReturn(NOW.plus(properties.getCredentialsCacheTtl()));
+    stub("luissfmt", "academy").getAnime(request);
+    Mockito.verify(authenticationProvider, Mockito.times(2)).authenticate(ArgumentMatchers.any());
+  }
+
+  private AnimeServiceGrpc.AnimeServiceBlockingStub stub(String username, String password) {
+    Metadata headers = new Metadata();
+    headers.put(GrpcSecurityInterceptor.AUTHORIZATION, "Basic " + Base64.getEncoder()
+            .encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8)));
+
+    return AnimeServiceGrpc.newBlockingStub(channel)
+            .withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers));
+  }
+}
@@ -0,0 +1,273 @@
+package academy.devdojo.springboot2.idempotency;
+
+import academy.devdojo.springboot2.bulkhead.BulkheadInterceptor;
+import academy.devdojo.springboot2.bulkhead.BulkheadProperties;
+import academy.devdojo.springboot2.bulkhead.BulkheadType;
+import academy.devdojo.springboot2.controller.AnimeController;
+import academy.devdojo.springboot2.exception.BadRequestException;
+import academy.devdojo.springboot2.requests.AnimePostRequestBody;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+@DisplayName("Tests for Idempotency Store")
+class IdempotencyStoreTest {
+  private static final Instant NOW = Instant.parse("2026-10-19T10:00:00Z");
+
+  private final IdempotencyProperties properties = new IdempotencyProperties();
+  private final Clock clock = Mockito.mock(Clock.class);
+  private final IdempotencyStore idempotencyStore = new IdempotencyStore(properties, new SimpleMeterRegistry(), clock);
+  private final AtomicInteger executions = new AtomicInteger();
+  private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+  @AfterEach
+  void tearDown() {
+    RequestContextHolder.resetRequestAttributes();
+    executorService.shutdownNow();
+  }
+
+  @Test
+  @DisplayName("Execute returns the stored response without running the action when the key is replayed")
+  void execute_ReturnsTheStoredResponseWithoutRunningTheAction_WhenTheKeyIsReplayed() {
+    BDDMockito.when(clock.instant()).thenReturn(NOW);
+
+    ResponseEntity<String> first = idempotencyStore.execute("key", "POST /animes", "body", created());
+    ResponseEntity<String> replayed = idempotencyStore.execute("key", "POST /animes", "body", created());
+
+    Assertions.assertThat(executions).hasValue(1);
+    Assertions.assertThat(first.getHeaders().containsKey(IdempotencyStore.REPLAYED_HEADER)).isFalse();
+    Assertions.assertThat(replayed.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+    Assertions.assertThat(replayed.getBody()).isEqualTo("created 1");
+    Assertions.assertThat(replayed.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER)).isEqualTo("true");
+  }
+
+  @Test
+  @DisplayName("Execute runs the action every time when there is no key or idempotency is disabled")
+  void execute_RunsTheActionEveryTime_WhenThereIsNoKeyOrIdempotencyIsDisabled() {
+    BDDMockito.when(clock.instant()).thenReturn(NOW);
+
+    idempotencyStore.execute(null, "POST /animes", "body", created());
+    idempotencyStore.execute(null, "POST /animes", "body", created());
+    properties.setEnabled(false);
+    idempotencyStore.execute("key", "POST /animes", "body", created());
+    idempotencyStore.execute("key", "POST /animes", "body", created());
+
+    Assertions.assertThat(executions).hasValue(4);
+  }
+
+  @Test
+  @DisplayName("Execute keeps keys apart per operation")
+  void execute_KeepsKeysApartPerOperation() {
+    BDDMockito.when(clock.instant()).thenReturn(NOW);
+
+    idempotencyStore.execute("key", "POST /animes", "body", created());
+    idempotencyStore.execute("key", "PUT /animes", "body", created());
+
+    Assertions.assertThat(executions).hasValue(2);
+  }
+
+  @Test
+  @DisplayName("Execute throws unprocessable entity when the key is reused for another request")
+  void execute_ThrowsUnprocessableEntity_WhenTheKeyIsReusedForAnotherRequest() {
+    BDDMockito.when(clock.instant()).thenReturn(NOW);
+    idempotencyStore.execute("key", "POST /animes", "body", created());
+
+    Assertions.assertThatExceptionOfType(ResponseStatusException.class)
+            .isThrownBy(() -> idempotencyStore.execute("key", "POST /animes", "another body", created()))
+            .satisfies(e -> Assertions.assertThat(e.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY));
+  }
+
+  @Test
+  @DisplayName("Execute throws bad request exception when the key is too long")
+  void execute_ThrowsBadRequestException_WhenTheKeyIsTooLong() {
+    properties.setMaxKeyLength(4);
+
+    Assertions.assertThatExceptionOfType(BadRequestException.class)
+            .isThrownBy(() -> idempotencyStore.execute("12345", "POST /animes", "body", created()));
+    Assertions.assertThat(executions).hasValue(0);
+  }
+
+  @Test
+  @DisplayName("Execute waits for the first request and returns its response when a duplicate is concurrent")
+  void execute_WaitsForTheFirstRequestAndReturnsItsResponse_WhenADuplicateIsConcurrent() throws Exception {
+    BDDMockito.when(clock.instant()).thenReturn(NOW);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    Future<ResponseEntity<String>> first = executorService.submit(() ->
+            idempotencyStore.execute("key", "POST /animes", "body", () -> {
+              started.countDown();
+              await(release);
+              return created().get();
+            }));
+    Assertions.assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+    Thread releaser = new Thread(() -> {
+      sleep(100);
+      release.countDown();
+    });
+    releaser.start();
+    ResponseEntity<String> duplicate = idempotencyStore.execute("key", "POST /animes", "body", created());
+
+    Assertions.assertThat(duplicate.getBody()).isEqualTo(first.get(5, TimeUnit.SECONDS).getBody());
+    Assertions.assertThat(executions).hasValue(1);
+  }
+
+  @Test
+  @DisplayName("Execute gives the bulkhead permit of a duplicate back while it waits for the first request")
+  void execute_GivesTheBulkheadPermitOfADuplicateBack_WhileItWaitsForTheFirstRequest() throws Exception {
+    BDDMockito.when(clock.instant()).thenReturn(NOW);
+    BulkheadInterceptor interceptor = bulkheadInterceptor();
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger inFlightWhileWaiting = new AtomicInteger(-1);
+
+    executorService.submit(() -> idempotencyStore.execute("key", "POST /animes", "body", () -> {
+      started.countDown();
+      await(release);
+      return created().get();
+    }));
+    Assertions.assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+    Assertions.assertThat(interceptor.preHandle(request, new MockHttpServletResponse(), saveHandler())).isTrue();
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+    Thread releaser = new Thread(() -> {
+      sleep(100);
+      inFlightWhileWaiting.set(interceptor.bulkhead(BulkheadType.WRITE).getInFlight());
+      release.countDown();
+    });
+    releaser.start();
+    idempotencyStore.execute("key", "POST /animes", "body", created());
+    interceptor.afterCompletion(request, new MockHttpServletResponse(), saveHandler(), null);
+
+    Assertions.assertThat(inFlightWhileWaiting).hasValue(0);
+    Assertions.assertThat(interceptor.bulkhead(BulkheadType.WRITE).getInFlight()).isZero();
+  }
+
+  @Test
+  @DisplayName("Execute throws conflict when the first request is still running after the wait timeout")
+  void execute_ThrowsConflict_WhenTheFirstRequestIsStillRunningAfterTheWaitTimeout() throws InterruptedException {
+    BDDMockito.when(clock.instant()).thenReturn(NOW);
+    properties.setWaitTimeout(Duration.ofMillis(50));
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    executorService.submit(() -> idempotencyStore.execute("key", "POST /animes", "body", () -> {
+      started.countDown();
+      await(release);
+      return created().get();
+    }));
+    Assertions.assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+    try {
+      Assertions.assertThatExceptionOfType(ResponseStatusException.class)
+              .isThrownBy(() -> idempotencyStore.execute("key", "POST /animes", "body", created()))
+              .satisfies(e -> Assertions.assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+    } finally {
+      release.countDown();
+    }
+  }
+
+  @Test
+  @DisplayName("Execute runs the action again when the first request failed")
+  void execute_RunsTheActionAgain_WhenTheFirstRequestFailed() {
+    BDDMockito.when(clock.instant()).thenReturn(NOW);
+
+    Assertions.assertThatIllegalStateException()
+            .isThrownBy(() -> idempotencyStore.execute("key", "POST /animes", "body", () -> {
+              throw new IllegalStateException("Database down");
+            }));
+    ResponseEntity<String> retry = idempotencyStore.execute("key", "POST /animes", "body", created());
+
+    Assertions.assertThat(retry.getBody()).isEqualTo("created 1");
+    Assertions.assertThat(retry.getHeaders().containsKey(IdempotencyStore.REPLAYED_HEADER)).isFalse();
+  }
+
+  @Test
+  @DisplayName("Execute runs the action again when the stored response expired")
+  void execute_RunsTheActionAgain_WhenTheStoredResponseExpired() {
+    BDDMockito.when(clock.instant()).thenReturn(NOW, NOW.plus(properties.getTtl()));
+
+    idempotencyStore.execute("key", "POST /animes", "body", created());
+    ResponseEntity<String> afterTtl = idempotencyStore.execute("key", "POST /animes", "body", created());
+
+    Assertions.assertThat(afterTtl.getBody()).isEqualTo("created 2");
+  }
+
+  @Test
+  @DisplayName("Execute evicts the oldest key when the store is full")
+  void execute_EvictsTheOldestKey_WhenTheStoreIsFull() {
+    BDDMockito.when(clock.instant()).thenReturn(NOW);
+    properties.setMaxEntries(2);
+
+    idempotencyStore.execute("key-1", "POST /animes", "body", created());
+    idempotencyStore.execute("key-2", "POST /animes", "body", created());
+    idempotencyStore.execute("key-3", "POST /animes", "body", created());
+
+    Assertions.assertThat(idempotencyStore.execute("key-3", "POST /animes", "body", created()).getBody())
+            .isEqualTo("created 3");
+    Assertions.assertThat(idempotencyStore.execute("key-1", "POST /animes", "body", created()).getBody())
+            .isEqualTo("created 4");
+  }
+
+  private Supplier<ResponseEntity<String>> created() {
+    return () -> new ResponseEntity<>("created " + executions.incrementAndGet(), HttpStatus.CREATED);
+  }
+
+  private static BulkheadInterceptor bulkheadInterceptor() {
+    BulkheadProperties.Budget budget = new BulkheadProperties.Budget();
+    budget.setMaxConcurrent(1);
+    budget.setMaxQueued(0);
+    budget.setMaxWait(Duration.ZERO);
+    BulkheadProperties bulkheadProperties = new BulkheadProperties();
+    bulkheadProperties.getBudgets().put(BulkheadType.WRITE, budget);
+
+    return new BulkheadInterceptor(bulkheadProperties, new ObjectMapper(), new SimpleMeterRegistry());
+  }
+
+  private static HandlerMethod saveHandler() throws NoSuchMethodException {
+    return new HandlerMethod(Mockito.mock(AnimeController.class), AnimeController.class.getMethod("save",
+            AnimePostRequestBody.class, String.class));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package academy.devdojo.springboot2.integration;
 
+import academy.devdojo.springboot2.bulk.AnimeImportSummary;
 import academy.devdojo.springboot2.domain.Anime;
 import academy.devdojo.springboot2.domain.DevDojoUser;
 import academy.devdojo.springboot2.repository.AnimeRepository;
@@ -23,14 +24,17 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.annotation.DirtiesContext;
 
 import java.util.List;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"devdojo.warmup.enabled=false", "devdojo.grpc.port=0"})
 @AutoConfigureTestDatabase
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
 public class AnimeControlllerIT {
@@ -104,6 +108,74 @@ public class AnimeControlllerIT {
     Assertions.assertThat(animePage.toList().get(0).getName()).isEqualTo(expectedName);
   }
 
+  @Test
+  @DisplayName("List returns page sorted by name then id and clamped to the max page size when successful")
+  void list_ReturnsPageSortedByNameThenIdAndClampedToTheMaxPageSize_WhenSuccessful() {
+    Anime olderBerserk = animeRepository.save(Anime.builder().name("Berserk").build());
+    Anime newerBerserk = animeRepository.save(Anime.builder().name("Berserk").build());
+    animeRepository.save(Anime.builder().name("Akira").build());
+
+    devDojoUserRepository.save(USER);
+
+    PageableResponse<Anime> animePage = testRestTemplateRoleUser.exchange(
+            "/animes?sort=name,desc&size=100000",
+            HttpMethod.GET,
+            null,
+            new ParameterizedTypeReference<PageableResponse<Anime>>() {}
+    ).getBody();
+
+    Assertions.assertThat(animePage).isNotNull();
+    Assertions.assertThat(animePage.getSize()).isEqualTo(100);
+    Assertions.assertThat(animePage.toList()).extracting(Anime::getId)
+            .startsWith(olderBerserk.getId(), newerBerserk.getId());
+  }
+
+  @Test
+  @DisplayName("List returns 400 bad request when sorting by a property that is not whitelisted")
+  void list_Returns400BadRequest_WhenSortingByAPropertyThatIsNotWhitelisted() {
+    devDojoUserRepository.save(USER);
+
+    ResponseEntity<String> animeResponseEntity = testRestTemplateRoleUser.exchange(
+            "/animes?sort=password",
+            HttpMethod.GET,
+            null,
+            String.class
+    );
+
+    Assertions.assertThat(animeResponseEntity.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    Assertions.assertThat(animeResponseEntity.getBody()).contains("Sorting by 'password' is not supported");
+  }
+
+  @Test
+  @DisplayName("List returns only the requested fields of each anime when fields are given")
+  void list_ReturnsOnlyTheRequestedFieldsOfEachAnime_WhenFieldsAreGiven() {
+    Anime savedAnime = animeRepository.save(AnimeCreator.createAnimeToBeSaved());
+
+    devDojoUserRepository.save(USER);
+
+    String names = testRestTemplateRoleUser.getForObject("/animes?fields=name&sort=name", String.class);
+    String ids = testRestTemplateRoleUser.getForObject("/animes/all?fields=id", String.class);
+
+    Assertions.assertThat(names).contains("\"content\":[{\"name\":\"%s\"}]".formatted(savedAnime.getName()));
+    Assertions.assertThat(ids).isEqualTo("[{\"id\":%d}]".formatted(savedAnime.getId()));
+  }
+
+  @Test
+  @DisplayName("List returns 400 bad request when a field is not an anime property")
+  void list_Returns400BadRequest_WhenAFieldIsNotAnAnimeProperty() {
+    devDojoUserRepository.save(USER);
+
+    ResponseEntity<String> animeResponseEntity = testRestTemplateRoleUser.exchange(
+            "/animes?fields=id,password",
+            HttpMethod.GET,
+            null,
+            String.class
+    );
+
+    Assertions.assertThat(animeResponseEntity.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    Assertions.assertThat(animeResponseEntity.getBody()).contains("Field 'password' does not exist");
+  }
+
   @Test
   @DisplayName("List all returns list of anime inside when successful")
   void listAll_ReturnsListOfAnimes_WhenSuccessful() {
@@ -128,6 +200,21 @@ public class AnimeControlllerIT {
     Assertions.assertThat(animes.get(0).getName()).isEqualTo(expectedName);
   }
 
+  @Test
+  @DisplayName("List all returns 429 with retry after when user exceeds the endpoint budget")
+  void listAll_Returns429WithRetryAfter_WhenUserExceedsTheEndpointBudget() {
+    devDojoUserRepository.save(USER);
+
+    ResponseEntity<String> animeResponseEntity = testRestTemplateRoleUser.getForEntity("/animes/all", String.class);
+
+    for (int i = 0; i < 20 && animeResponseEntity.getStatusCode() == HttpStatus.OK; i++) {
+      animeResponseEntity = testRestTemplateRoleUser.getForEntity("/animes/all", String.class);
+    }
+
+    Assertions.assertThat(animeResponseEntity.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    Assertions.assertThat(animeResponseEntity.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isNotNull();
+  }
+
   @Test
   @DisplayName("Find by id returns anime when successful")
   void findById_ReturnsAnime_WhenSuccessful() {
@@ -203,6 +290,26 @@ public class AnimeControlllerIT {
     Assertions.assertThat(animeResponseEntity.getBody().getId()).isNotNull();
   }
 
+  @Test
+  @DisplayName("Save creates the anime once when a retry repeats the idempotency key")
+  void save_CreatesTheAnimeOnce_WhenARetryRepeatsTheIdempotencyKey() {
+    AnimePostRequestBody animeToBeSaved = AnimePostRequestBodyCreator.createAnimePostRequestBody();
+
+    devDojoUserRepository.save(USER);
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.set("Idempotency-Key", "7c1f3a52-create-naruto");
+    HttpEntity<AnimePostRequestBody> request = new HttpEntity<>(animeToBeSaved, headers);
+
+    ResponseEntity<Anime> first = testRestTemplateRoleUser.postForEntity("/animes", request, Anime.class);
+    ResponseEntity<Anime> retry = testRestTemplateRoleUser.postForEntity("/animes", request, Anime.class);
+
+    Assertions.assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+    Assertions.assertThat(retry.getHeaders().getFirst("Idempotent-Replayed")).isEqualTo("true");
+    Assertions.assertThat(retry.getBody()).isEqualTo(first.getBody());
+    Assertions.assertThat(animeRepository.count()).isEqualTo(1);
+  }
+
   @Test
   @DisplayName("Replace updates anime when successful")
   void replace_UpdatesAnime_WhenSuccessful() {
@@ -263,4 +370,28 @@ public class AnimeControlllerIT {
     Assertions.assertThat(animeResponseEntity).isNotNull();
     Assertions.assertThat(animeResponseEntity.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
   }
+
+  @Test
+  @DisplayName("Import animes saves valid CSV lines when user is admin")
+  void importAnimes_SavesValidCsvLines_WhenUserIsAdmin() {
+    devDojoUserRepository.save(ADMIN);
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.parseMediaType("text/csv"));
+
+    ResponseEntity<AnimeImportSummary> summaryResponseEntity = testRestTemplateRoleAdmin.exchange(
+            "/animes/admin/import",
+            HttpMethod.POST,
+            new HttpEntity<>("name\nOverlord\n\"\"\nBerserk\n", headers),
+            AnimeImportSummary.class
+    );
+
+    Assertions.assertThat(summaryResponseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+    Assertions.assertThat(summaryResponseEntity.getBody()).isNotNull();
+    Assertions.assertThat(summaryResponseEntity.getBody().accepted()).isEqualTo(2);
+    Assertions.assertThat(summaryResponseEntity.getBody().rejections())
+            .extracting(AnimeImportSummary.Rejection::line)
+            .containsExactly(3L);
+    Assertions.assertThat(animeRepository.findAll()).extracting(Anime::getName).containsExactlyInAnyOrder("Overlord", "Berserk");
+  }
 }
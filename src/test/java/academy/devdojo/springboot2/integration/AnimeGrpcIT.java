@@ -0,0 +1,96 @@
+package academy.devdojo.springboot2.integration;
+
+import academy.devdojo.springboot2.Springboot2EssentialsApplication;
+import academy.devdojo.springboot2.domain.DevDojoUser;
+import academy.devdojo.springboot2.grpc.AnimeGrpcServer;
+import academy.devdojo.springboot2.grpc.GrpcSecurityInterceptor;
+import academy.devdojo.springboot2.grpc.v1.Anime;
+import academy.devdojo.springboot2.grpc.v1.AnimeServiceGrpc;
+import academy.devdojo.springboot2.grpc.v1.CreateAnimeRequest;
+import academy.devdojo.springboot2.grpc.v1.DeleteAnimeRequest;
+import academy.devdojo.springboot2.grpc.v1.ListAnimesRequest;
+import academy.devdojo.springboot2.repository.DevDojoUserRepository;
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.MetadataUtils;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+@DisplayName("Anime gRPC service on its own port, authenticated against the application users")
+class AnimeGrpcIT {
+  private static final String PASSWORD = "{bcrypt}$2a$10$yQ26BMzmaaZviN0tdPZ6Xu/2RfdLMwDdPC7Kb/5hUw8FVNrtKhENy";
+
+  @TempDir
+  private Path index;
+  private ConfigurableApplicationContext context;
+  private ManagedChannel channel;
+
+  @BeforeEach
+  void setUp() {
+    context = new SpringApplicationBuilder(Springboot2EssentialsApplication.class).run(
+            "--server.port=0",
+            "--devdojo.grpc.port=0",
+            "--spring.datasource.url=jdbc:h2:mem:grpc;DB_CLOSE_DELAY=-1",
+            "--spring.datasource.driver-class-name=org.h2.Driver",
+            "--spring.datasource.username=sa",
+            "--spring.datasource.password=",
+            "--devdojo.search.index-path=" + index,
+            "--devdojo.warmup.enabled=false");
+    context.getBean(DevDojoUserRepository.class).save(DevDojoUser.builder().name("Luis").username("luissfmt")
+            .password(PASSWORD).authorities("ROLE_USER").build());
+    channel = Grpc.newChannelBuilderForAddress("localhost", context.getBean(AnimeGrpcServer.class).getPort(),
+            InsecureChannelCredentials.create()).build();
+  }
+
+  @AfterEach
+  void tearDown() {
+    channel.shutdownNow();
+    context.close();
+  }
+
+  @Test
+  @DisplayName("Anime gRPC service creates and streams animes for users and keeps deletes to admins")
+  void animeGrpcService_CreatesAndStreamsAnimesForUsersAndKeepsDeletesToAdmins() {
+    AnimeServiceGrpc.AnimeServiceBlockingStub stub = stub("luissfmt", "academy");
+
+    Anime naruto = stub.createAnime(CreateAnimeRequest.newBuilder().setName("Naruto").build());
+    Anime berserk = stub.createAnime(CreateAnimeRequest.newBuilder().setName("Berserk").build());
+
+    List<Anime> animes = new ArrayList<>();
+    stub.listAnimes(ListAnimesRequest.newBuilder().setPageSize(1).build()).forEachRemaining(animes::add);
+
+    Assertions.assertThat(animes).containsExactly(naruto, berserk);
+    Assertions.assertThatExceptionOfType(StatusRuntimeException.class)
+            .isThrownBy(() -> stub.deleteAnime(DeleteAnimeRequest.newBuilder().setId(naruto.getId()).build()))
+            .satisfies(e -> Assertions.assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.PERMISSION_DENIED));
+    Assertions.assertThatExceptionOfType(StatusRuntimeException.class)
+            .isThrownBy(() -> stub("luissfmt", "wrong").createAnime(CreateAnimeRequest.newBuilder().setName("Akira")
+                    .build()))
+            .satisfies(e -> Assertions.assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.UNAUTHENTICATED));
+  }
+
+  private AnimeServiceGrpc.AnimeServiceBlockingStub stub(String username, String password) {
+    Metadata headers = new Metadata();
+    headers.put(GrpcSecurityInterceptor.AUTHORIZATION, "Basic " + Base64.getEncoder()
+            .encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8)));
+
+    return AnimeServiceGrpc.newBlockingStub(channel)
+            .withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers));
+  }
+}
@@ -0,0 +1,80 @@
+package academy.devdojo.springboot2.integration;
+
+import academy.devdojo.springboot2.Springboot2EssentialsApplication;
+import academy.devdojo.springboot2.domain.Anime;
+import academy.devdojo.springboot2.requests.AnimePostRequestBody;
+import academy.devdojo.springboot2.requests.AnimePutRequestBody;
+import academy.devdojo.springboot2.service.AnimeService;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@DisplayName("Cache coherence between two nodes sharing one database")
+class CacheCoherenceIT {
+  @TempDir
+  private Path indexes;
+  private ConfigurableApplicationContext reader;
+  private ConfigurableApplicationContext writer;
+
+  @BeforeEach
+  void setUp() {
+    String url = "jdbc:h2:mem:coherence-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+
+    reader = startNode(url, "reader", true);
+    // Both nodes run in this JVM and would share one JCache manager, so only the reader caches
+    writer = startNode(url, "writer", false);
+  }
+
+  @AfterEach
+  void tearDown() {
+    writer.close();
+    reader.close();
+  }
+
+  @Test
+  @DisplayName("Replace on one node is seen by the cached reads of another node within the poll interval")
+  void replace_IsSeenByCachedReadsOfAnotherNode_WithinThePollInterval() throws InterruptedException {
+    AnimeService readerService = reader.getBean(AnimeService.class);
+    AnimeService writerService = writer.getBean(AnimeService.class);
+
+    Anime anime = writerService.save(AnimePostRequestBody.builder().name("Overlord").build());
+    Assertions.assertThat(readerService.findByIdOrThrowBadRequestException(anime.getId()).getName()).isEqualTo("Overlord");
+
+    writerService.replace(AnimePutRequestBody.builder().id(anime.getId()).name("Overlord II").build());
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    String name = readerService.findByIdOrThrowBadRequestException(anime.getId()).getName();
+
+    while (!name.equals("Overlord II") && System.nanoTime() < deadline) {
+      Thread.sleep(50);
+      name = readerService.findByIdOrThrowBadRequestException(anime.getId()).getName();
+    }
+
+    Assertions.assertThat(name).isEqualTo("Overlord II");
+    Assertions.assertThat(readerService.findByName("Overlord II")).extracting(Anime::getId).containsExactly(anime.getId());
+  }
+
+  private ConfigurableApplicationContext startNode(String url, String name, boolean secondLevelCache) {
+    return new SpringApplicationBuilder(Springboot2EssentialsApplication.class).run(
+            "--server.port=0",
+            "--devdojo.grpc.port=0",
+            "--spring.datasource.url=" + url,
+            "--spring.datasource.driver-class-name=org.h2.Driver",
+            "--spring.datasource.username=sa",
+            "--spring.datasource.password=",
+            "--spring.jpa.properties.hibernate.cache.use_second_level_cache=" + secondLevelCache,
+            "--spring.jpa.properties.hibernate.cache.use_query_cache=" + secondLevelCache,
+            "--devdojo.search.index-path=" + indexes.resolve(name),
+            "--devdojo.cache-coherence.poll-interval=100ms",
+            "--devdojo.warmup.enabled=false");
+  }
+}
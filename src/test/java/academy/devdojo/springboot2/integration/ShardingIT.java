@@ -0,0 +1,205 @@
+package academy.devdojo.springboot2.integration;
+
+import academy.devdojo.springboot2.Springboot2EssentialsApplication;
+import academy.devdojo.springboot2.datasource.ShardRoutingDataSource;
+import academy.devdojo.springboot2.domain.Anime;
+import academy.devdojo.springboot2.domain.AnimeChange;
+import academy.devdojo.springboot2.domain.DevDojoUser;
+import academy.devdojo.springboot2.event.AnimeChangedEvent;
+import academy.devdojo.springboot2.exception.BadRequestException;
+import academy.devdojo.springboot2.projection.AnimeView;
+import academy.devdojo.springboot2.repository.DevDojoUserRepository;
+import academy.devdojo.springboot2.requests.AnimePostRequestBody;
+import academy.devdojo.springboot2.requests.AnimePutRequestBody;
+import academy.devdojo.springboot2.service.AnimeService;
+import academy.devdojo.springboot2.shard.AnimeShards;
+import academy.devdojo.springboot2.sync.AnimeChanges;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+@DisplayName("Anime storage hash-sharded across three databases")
+class ShardingIT {
+  private static final String PASSWORD = "{bcrypt}$2a$10$yQ26BMzmaaZviN0tdPZ6Xu/2RfdLMwDdPC7Kb/5hUw8FVNrtKhENy";
+  private static final List<String> NAMES = List.of("Naruto", "Berserk", "Overlord", "Akira", "Monster", "Trigun",
+          "Hajime no Ippo", "Cowboy Bebop", "Vinland Saga", "Mushishi", "Haikyuu", "Frieren");
+
+  @TempDir
+  private Path index;
+  private final List<String> urls = new ArrayList<>();
+  private ConfigurableApplicationContext context;
+  private AnimeService animeService;
+  private AnimeShards animeShards;
+
+  @BeforeEach
+  void setUp() {
+    String run = UUID.randomUUID().toString();
+    IntStream.range(0, 3).forEach(shard -> urls.add("jdbc:h2:mem:shard-%d-%s;DB_CLOSE_DELAY=-1".formatted(shard, run)));
+
+    context = new SpringApplicationBuilder(Springboot2EssentialsApplication.class).run(
+            "--server.port=0",
+            "--devdojo.grpc.port=0",
+            "--spring.datasource.url=" + urls.get(0),
+            "--spring.datasource.driver-class-name=org.h2.Driver",
+            "--spring.datasource.username=sa",
+            "--spring.datasource.password=",
+            "--devdojo.datasource.sharding.enabled=true",
+            "--devdojo.datasource.sharding.id-block-size=5",
+            "--devdojo.datasource.sharding.shards[0].url=" + urls.get(1),
+            "--devdojo.datasource.sharding.shards[0].username=sa",
+            "--devdojo.datasource.sharding.shards[1].url=" + urls.get(2),
+            "--devdojo.datasource.sharding.shards[1].username=sa",
+            "--devdojo.change-log.settle-window=3s",
+            "--devdojo.change-log.commit-timeout=2",
+            "--devdojo.search.index-path=" + index,
+            "--devdojo.warmup.enabled=false");
+    animeService = context.getBean(AnimeService.class);
+    animeShards = context.getBean(AnimeShards.class);
+  }
+
+  @AfterEach
+  void tearDown() {
+    context.close();
+  }
+
+  @Test
+  @DisplayName("Save stores every anime once, on the shard its id hashes to")
+  void save_StoresEveryAnimeOnce_OnTheShardItsIdHashesTo() {
+    List<Anime> saved = saveAll();
+
+    for (Anime anime : saved) {
+      int shard = animeShards.shardOf(anime.getId());
+
+      for (int other = 0; other < urls.size(); other++) {
+        Assertions.assertThat(countOnShard(other, anime.getId())).isEqualTo(other == shard ? 1 : 0);
+      }
+    }
+
+    Assertions.assertThat(saved).extracting(Anime::getId).doesNotHaveDuplicates();
+    Assertions.assertThat(IntStream.range(0, urls.size()).map(this::countOnShard)).allMatch(count -> count > 0);
+  }
+
+  @Test
+  @DisplayName("Point operations find, replace and delete the anime on its shard")
+  void pointOperations_FindReplaceAndDeleteTheAnimeOnItsShard() {
+    List<Anime> saved = saveAll();
+
+    for (Anime anime : saved) {
+      Assertions.assertThat(animeService.findByIdOrThrowBadRequestException(anime.getId()).getName())
+              .isEqualTo(anime.getName());
+    }
+
+    Anime anime = saved.get(5);
+    animeService.replace(AnimePutRequestBody.builder().id(anime.getId()).name("Monster 2").build());
+    Assertions.assertThat(animeService.findByName("Monster 2")).extracting(Anime::getId).containsExactly(anime.getId());
+
+    animeService.delete(anime.getId());
+    Assertions.assertThatExceptionOfType(BadRequestException.class)
+            .isThrownBy(() -> animeService.findByIdOrThrowBadRequestException(anime.getId()));
+    Assertions.assertThat(animeService.listAllNonPageable()).hasSize(NAMES.size() - 1);
+  }
+
+  @Test
+  @DisplayName("List all merges the shards in the requested order and sums their totals")
+  void listAll_MergesTheShardsInTheRequestedOrderAndSumsTheirTotals() {
+    saveAll();
+    List<String> sortedNames = NAMES.stream().sorted(Comparator.reverseOrder()).toList();
+
+    Page<AnimeView> firstPage = animeService.listAll(PageRequest.of(0, 5, Sort.by(Sort.Direction.DESC, "name")));
+    Page<AnimeView> lastPage = animeService.listAll(PageRequest.of(2, 5, Sort.by(Sort.Direction.DESC, "name")));
+
+    Assertions.assertThat(firstPage.getTotalElements()).isEqualTo(NAMES.size());
+    Assertions.assertThat(firstPage.getContent()).extracting(AnimeView::name).isEqualTo(sortedNames.subList(0, 5));
+    Assertions.assertThat(lastPage.getContent()).extracting(AnimeView::name).isEqualTo(sortedNames.subList(10, 12));
+    Assertions.assertThat(animeService.listAllNonPageable()).extracting(AnimeView::id).isSorted().hasSize(NAMES.size());
+  }
+
+  @Test
+  @DisplayName("Find all by id returns the animes of every shard in request order")
+  void findAllById_ReturnsTheAnimesOfEveryShardInRequestOrder() {
+    List<Long> ids = new ArrayList<>(saveAll().stream().map(Anime::getId).toList());
+    ids.sort(Comparator.reverseOrder());
+    ids.add(-1L);
+
+    Assertions.assertThat(animeService.findAllById(ids).animes()).extracting(Anime::getId)
+            .containsExactlyElementsOf(ids.subList(0, NAMES.size()));
+    Assertions.assertThat(animeService.findAllById(ids).missingIds()).containsExactly(-1L);
+  }
+
+  @Test
+  @DisplayName("Changes lists the writes of every shard once, in one sequence kept next to each anime")
+  void changes_ListsTheWritesOfEveryShardOnce_InOneSequenceKeptNextToEachAnime() throws InterruptedException {
+    context.getBean(DevDojoUserRepository.class).save(DevDojoUser.builder().name("Luis").username("luissfmt")
+            .password(PASSWORD).authorities("ROLE_USER").build());
+    List<Anime> saved = saveAll();
+    Anime remote = saved.stream()
+            .filter(anime -> animeShards.shardOf(anime.getId()) != ShardRoutingDataSource.HOME_SHARD)
+            .findFirst()
+            .orElseThrow();
+    animeService.replace(AnimePutRequestBody.builder().id(remote.getId()).name("Monster 2").build());
+
+    AnimeChanges changes = awaitSettledChanges(NAMES.size() + 1);
+
+    Assertions.assertThat(changes.changes()).extracting(AnimeChange::getAnimeId)
+            .containsExactlyInAnyOrderElementsOf(saved.stream().map(Anime::getId).toList());
+    Assertions.assertThat(changes.changes()).last()
+            .satisfies(change -> Assertions.assertThat(change.getAnimeId()).isEqualTo(remote.getId()))
+            .satisfies(change -> Assertions.assertThat(change.getType()).isEqualTo(AnimeChangedEvent.Type.REPLACED))
+            .satisfies(change -> Assertions.assertThat(change.getName()).isEqualTo("Monster 2"));
+    Assertions.assertThat(changes.nextToken()).isEqualTo(NAMES.size() + 1);
+    Assertions.assertThat(shard(animeShards.shardOf(remote.getId()))
+            .queryForObject("select count(*) from anime_change where anime_id = ?", Integer.class, remote.getId()))
+            .isEqualTo(2);
+  }
+
+  private AnimeChanges awaitSettledChanges(long token) throws InterruptedException {
+    String url = "http://localhost:%s/animes/changes?since=0".formatted(context.getEnvironment()
+            .getProperty("local.server.port"));
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    AnimeChanges changes;
+
+    do {
+      Thread.sleep(100);
+      changes = new TestRestTemplate().withBasicAuth("luissfmt", "academy").getForObject(url, AnimeChanges.class);
+    } while (changes.nextToken() < token && System.nanoTime() < deadline);
+
+    return changes;
+  }
+
+  private List<Anime> saveAll() {
+    return NAMES.stream()
+            .map(name -> animeService.save(AnimePostRequestBody.builder().name(name).build()))
+            .toList();
+  }
+
+  private int countOnShard(int shard) {
+    return shard(shard).queryForObject("select count(*) from anime", Integer.class);
+  }
+
+  private int countOnShard(int shard, long id) {
+    return shard(shard).queryForObject("select count(*) from anime where id = ?", Integer.class, id);
+  }
+
+  private JdbcTemplate shard(int shard) {
+    return new JdbcTemplate(new DriverManagerDataSource(urls.get(shard), "sa", ""));
+  }
+}
@@ -0,0 +1,65 @@
+package academy.devdojo.springboot2.integration;
+
+import academy.devdojo.springboot2.Springboot2EssentialsApplication;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@DisplayName("Warm-up before accepting traffic")
+class WarmupIT {
+  @TempDir
+  private Path index;
+
+  @Test
+  @DisplayName("Readiness accepts traffic only after the warm-up calls were made")
+  void readiness_AcceptsTrafficOnlyAfterTheWarmupCallsWereMade() {
+    List<Map.Entry<ReadinessState, Double>> readinessChanges = new CopyOnWriteArrayList<>();
+
+    ApplicationListener<AvailabilityChangeEvent<?>> recorder = event -> {
+      if (event.getState() == ReadinessState.ACCEPTING_TRAFFIC && event.getSource() instanceof ApplicationContext context) {
+        Counter listCalls = context.getBean(MeterRegistry.class).find("startup.warmup.calls").tag("operation", "list").counter();
+        readinessChanges.add(Map.entry(ReadinessState.ACCEPTING_TRAFFIC, listCalls == null ? 0.0 : listCalls.count()));
+      } else if (event.getState() instanceof ReadinessState state) {
+        readinessChanges.add(Map.entry(state, 0.0));
+      }
+    };
+
+    try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Springboot2EssentialsApplication.class)
+            .listeners(recorder)
+            .run("--server.port=0",
+                    "--devdojo.grpc.port=0",
+                    "--spring.datasource.url=jdbc:h2:mem:warmup;DB_CLOSE_DELAY=-1",
+                    "--spring.datasource.driver-class-name=org.h2.Driver",
+                    "--spring.datasource.username=sa",
+                    "--spring.datasource.password=",
+                    "--devdojo.search.index-path=" + index,
+                    "--devdojo.warmup.iterations=50",
+                    "--devdojo.warmup.http-requests=20",
+                    "--devdojo.warmup.authenticated-http-requests=2")) {
+      MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+
+      Assertions.assertThat(readinessChanges).containsExactly(
+              Map.entry(ReadinessState.REFUSING_TRAFFIC, 0.0),
+              Map.entry(ReadinessState.ACCEPTING_TRAFFIC, 50.0));
+      Assertions.assertThat(meterRegistry.get("startup.warmup.calls").tag("operation", "http").counter().count())
+              .isEqualTo(20);
+      Assertions.assertThat(meterRegistry.find("startup.warmup.calls").tag("result", "failure").counters()).isEmpty();
+      Assertions.assertThat(meterRegistry.get("startup.warmup.duration").tag("outcome", "completed").timer().count())
+              .isEqualTo(1);
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package academy.devdojo.springboot2.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.nio.charset.StandardCharsets;
+
+@DisplayName("Tests for Json Line Encoder")
+class JsonLineEncoderTest {
+  private final LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+  private final JsonLineEncoder encoder = new JsonLineEncoder();
+
+  @AfterEach
+  void tearDown() {
+    MDC.clear();
+  }
+
+  @Test
+  @DisplayName("Encode writes one json line with formatted message, mdc fields and exception when successful")
+  void encode_WritesOneJsonLineWithFormattedMessageMdcFieldsAndException_WhenSuccessful() throws Exception {
+    MDC.put(CorrelationIdFilter.MDC_KEY, "abc-123");
+    LoggingEvent event = new LoggingEvent(JsonLineEncoderTest.class.getName(),
+            loggerContext.getLogger("academy.devdojo"), Level.WARN, "Anime \"{}\" not found",
+            new IllegalStateException("boom"), new Object[]{"Naruto\n"});
+
+    String line = new String(encoder.encode(event), StandardCharsets.UTF_8);
+    JsonNode json = new ObjectMapper().readTree(line);
+
+    Assertions.assertThat(line).endsWith("}\n").containsOnlyOnce("\n");
+    Assertions.assertThat(json.get("level").asText()).isEqualTo("WARN");
+    Assertions.assertThat(json.get("logger").asText()).isEqualTo("academy.devdojo");
+    Assertions.assertThat(json.get("message").asText()).isEqualTo("Anime \"Naruto\n\" not found");
+    Assertions.assertThat(json.get("correlationId").asText()).isEqualTo("abc-123");
+    Assertions.assertThat(json.get("exception").asText()).startsWith("java.lang.IllegalStateException: boom");
+  }
+}
@@ -0,0 +1,85 @@
+package academy.devdojo.springboot2.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@DisplayName("Tests for Metered Async Appender")
+class MeteredAsyncAppenderTest {
+  private final LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+  private final Logger logger = loggerContext.getLogger(MeteredAsyncAppenderTest.class);
+  private final CountDownLatch consoleAvailable = new CountDownLatch(1);
+  private final CountDownLatch firstEventTaken = new CountDownLatch(1);
+  private MeteredAsyncAppender appender;
+
+  @BeforeEach
+  void setUp() {
+    AppenderBase<ILoggingEvent> stalledConsole = new AppenderBase<>() {
+      @Override
+      protected void append(ILoggingEvent event) {
+        firstEventTaken.countDown();
+
+        try {
+          consoleAvailable.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+    stalledConsole.setContext(loggerContext);
+    stalledConsole.start();
+
+    appender = new MeteredAsyncAppender();
+    appender.setContext(loggerContext);
+    appender.setQueueSize(4);
+    appender.setDiscardingThreshold(2);
+    appender.setNeverBlock(true);
+    appender.addAppender(stalledConsole);
+    appender.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    consoleAvailable.countDown();
+    appender.stop();
+  }
+
+  @Test
+  @DisplayName("Append drops and counts events instead of blocking when the output is stalled")
+  void append_DropsAndCountsEventsInsteadOfBlocking_WhenTheOutputIsStalled() throws InterruptedException {
+    appender.doAppend(event(Level.INFO));
+    Assertions.assertThat(firstEventTaken.await(5, TimeUnit.SECONDS)).isTrue();
+
+    long started = System.nanoTime();
+
+    // Three INFO events fill the queue below the discarding threshold, so the fourth is discarded; WARN is still
+    // queued until the queue is full and only the one after that is lost
+    appender.doAppend(event(Level.INFO));
+    appender.doAppend(event(Level.INFO));
+    appender.doAppend(event(Level.INFO));
+    appender.doAppend(event(Level.INFO));
+    appender.doAppend(event(Level.WARN));
+    appender.doAppend(event(Level.WARN));
+
+    Assertions.assertThat(System.nanoTime() - started).isLessThan(TimeUnit.SECONDS.toNanos(1));
+    Assertions.assertThat(appender.getDiscardedCount()).isEqualTo(1);
+    Assertions.assertThat(appender.getOverflowedCount()).isEqualTo(1);
+    Assertions.assertThat(appender.getNumberOfElementsInQueue()).isEqualTo(4);
+  }
+
+  private ILoggingEvent event(Level level) {
+    return new LoggingEvent(MeteredAsyncAppenderTest.class.getName(), logger, level, "message", null, null);
+  }
+}
@@ -0,0 +1,94 @@
+package academy.devdojo.springboot2.pagination;
+
+import academy.devdojo.springboot2.exception.BadRequestException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.Map;
+
+@DisplayName("Tests for Guarded Pageable Resolver")
+class GuardedPageableResolverTest {
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private GuardedPageableResolver resolver;
+  private MockHttpServletRequest request;
+
+  @BeforeEach
+  void setUp() {
+    PaginationProperties properties = new PaginationProperties();
+    properties.setMaxPageSize(100);
+    properties.setSortableProperties(Map.of("id", "id", "title", "name"));
+    resolver = new GuardedPageableResolver(properties, meterRegistry);
+    request = new MockHttpServletRequest();
+  }
+
+  @Test
+  @DisplayName("Resolve argument returns fallback page sorted by id when no parameters are given")
+  void resolveArgument_ReturnsFallbackPageSortedById_WhenNoParametersAreGiven() {
+    Pageable pageable = resolve();
+
+    Assertions.assertThat(pageable.getPageNumber()).isZero();
+    Assertions.assertThat(pageable.getPageSize()).isEqualTo(5);
+    Assertions.assertThat(pageable.getSort()).isEqualTo(Sort.by("id"));
+  }
+
+  @Test
+  @DisplayName("Resolve argument clamps page size and counts it when size exceeds the maximum")
+  void resolveArgument_ClampsPageSizeAndCountsIt_WhenSizeExceedsTheMaximum() {
+    request.setParameter("size", "100000");
+
+    Assertions.assertThat(resolve().getPageSize()).isEqualTo(100);
+    Assertions.assertThat(adjustments("size", "clamped")).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Resolve argument maps whitelisted sort to the indexed property and appends the id when successful")
+  void resolveArgument_MapsWhitelistedSortToTheIndexedPropertyAndAppendsTheId_WhenSuccessful() {
+    request.setParameter("sort", "title,desc", "title,asc,ignorecase");
+
+    Assertions.assertThat(resolve().getSort()).isEqualTo(Sort.by(Sort.Order.desc("name"), Sort.Order.asc("id")));
+    Assertions.assertThat(adjustments("sort", "clamped")).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Resolve argument throws bad request exception and counts it when sort property is not whitelisted")
+  void resolveArgument_ThrowsBadRequestExceptionAndCountsIt_WhenSortPropertyIsNotWhitelisted() {
+    request.setParameter("sort", "name");
+
+    Assertions.assertThatExceptionOfType(BadRequestException.class)
+            .isThrownBy(this::resolve)
+            .withMessageStartingWith("Sorting by 'name' is not supported");
+    Assertions.assertThat(adjustments("sort", "rejected")).isEqualTo(1);
+  }
+
+  private Pageable resolve() {
+    return resolver.resolveArgument(pageableParameter(), null, new ServletWebRequest(request), null);
+  }
+
+  private double adjustments(String parameter, String outcome) {
+    return meterRegistry.get("http.pageable.adjustments")
+            .tag("parameter", parameter)
+            .tag("outcome", outcome)
+            .counter()
+            .count();
+  }
+
+  private static MethodParameter pageableParameter() {
+    try {
+      return new MethodParameter(GuardedPageableResolverTest.class.getDeclaredMethod("list", Pageable.class), 0);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @SuppressWarnings("unused")
+  private void list(Pageable pageable) {
+  }
+}
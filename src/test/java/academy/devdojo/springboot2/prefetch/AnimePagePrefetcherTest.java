@@ -0,0 +1,171 @@
+package academy.devdojo.springboot2.prefetch;
+
+import academy.devdojo.springboot2.event.AnimeChangedEvent;
+import academy.devdojo.springboot2.fieldset.AnimeFieldset;
+import academy.devdojo.springboot2.projection.AnimeView;
+import academy.devdojo.springboot2.util.AnimeCreator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+@DisplayName("Tests for Anime Page Prefetcher")
+class AnimePagePrefetcherTest {
+  private static final Instant NOW = Instant.parse("2026-10-19T10:00:00Z");
+  private static final int TOTAL = 100;
+
+  private final PagePrefetchProperties properties = new PagePrefetchProperties();
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final Clock clock = Mockito.mock(Clock.class);
+  private final Map<Integer, AtomicInteger> loads = new ConcurrentHashMap<>();
+  private AnimePagePrefetcher prefetcher;
+
+  @BeforeEach
+  void setUp() {
+    BDDMockito.when(clock.instant()).thenReturn(NOW);
+    prefetcher = new AnimePagePrefetcher(properties, meterRegistry, clock);
+    prefetcher.afterPropertiesSet();
+  }
+
+  @AfterEach
+  void tearDown() {
+    SecurityContextHolder.clearContext();
+    prefetcher.destroy();
+  }
+
+  @Test
+  @DisplayName("Load serves the next page from the prefetch when a client pages sequentially")
+  void load_ServesTheNextPageFromThePrefetch_WhenAClientPagesSequentially() {
+    load(0);
+    load(1);
+    Page<AnimeView> third = load(2);
+
+    Assertions.assertThat(third.getContent()).extracting(AnimeView::id).containsExactly(21L, 22L, 23L, 24L, 25L,
+            26L, 27L, 28L, 29L, 30L);
+    Assertions.assertThat(loads.get(2)).hasValue(1);
+    Assertions.assertThat(requests("hit")).isEqualTo(1);
+    Assertions.assertThat(requests("miss")).isEqualTo(2);
+    Assertions.assertThat(prefetches("used")).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Load does not prefetch when the client jumps between pages")
+  void load_DoesNotPrefetch_WhenTheClientJumpsBetweenPages() {
+    load(0);
+    load(5);
+    load(2);
+
+    Assertions.assertThat(loads).containsOnlyKeys(0, 5, 2);
+    Assertions.assertThat(rows()).isZero();
+  }
+
+  @Test
+  @DisplayName("Load reads the page again when the prefetch expired")
+  void load_ReadsThePageAgain_WhenThePrefetchExpired() {
+    load(0);
+    load(1);
+    BDDMockito.when(clock.instant()).thenReturn(NOW.plus(properties.getTtl()));
+    load(2);
+
+    Assertions.assertThat(requests("hit")).isZero();
+    Assertions.assertThat(requests("miss")).isEqualTo(3);
+    Assertions.assertThat(prefetches("wasted")).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Load reads the page again when an anime was written after the prefetch")
+  void load_ReadsThePageAgain_WhenAnAnimeWasWrittenAfterThePrefetch() {
+    load(0);
+    load(1);
+    prefetcher.onAnimeChanged(new AnimeChangedEvent(AnimeChangedEvent.Type.CREATED, AnimeCreator.createValidAnime()));
+    load(2);
+
+    Assertions.assertThat(requests("miss")).isEqualTo(3);
+    Assertions.assertThat(prefetches("invalidated")).isEqualTo(1);
+    Assertions.assertThat(rows()).isEqualTo(10);
+  }
+
+  @Test
+  @DisplayName("Load does not prefetch when prefetched pages would exceed the max rows")
+  void load_DoesNotPrefetch_WhenPrefetchedPagesWouldExceedTheMaxRows() {
+    properties.setMaxRows(9);
+
+    load(0);
+    load(1);
+
+    Assertions.assertThat(loads).containsOnlyKeys(0, 1);
+    Assertions.assertThat(prefetches("rejected")).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Load does not prefetch past the last page")
+  void load_DoesNotPrefetchPastTheLastPage() {
+    load(8);
+    load(9);
+
+    Assertions.assertThat(loads).containsOnlyKeys(8, 9);
+    Assertions.assertThat(rows()).isZero();
+  }
+
+  @Test
+  @DisplayName("Load prefetches with the security context of the client")
+  void load_PrefetchesWithTheSecurityContextOfTheClient() {
+    Map<Integer, String> users = new ConcurrentHashMap<>();
+    SecurityContextHolder.getContext().setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+            "luissfmt", null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+
+    for (int page = 0; page < 3; page++) {
+      prefetcher.load(PageRequest.of(page, 10), AnimeFieldset.ALL, pageable -> {
+        users.put(pageable.getPageNumber(), SecurityContextHolder.getContext().getAuthentication().getName());
+        return query(pageable);
+      });
+    }
+
+    Assertions.assertThat(requests("hit")).isEqualTo(1);
+    Assertions.assertThat(users).containsEntry(2, "luissfmt");
+  }
+
+  private Page<AnimeView> load(int page) {
+    return prefetcher.load(PageRequest.of(page, 10), AnimeFieldset.ALL, this::query);
+  }
+
+  private Page<AnimeView> query(Pageable pageable) {
+    loads.computeIfAbsent(pageable.getPageNumber(), ignored -> new AtomicInteger()).incrementAndGet();
+    List<AnimeView> animes = LongStream.range(pageable.getOffset(), pageable.getOffset() + pageable.getPageSize())
+            .mapToObj(id -> new AnimeView(id + 1, "Anime " + (id + 1)))
+            .toList();
+
+    return new PageImpl<>(animes, pageable, TOTAL);
+  }
+
+  private double requests(String result) {
+    return meterRegistry.get("anime.prefetch.requests").tag("result", result).counter().count();
+  }
+
+  private double prefetches(String outcome) {
+    return meterRegistry.get("anime.prefetch.pages").tag("outcome", outcome).counter().count();
+  }
+
+  private double rows() {
+    return meterRegistry.get("anime.prefetch.rows").gauge().value();
+  }
+}
@@ -0,0 +1,68 @@
+package academy.devdojo.springboot2.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.util.concurrent.TimeUnit;
+
+@DisplayName("Tests for Rate Limiter")
+class RateLimiterTest {
+  private final RateLimitProperties properties = new RateLimitProperties();
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private RateLimiter rateLimiter;
+
+  @BeforeEach
+  void setUp() {
+    RateLimitProperties.Budget budget = new RateLimitProperties.Budget();
+    budget.setCapacity(1);
+    budget.setRefillPerSecond(1000);
+    properties.getBudgets().put("USER", budget);
+    properties.setMaxBuckets(2);
+    rateLimiter = new RateLimiter(properties, meterRegistry);
+  }
+
+  @Test
+  @DisplayName("Try acquire counts admitted and rejected requests per endpoint and role")
+  void tryAcquire_CountsAdmittedAndRejectedRequestsPerEndpointAndRole() {
+    properties.getBudgets().get("USER").setRefillPerSecond(1);
+
+    Assertions.assertThat(rateLimiter.tryAcquire(user("luissfmt"), "GET", "/animes")).isZero();
+    Assertions.assertThat(rateLimiter.tryAcquire(user("luissfmt"), "GET", "/animes")).isPositive();
+
+    Assertions.assertThat(requests("admitted")).isEqualTo(1);
+    Assertions.assertThat(requests("rejected")).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Sweep drops the buckets of idle users only once more than the max buckets are tracked")
+  void sweep_DropsTheBucketsOfIdleUsers_OnlyOnceMoreThanTheMaxBucketsAreTracked() throws InterruptedException {
+    rateLimiter.tryAcquire(user("luissfmt"), "GET", "/animes");
+    TimeUnit.MILLISECONDS.sleep(5);
+    rateLimiter.sweep();
+
+    Assertions.assertThat(rateLimiter.bucketCount()).isEqualTo(1);
+
+    rateLimiter.tryAcquire(user("devdojo"), "GET", "/animes");
+    rateLimiter.tryAcquire(user("william"), "GET", "/animes");
+    TimeUnit.MILLISECONDS.sleep(5);
+    rateLimiter.sweep();
+
+    Assertions.assertThat(rateLimiter.bucketCount()).isZero();
+  }
+
+  private double requests(String result) {
+    return meterRegistry.get("http.rate.limit.requests").tag("endpoint", "default").tag("role", "USER")
+            .tag("result", result).counter().count();
+  }
+
+  private static Authentication user(String username) {
+    return UsernamePasswordAuthenticationToken.authenticated(username, null,
+            AuthorityUtils.createAuthorityList("ROLE_USER"));
+  }
+}
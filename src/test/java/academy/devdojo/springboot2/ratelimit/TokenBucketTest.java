@@ -0,0 +1,46 @@
+package academy.devdojo.springboot2.ratelimit;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+@DisplayName("Tests for Token Bucket")
+class TokenBucketTest {
+  private static final long NOW = 1_000_000_000L;
+
+  @Test
+  @DisplayName("Try consume admits a burst up to capacity when bucket is full")
+  void tryConsume_AdmitsBurstUpToCapacity_WhenBucketIsFull() {
+    TokenBucket tokenBucket = new TokenBucket(3, 1, NOW);
+
+    Assertions.assertThat(tokenBucket.tryConsume(NOW)).isZero();
+    Assertions.assertThat(tokenBucket.tryConsume(NOW)).isZero();
+    Assertions.assertThat(tokenBucket.tryConsume(NOW)).isZero();
+    Assertions.assertThat(tokenBucket.tryConsume(NOW)).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+  }
+
+  @Test
+  @DisplayName("Try consume admits again after refill interval when bucket was empty")
+  void tryConsume_AdmitsAgainAfterRefillInterval_WhenBucketWasEmpty() {
+    TokenBucket tokenBucket = new TokenBucket(1, 2, NOW);
+    long halfSecond = TimeUnit.MILLISECONDS.toNanos(500);
+
+    Assertions.assertThat(tokenBucket.tryConsume(NOW)).isZero();
+    Assertions.assertThat(tokenBucket.tryConsume(NOW + halfSecond / 2)).isEqualTo(halfSecond / 2);
+    Assertions.assertThat(tokenBucket.tryConsume(NOW + halfSecond)).isZero();
+  }
+
+  @Test
+  @DisplayName("Is full returns true when bucket has been idle long enough")
+  void isFull_ReturnsTrue_WhenBucketHasBeenIdleLongEnough() {
+    TokenBucket tokenBucket = new TokenBucket(2, 1, NOW);
+
+    tokenBucket.tryConsume(NOW);
+    tokenBucket.tryConsume(NOW);
+
+    Assertions.assertThat(tokenBucket.isFull(NOW)).isFalse();
+    Assertions.assertThat(tokenBucket.isFull(NOW + TimeUnit.SECONDS.toNanos(2))).isTrue();
+  }
+}
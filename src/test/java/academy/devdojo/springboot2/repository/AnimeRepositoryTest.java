@@ -1,6 +1,7 @@
 package academy.devdojo.springboot2.repository;
 
 import academy.devdojo.springboot2.domain.Anime;
+import academy.devdojo.springboot2.projection.AnimeView;
 import academy.devdojo.springboot2.util.AnimeCreator;
 import jakarta.validation.ConstraintViolationException;
 import org.assertj.core.api.Assertions;
@@ -8,9 +9,13 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @DataJpaTest
 @DisplayName("Tests for Anime Repository")
@@ -80,6 +85,57 @@ class AnimeRepositoryTest {
     Assertions.assertThat(animes).isEmpty();
   }
 
+  @Test
+  @DisplayName("Find all by id keeping order returns animes in request order skipping missing ids")
+  void findAllByIdKeepingOrder_ReturnsAnimesInRequestOrderSkippingMissingIds() {
+    Anime first = this.animeRepository.save(AnimeCreator.createAnimeToBeSaved());
+    Anime second = this.animeRepository.save(Anime.builder().name("Overlord").build());
+
+    List<Anime> animes = this.animeRepository.findAllByIdKeepingOrder(List.of(second.getId(), 999L, first.getId()));
+
+    Assertions.assertThat(animes).containsExactly(second, first);
+  }
+
+  @Test
+  @DisplayName("Find all views returns unmanaged projections when successful")
+  void findAllViews_ReturnsUnmanagedProjections_WhenSuccessful() {
+    Anime savedAnime = this.animeRepository.save(AnimeCreator.createAnimeToBeSaved());
+
+    Page<AnimeView> animeViews = this.animeRepository.findAllViews(PageRequest.of(0, 10));
+
+    Assertions.assertThat(animeViews.getContent()).containsExactly(new AnimeView(savedAnime.getId(), savedAnime.getName()));
+    Assertions.assertThat(animeViews.getTotalElements()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Find views after returns the animes after the id in id order up to the page size")
+  void findViewsAfter_ReturnsTheAnimesAfterTheIdInIdOrderUpToThePageSize() {
+    Anime berserk = this.animeRepository.save(Anime.builder().name("Berserk").build());
+    Anime akira = this.animeRepository.save(Anime.builder().name("Akira").build());
+    Anime overlord = this.animeRepository.save(Anime.builder().name("Overlord").build());
+
+    List<AnimeView> animeViews = this.animeRepository.findViewsAfter(berserk.getId(), PageRequest.of(0, 1));
+
+    Assertions.assertThat(animeViews).containsExactly(new AnimeView(akira.getId(), "Akira"));
+    Assertions.assertThat(this.animeRepository.findViewsAfter(akira.getId(), PageRequest.of(0, 5)))
+            .containsExactly(new AnimeView(overlord.getId(), "Overlord"));
+  }
+
+  @Test
+  @DisplayName("Find all views selects only the requested columns in the requested order when successful")
+  void findAllViews_SelectsOnlyTheRequestedColumnsInTheRequestedOrder_WhenSuccessful() {
+    Anime berserk = this.animeRepository.save(Anime.builder().name("Berserk").build());
+    Anime akira = this.animeRepository.save(Anime.builder().name("Akira").build());
+
+    Page<AnimeView> animeViews = this.animeRepository.findAllViews(Set.of("id"),
+            PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "id")));
+
+    Assertions.assertThat(animeViews.getContent()).containsExactly(new AnimeView(akira.getId(), null));
+    Assertions.assertThat(animeViews.getTotalElements()).isEqualTo(2);
+    Assertions.assertThat(this.animeRepository.findAllViews(Set.of("id", "name")))
+            .containsExactlyInAnyOrder(new AnimeView(berserk.getId(), "Berserk"), new AnimeView(akira.getId(), "Akira"));
+  }
+
   @Test
   @DisplayName("Save throws ConstraintViolationException when name is empty")
   void save_ThrowsConstraintViolationException_WhenNameIsEmpty() {
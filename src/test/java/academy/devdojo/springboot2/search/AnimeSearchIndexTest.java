@@ -0,0 +1,140 @@
+package academy.devdojo.springboot2.search;
+
+import academy.devdojo.springboot2.datasource.ShardingProperties;
+import academy.devdojo.springboot2.domain.Anime;
+import academy.devdojo.springboot2.event.AnimeChangedEvent;
+import academy.devdojo.springboot2.event.AnimesChangedEvent;
+import academy.devdojo.springboot2.repository.AnimeRepository;
+import academy.devdojo.springboot2.shard.AnimeShards;
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+@DisplayName("Tests for Anime Search Index")
+class AnimeSearchIndexTest {
+  @TempDir
+  Path indexPath;
+  private final AnimeSearchProperties properties = new AnimeSearchProperties();
+  private AnimeRepository animeRepositoryMock;
+  private AnimeSearchIndex animeSearchIndex;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    properties.setIndexPath(indexPath);
+
+    animeRepositoryMock = Mockito.mock(AnimeRepository.class);
+    animeSearchIndex = new AnimeSearchIndex(properties, animeRepositoryMock, new AnimeShards(new ShardingProperties(),
+            Mockito.mock(PlatformTransactionManager.class), null, null),
+            Mockito.mock(EntityManager.class), Mockito.mock(PlatformTransactionManager.class));
+    animeSearchIndex.afterPropertiesSet();
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    animeSearchIndex.destroy();
+  }
+
+  @Test
+  @DisplayName("Search finds anime ignoring accents and case when anime was indexed")
+  void search_FindsAnimeIgnoringAccentsAndCase_WhenAnimeWasIndexed() {
+    index(Anime.builder().id(1L).name("Pokémon").build());
+
+    Page<Anime> animePage = animeSearchIndex.search("POKEMON", PageRequest.of(0, 5));
+
+    Assertions.assertThat(animePage.getTotalElements()).isEqualTo(1);
+    Assertions.assertThat(animePage.toList().get(0).getName()).isEqualTo("Pokémon");
+  }
+
+  @Test
+  @DisplayName("Search ranks exact word matches before prefix matches")
+  void search_RanksExactWordMatchesBeforePrefixMatches() {
+    index(Anime.builder().id(1L).name("Overlord II").build());
+    index(Anime.builder().id(2L).name("Over").build());
+
+    Page<Anime> animePage = animeSearchIndex.search("over", PageRequest.of(0, 5));
+
+    Assertions.assertThat(animePage.toList()).extracting(Anime::getId).containsExactly(2L, 1L);
+  }
+
+  @Test
+  @DisplayName("Search does not return anime when anime was deleted")
+  void search_DoesNotReturnAnime_WhenAnimeWasDeleted() {
+    Anime anime = Anime.builder().id(1L).name("Hajime no Ippo").build();
+    index(anime);
+
+    animeSearchIndex.onAnimeChanged(new AnimeChangedEvent(AnimeChangedEvent.Type.DELETED, anime));
+    animeSearchIndex.refresh();
+
+    Assertions.assertThat(animeSearchIndex.search("ippo", PageRequest.of(0, 5))).isEmpty();
+  }
+
+  @Test
+  @DisplayName("On animes changed applies every change of the batch in order")
+  void onAnimesChanged_AppliesEveryChangeOfTheBatchInOrder() {
+    Anime ippo = Anime.builder().id(1L).name("Hajime no Ippo").build();
+
+    animeSearchIndex.onAnimesChanged(new AnimesChangedEvent(List.of(
+            new AnimeChangedEvent(AnimeChangedEvent.Type.CREATED, ippo),
+            new AnimeChangedEvent(AnimeChangedEvent.Type.CREATED, Anime.builder().id(2L).name("Kingdom").build()),
+            new AnimeChangedEvent(AnimeChangedEvent.Type.DELETED, ippo))));
+    animeSearchIndex.refresh();
+
+    Assertions.assertThat(animeSearchIndex.search("ippo", PageRequest.of(0, 5))).isEmpty();
+    Assertions.assertThat(animeSearchIndex.search("kingdom", PageRequest.of(0, 5))).hasSize(1);
+  }
+
+  @Test
+  @DisplayName("Rebuild replaces the index content with the database content")
+  void rebuild_ReplacesIndexContentWithDatabaseContent() {
+    index(Anime.builder().id(1L).name("Stale Anime").build());
+    BDDMockito.when(animeRepositoryMock.streamAll())
+            .thenReturn(Stream.of(Anime.builder().id(2L).name("Kingdom").build()));
+
+    Assertions.assertThat(animeSearchIndex.rebuild()).isTrue();
+
+    Assertions.assertThat(animeSearchIndex.search("stale", PageRequest.of(0, 5))).isEmpty();
+    Assertions.assertThat(animeSearchIndex.search("kingdom", PageRequest.of(0, 5))).hasSize(1);
+  }
+
+  @Test
+  @DisplayName("After properties set opens the newest committed generation and deletes the others")
+  void afterPropertiesSet_OpensTheNewestCommittedGeneration_AndDeletesTheOthers() throws Exception {
+    BDDMockito.when(animeRepositoryMock.streamAll())
+            .thenReturn(Stream.of(Anime.builder().id(2L).name("Kingdom").build()));
+    Assertions.assertThat(animeSearchIndex.rebuild()).isTrue();
+    animeSearchIndex.destroy();
+    Files.createDirectories(indexPath.resolve("generation-0"));
+    Files.createDirectories(indexPath.resolve("generation-2"));
+
+    animeSearchIndex = new AnimeSearchIndex(properties, animeRepositoryMock, new AnimeShards(new ShardingProperties(),
+            Mockito.mock(PlatformTransactionManager.class), null, null),
+            Mockito.mock(EntityManager.class), Mockito.mock(PlatformTransactionManager.class));
+    animeSearchIndex.afterPropertiesSet();
+
+    Assertions.assertThat(animeSearchIndex.search("kingdom", PageRequest.of(0, 5))).hasSize(1);
+
+    try (Stream<Path> generations = Files.list(indexPath)) {
+      Assertions.assertThat(generations).extracting(path -> path.getFileName().toString())
+              .containsExactly("generation-1");
+    }
+  }
+
+  private void index(Anime anime) {
+    animeSearchIndex.onAnimeChanged(new AnimeChangedEvent(AnimeChangedEvent.Type.CREATED, anime));
+    animeSearchIndex.refresh();
+  }
+}
@@ -1,13 +1,27 @@
 package academy.devdojo.springboot2.service;
 
+import academy.devdojo.springboot2.bulk.AnimeImporter;
+import academy.devdojo.springboot2.catalog.AnimeCatalog;
+import academy.devdojo.springboot2.catalog.AnimeCatalogSnapshot;
+import academy.devdojo.springboot2.datasource.ShardingProperties;
 import academy.devdojo.springboot2.domain.Anime;
 import academy.devdojo.springboot2.exception.BadRequestException;
+import academy.devdojo.springboot2.feed.AnimeChangeFeed;
+import academy.devdojo.springboot2.prefetch.AnimePagePrefetcher;
+import academy.devdojo.springboot2.prefetch.PagePrefetchProperties;
+import academy.devdojo.springboot2.projection.AnimeView;
 import academy.devdojo.springboot2.repository.AnimeRepository;
 import academy.devdojo.springboot2.requests.AnimePostRequestBody;
 import academy.devdojo.springboot2.requests.AnimePutRequestBody;
+import academy.devdojo.springboot2.search.AnimeSearchIndex;
+import academy.devdojo.springboot2.shard.AnimeShards;
+import academy.devdojo.springboot2.sync.AnimeChangeLog;
+import academy.devdojo.springboot2.sync.AnimeChanges;
 import academy.devdojo.springboot2.util.AnimeCreator;
 import academy.devdojo.springboot2.util.AnimePostRequestBodyCreator;
 import academy.devdojo.springboot2.util.AnimePutRequestBodyCreator;
+import academy.devdojo.springboot2.wrapper.AnimeBatchResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -17,11 +31,18 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.BDDMockito;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -32,6 +53,25 @@ class AnimeServiceTest {
   private AnimeService animeService;
   @Mock
   private AnimeRepository animeRepositoryMock;
+  @Mock
+  private ApplicationEventPublisher applicationEventPublisherMock;
+  @Mock
+  private AnimeSearchIndex animeSearchIndexMock;
+  @Mock
+  private AnimeChangeFeed animeChangeFeedMock;
+  @Mock
+  private AnimeChangeLog animeChangeLogMock;
+  @Mock
+  private AnimeImporter animeImporterMock;
+  @Mock
+  private AnimeCatalog animeCatalogMock;
+  @Spy
+  private RequestCoalescer requestCoalescer = new RequestCoalescer(new SimpleMeterRegistry(), Duration.ofSeconds(2));
+  @Spy
+  private AnimeShards animeShards = new AnimeShards(new ShardingProperties(), Mockito.mock(PlatformTransactionManager.class),
+          null, null);
+  @Spy
+  private AnimePagePrefetcher animePagePrefetcher = new AnimePagePrefetcher(prefetchDisabled(), new SimpleMeterRegistry());
 
   @BeforeEach
   void setUp() {
@@ -39,11 +79,11 @@ class AnimeServiceTest {
     List<Anime> animeList = List.of(AnimeCreator.createValidAnime());
     Anime validAnime = AnimeCreator.createValidAnime();
 
-    BDDMockito.when(animeRepositoryMock.findAll(ArgumentMatchers.any(PageRequest.class)))
-            .thenReturn(animePage);
+    BDDMockito.when(animeRepositoryMock.findAllViews(ArgumentMatchers.any(PageRequest.class)))
+            .thenReturn(new PageImpl<>(List.of(AnimeCreator.createValidAnimeView())));
 
-    BDDMockito.when(animeRepositoryMock.findAll())
-            .thenReturn(List.of(AnimeCreator.createValidAnime()));
+    BDDMockito.when(animeRepositoryMock.findAllViews())
+            .thenReturn(List.of(AnimeCreator.createValidAnimeView()));
 
     BDDMockito.when(animeRepositoryMock.findById(ArgumentMatchers.anyLong()))
             .thenReturn(Optional.of(validAnime));
@@ -54,7 +94,18 @@ class AnimeServiceTest {
     BDDMockito.when(animeRepositoryMock.save(ArgumentMatchers.any(Anime.class)))
             .thenReturn(validAnime);
 
+    BDDMockito.when(animeRepositoryMock.saveAndFlush(ArgumentMatchers.any(Anime.class)))
+            .thenReturn(validAnime);
+
     BDDMockito.doNothing().when(animeRepositoryMock).delete(ArgumentMatchers.any(Anime.class));
+
+    BDDMockito.when(animeSearchIndexMock.search(ArgumentMatchers.anyString(), ArgumentMatchers.any()))
+            .thenReturn(animePage);
+
+    BDDMockito.when(animeRepositoryMock.findAllByIdKeepingOrder(ArgumentMatchers.anyList()))
+            .thenReturn(List.of(validAnime));
+
+    ReflectionTestUtils.setField(animeService, "maxBatchIds", 3);
   }
 
   @Test
@@ -62,13 +113,13 @@ class AnimeServiceTest {
   void listAll_ReturnsListOfAnimesInsidePageObject_WhenSuccessful() {
     String expectedName = AnimeCreator.createValidAnime().getName();
 
-    Page<Anime> animePage = animeService.listAll(PageRequest.of(1, 1));
+    Page<AnimeView> animePage = animeService.listAll(PageRequest.of(1, 1));
 
     Assertions.assertThat(animePage).isNotNull();
     Assertions.assertThat(animePage.toList())
             .isNotEmpty()
             .hasSize(1);
-    Assertions.assertThat(animePage.toList().get(0).getName()).isEqualTo(expectedName);
+    Assertions.assertThat(animePage.toList().get(0).name()).isEqualTo(expectedName);
   }
 
   @Test
@@ -76,13 +127,57 @@ class AnimeServiceTest {
   void listAll_ReturnsListOfAnimes_WhenSuccessful() {
     String expectedName = AnimeCreator.createValidAnime().getName();
 
-    List<Anime> animes = animeService.listAllNonPageable();
+    List<AnimeView> animes = animeService.listAllNonPageable();
 
     Assertions.assertThat(animes)
             .isNotNull()
             .isNotEmpty()
             .hasSize(1);
-    Assertions.assertThat(animes.get(0).getName()).isEqualTo(expectedName);
+    Assertions.assertThat(animes.get(0).name()).isEqualTo(expectedName);
+  }
+
+  @Test
+  @DisplayName("List returns page from the catalog snapshot without the database when the catalog is loaded")
+  void listAll_ReturnsPageFromCatalogSnapshot_WhenTheCatalogIsLoaded() {
+    AnimeView anime = AnimeCreator.createValidAnimeView();
+    BDDMockito.when(animeCatalogMock.snapshot())
+            .thenReturn(Optional.of(AnimeCatalogSnapshot.of(List.of(anime))));
+
+    Page<AnimeView> animePage = animeService.listAll(PageRequest.of(0, 10));
+
+    Assertions.assertThat(animePage.toList()).containsExactly(anime);
+    Assertions.assertThat(animePage.getTotalElements()).isEqualTo(1);
+    BDDMockito.verifyNoInteractions(animeRepositoryMock);
+  }
+
+  @Test
+  @DisplayName("List after returns the animes after the id from the catalog snapshot, else from the database")
+  void listAfter_ReturnsTheAnimesAfterTheIdFromTheCatalogSnapshot_ElseFromTheDatabase() {
+    AnimeView anime = AnimeCreator.createValidAnimeView();
+    BDDMockito.when(animeRepositoryMock.findViewsAfter(0L, PageRequest.of(0, 10))).thenReturn(List.of(anime));
+
+    Assertions.assertThat(animeService.listAfter(0L, 10)).containsExactly(anime);
+
+    BDDMockito.when(animeCatalogMock.snapshot())
+            .thenReturn(Optional.of(AnimeCatalogSnapshot.of(List.of(new AnimeView(1L, "Naruto"),
+                    new AnimeView(2L, "Berserk")))));
+
+    Assertions.assertThat(animeService.listAfter(1L, 10)).containsExactly(new AnimeView(2L, "Berserk"));
+    BDDMockito.verify(animeRepositoryMock).findViewsAfter(0L, PageRequest.of(0, 10));
+  }
+
+  @Test
+  @DisplayName("Find by id or throw bad request exception returns anime from the database when anime is not in the catalog snapshot")
+  void findByIdOrThrowBadRequestException_ReturnsAnimeFromTheDatabase_WhenAnimeIsNotInTheCatalogSnapshot() {
+    BDDMockito.when(animeCatalogMock.snapshot())
+            .thenReturn(Optional.of(AnimeCatalogSnapshot.of(List.of(new AnimeView(99L, "Naruto")))));
+
+    Anime anime = animeService.findByIdOrThrowBadRequestException(1L);
+
+    Assertions.assertThat(anime.getName()).isEqualTo(AnimeCreator.createValidAnime().getName());
+    Assertions.assertThat(animeService.findByIdOrThrowBadRequestException(99L).getName()).isEqualTo("Naruto");
+    BDDMockito.verify(animeRepositoryMock).findById(1L);
+    BDDMockito.verifyNoMoreInteractions(animeRepositoryMock);
   }
 
   @Test
@@ -111,6 +206,31 @@ class AnimeServiceTest {
             .withMessage("Anime not found");
   }
 
+  @Test
+  @DisplayName("Find all by id returns found animes and missing ids when successful")
+  void findAllById_ReturnsFoundAnimesAndMissingIds_WhenSuccessful() {
+    Long expectedId = AnimeCreator.createValidAnime().getId();
+
+    AnimeBatchResponse animeBatch = animeService.findAllById(List.of(99L, expectedId, 99L));
+
+    Assertions.assertThat(animeBatch.animes()).extracting(Anime::getId).containsExactly(expectedId);
+    Assertions.assertThat(animeBatch.missingIds()).containsExactly(99L);
+  }
+
+  @Test
+  @DisplayName("Find all by id throws bad request exception when too many ids are requested")
+  void findAllById_ThrowsBadRequestException_WhenTooManyIdsAreRequested() {
+    Assertions.assertThatExceptionOfType(BadRequestException.class)
+            .isThrownBy(() -> animeService.findAllById(List.of(1L, 2L, 3L, 4L)));
+  }
+
+  @Test
+  @DisplayName("Find all by id throws bad request exception when an id is null")
+  void findAllById_ThrowsBadRequestException_WhenAnIdIsNull() {
+    Assertions.assertThatExceptionOfType(BadRequestException.class)
+            .isThrownBy(() -> animeService.findAllById(Arrays.asList(1L, null)));
+  }
+
   @Test
   @DisplayName("Find by name returns a list of anime when successful")
   void findByName_ReturnsListOfAnime_WhenSuccessful() {
@@ -139,6 +259,34 @@ class AnimeServiceTest {
             .isEmpty();
   }
 
+  @Test
+  @DisplayName("Search returns list of anime inside page object when successful")
+  void search_ReturnsListOfAnimesInsidePageObject_WhenSuccessful() {
+    String expectedName = AnimeCreator.createValidAnime().getName();
+
+    Page<Anime> animePage = animeService.search("ippo", PageRequest.of(0, 5));
+
+    Assertions.assertThat(animePage).isNotNull();
+    Assertions.assertThat(animePage.toList())
+            .isNotEmpty()
+            .hasSize(1);
+    Assertions.assertThat(animePage.toList().get(0).getName()).isEqualTo(expectedName);
+  }
+
+  @Test
+  @DisplayName("List changes since returns only the settled token when no token is given")
+  void listChangesSince_ReturnsOnlyTheSettledToken_WhenNoTokenIsGiven() {
+    // Change 43 committed ahead of change 42, which is still committing
+    BDDMockito.when(animeChangeLogMock.currentToken()).thenReturn(43L);
+    BDDMockito.when(animeChangeLogMock.settledToken()).thenReturn(41L);
+
+    AnimeChanges animeChanges = animeService.listChangesSince(null);
+
+    Assertions.assertThat(animeChanges.changes()).isEmpty();
+    Assertions.assertThat(animeChanges.nextToken()).isEqualTo(41L);
+    Assertions.assertThat(animeChanges.hasMore()).isFalse();
+  }
+
   @Test
   @DisplayName("Save returns anime when successful")
   void save_ReturnsAnime_WhenSuccessful() {
@@ -165,4 +313,11 @@ class AnimeServiceTest {
   void delete_RemovesAnime_WhenSuccessful() {
     Assertions.assertThatCode(() -> animeService.delete(1L)).doesNotThrowAnyException();
   }
-}
\ No newline at end of file
+
+  private static PagePrefetchProperties prefetchDisabled() {
+    PagePrefetchProperties properties = new PagePrefetchProperties();
+    properties.setEnabled(false);
+
+    return properties;
+  }
+}
@@ -0,0 +1,208 @@
+package academy.devdojo.springboot2.service;
+
+import academy.devdojo.springboot2.datasource.ReplicaRoutingDataSource;
+import academy.devdojo.springboot2.exception.BadRequestException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@DisplayName("Tests for Request Coalescer")
+class RequestCoalescerTest {
+  private static final int CALLERS = 8;
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final RequestCoalescer requestCoalescer = new RequestCoalescer(meterRegistry, Duration.ofSeconds(5));
+  private final ExecutorService executorService = Executors.newFixedThreadPool(CALLERS);
+
+  @AfterEach
+  void tearDown() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  @DisplayName("Load runs the loader once and shares its result when callers are concurrent")
+  void load_RunsLoaderOnceAndSharesResult_WhenCallersAreConcurrent() throws Exception {
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+
+    List<Future<String>> results = callConcurrently(() -> requestCoalescer.load("findById", 1L, () -> {
+      loads.incrementAndGet();
+      await(release);
+      return "Hajime no Ippo";
+    }), release);
+
+    for (Future<String> result : results) {
+      Assertions.assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("Hajime no Ippo");
+    }
+
+    Assertions.assertThat(loads.get()).isEqualTo(1);
+    Assertions.assertThat(meterRegistry.get("anime.coalescing.loads").tag("result", "coalesced").counter().count())
+            .isEqualTo(CALLERS - 1);
+  }
+
+  @Test
+  @DisplayName("Load propagates the loader exception to every caller when loader fails")
+  void load_PropagatesLoaderExceptionToEveryCaller_WhenLoaderFails() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+
+    List<Future<String>> results = callConcurrently(() -> requestCoalescer.load("findById", 1L, () -> {
+      await(release);
+      throw new BadRequestException("Anime not found");
+    }), release);
+
+    for (Future<String> result : results) {
+      Assertions.assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+              .hasCauseInstanceOf(BadRequestException.class)
+              .hasMessageContaining("Anime not found");
+    }
+  }
+
+  @Test
+  @DisplayName("Load hands every waiter its own copy of the shared result")
+  void load_HandsEveryWaiterItsOwnCopyOfTheSharedResult() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    List<Future<StringBuilder>> results = new ArrayList<>();
+
+    for (int i = 0; i < CALLERS; i++) {
+      results.add(executorService.submit(() -> requestCoalescer.load("findById", 1L, () -> {
+        await(release);
+        return new StringBuilder("Hajime no Ippo");
+      }, StringBuilder::new)));
+    }
+
+    Thread.sleep(200);
+    release.countDown();
+    Set<StringBuilder> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    for (Future<StringBuilder> result : results) {
+      distinct.add(result.get(5, TimeUnit.SECONDS).append('!'));
+    }
+
+    Assertions.assertThat(distinct).hasSize(CALLERS).allSatisfy(name ->
+            Assertions.assertThat(name).hasToString("Hajime no Ippo!"));
+  }
+
+  @Test
+  @DisplayName("Load does not share a replica load with a caller pinned to the primary")
+  void load_DoesNotShareAReplicaLoadWithACallerPinnedToThePrimary() throws Exception {
+    Thread pinned = Thread.currentThread();
+    ReplicaRoutingDataSource replicaRoutingDataSource = Mockito.mock(ReplicaRoutingDataSource.class);
+    BDDMockito.when(replicaRoutingDataSource.isPinnedToPrimary())
+            .thenAnswer(invocation -> Thread.currentThread() == pinned);
+    RequestCoalescer coalescer = new RequestCoalescer(meterRegistry, Optional.of(replicaRoutingDataSource),
+            Duration.ofSeconds(5));
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    Future<String> replica = executorService.submit(() -> coalescer.load("findById", 1L, () -> {
+      started.countDown();
+      await(release);
+      return "stale";
+    }));
+    Assertions.assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+    try {
+      Assertions.assertThat(coalescer.load("findById", 1L, () -> "fresh")).isEqualTo("fresh");
+    } finally {
+      release.countDown();
+    }
+
+    Assertions.assertThat(replica.get(5, TimeUnit.SECONDS)).isEqualTo("stale");
+  }
+
+  @Test
+  @DisplayName("Load starts one new load that the other waiters join when the first load outlasts the timeout")
+  void load_StartsOneNewLoadThatTheOtherWaitersJoin_WhenTheFirstLoadOutlastsTheTimeout() throws Exception {
+    RequestCoalescer coalescer = new RequestCoalescer(meterRegistry, Duration.ofMillis(100));
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch stuck = new CountDownLatch(1);
+
+    executorService.submit(() -> coalescer.load("findById", 1L, () -> {
+      loads.incrementAndGet();
+      await(stuck);
+      return "stuck";
+    }));
+    Thread.sleep(50);
+
+    List<Future<String>> results = new ArrayList<>();
+
+    for (int i = 1; i < CALLERS; i++) {
+      results.add(executorService.submit(() -> coalescer.load("findById", 1L, () -> {
+        loads.incrementAndGet();
+        sleep(200);
+        return "Hajime no Ippo";
+      })));
+    }
+
+    try {
+      for (Future<String> result : results) {
+        Assertions.assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("Hajime no Ippo");
+      }
+    } finally {
+      stuck.countDown();
+    }
+
+    Assertions.assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  @DisplayName("Load runs the loader again when the previous load has finished")
+  void load_RunsLoaderAgain_WhenPreviousLoadHasFinished() {
+    AtomicInteger loads = new AtomicInteger();
+
+    requestCoalescer.load("findByName", "Overlord", loads::incrementAndGet);
+    requestCoalescer.load("findByName", "Overlord", loads::incrementAndGet);
+
+    Assertions.assertThat(loads.get()).isEqualTo(2);
+  }
+
+  private List<Future<String>> callConcurrently(Callable<String> call, CountDownLatch release)
+          throws InterruptedException {
+    List<Future<String>> results = new ArrayList<>();
+
+    for (int i = 0; i < CALLERS; i++) {
+      results.add(executorService.submit(call));
+    }
+
+    Thread.sleep(200);
+    release.countDown();
+
+    return results;
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
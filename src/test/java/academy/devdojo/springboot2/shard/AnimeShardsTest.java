@@ -0,0 +1,176 @@
+package academy.devdojo.springboot2.shard;
+
+import academy.devdojo.springboot2.datasource.ShardRoutingDataSource;
+import academy.devdojo.springboot2.datasource.ShardingProperties;
+import academy.devdojo.springboot2.exception.BadRequestException;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+@DisplayName("Tests for Anime Shards")
+class AnimeShardsTest {
+  private static final List<List<Long>> SHARD_IDS = List.of(List.of(3L, 6L, 9L), List.of(1L, 4L, 7L, 10L),
+          List.of(2L, 5L, 8L));
+
+  private final ShardingProperties properties = new ShardingProperties();
+  private final List<Connection> connections = IntStream.range(0, 3).mapToObj(shard -> Mockito.mock(Connection.class))
+          .toList();
+  private ShardRoutingDataSource routingDataSource;
+  private AnimeShards animeShards;
+
+  @BeforeEach
+  void setUp() throws SQLException {
+    List<DataSource> shards = new ArrayList<>();
+
+    for (Connection connection : connections) {
+      DataSource shard = Mockito.mock(DataSource.class);
+      Mockito.when(shard.getConnection()).thenReturn(connection);
+      shards.add(shard);
+    }
+
+    routingDataSource = new ShardRoutingDataSource(shards);
+    routingDataSource.afterPropertiesSet();
+
+    properties.setEnabled(true);
+    properties.setShards(List.of(new ShardingProperties.Shard(), new ShardingProperties.Shard()));
+    animeShards = new AnimeShards(properties, Mockito.mock(PlatformTransactionManager.class),
+            Mockito.mock(AnimeIdAllocator.class), Mockito.mock(AnimeIdAllocator.class));
+    animeShards.afterPropertiesSet();
+  }
+
+  @AfterEach
+  void tearDown() {
+    animeShards.destroy();
+  }
+
+  @Test
+  @DisplayName("Shard of spreads consecutive ids evenly across the shards")
+  void shardOf_SpreadsConsecutiveIdsEvenlyAcrossTheShards() {
+    int[] counts = new int[animeShards.count()];
+    LongStream.rangeClosed(1, 30_000).forEach(id -> counts[animeShards.shardOf(id)]++);
+
+    Assertions.assertThat(IntStream.of(counts)).allMatch(count -> count >= 9_500 && count <= 10_500);
+    Assertions.assertThat(animeShards.shardOf(42L)).isEqualTo(animeShards.shardOf(42L));
+  }
+
+  @Test
+  @DisplayName("Scatter runs the query on every shard, in parallel, with that shard's connections")
+  void scatter_RunsTheQueryOnEveryShardInParallelWithThatShardsConnections() {
+    CountDownLatch allStarted = new CountDownLatch(3);
+
+    List<Integer> results = animeShards.scatter(shard -> {
+      allStarted.countDown();
+      await(allStarted);
+
+      return currentShard();
+    });
+
+    Assertions.assertThat(allStarted.getCount()).isZero();
+    Assertions.assertThat(results).containsExactly(0, 1, 2);
+  }
+
+  @Test
+  @DisplayName("On shard of connects to the shard of the id and to the home shard afterwards")
+  void onShardOf_ConnectsToTheShardOfTheIdAndToTheHomeShardAfterwards() {
+    long id = LongStream.rangeClosed(1, 100).filter(candidate -> animeShards.shardOf(candidate) == 2).findFirst()
+            .orElseThrow();
+
+    Assertions.assertThat(animeShards.onShardOf(id, this::currentShard)).isEqualTo(2);
+    Assertions.assertThat(currentShard()).isEqualTo(ShardRoutingDataSource.HOME_SHARD);
+  }
+
+  @Test
+  @DisplayName("Scatter page merges the shard windows into the requested page and sums the totals")
+  void scatterPage_MergesTheShardWindowsIntoTheRequestedPageAndSumsTheTotals() {
+    Page<Long> page = animeShards.scatterPage(PageRequest.of(1, 3),
+            pageable -> shardPage(pageable.getPageSize()), Comparator.naturalOrder());
+
+    Assertions.assertThat(page.getContent()).containsExactly(4L, 5L, 6L);
+    Assertions.assertThat(page.getTotalElements()).isEqualTo(10);
+    Assertions.assertThat(page.getTotalPages()).isEqualTo(4);
+  }
+
+  @Test
+  @DisplayName("Scatter page throws bad request exception when the page lies beyond the max scatter window")
+  void scatterPage_ThrowsBadRequestException_WhenThePageLiesBeyondTheMaxScatterWindow() {
+    properties.setMaxScatterWindow(5);
+
+    Assertions.assertThatExceptionOfType(BadRequestException.class)
+            .isThrownBy(() -> animeShards.scatterPage(PageRequest.of(1, 3),
+                    pageable -> shardPage(pageable.getPageSize()), Comparator.naturalOrder()));
+  }
+
+  @Test
+  @DisplayName("Scatter throws the shard failure when a shard fails")
+  void scatter_ThrowsTheShardFailure_WhenAShardFails() {
+    Assertions.assertThatIllegalStateException()
+            .isThrownBy(() -> animeShards.scatter(shard -> {
+              if (shard == 2) {
+                throw new IllegalStateException("Shard down");
+              }
+
+              return shard;
+            }))
+            .withMessage("Shard down");
+  }
+
+  @Test
+  @DisplayName("Scatter throws service unavailable when a shard does not answer within the scatter timeout")
+  void scatter_ThrowsServiceUnavailable_WhenAShardDoesNotAnswerWithinTheScatterTimeout() {
+    properties.setScatterTimeout(Duration.ofMillis(50));
+    CountDownLatch never = new CountDownLatch(1);
+
+    Assertions.assertThatExceptionOfType(ResponseStatusException.class)
+            .isThrownBy(() -> animeShards.scatter(shard -> {
+              if (shard == 1) {
+                await(never);
+              }
+
+              return shard;
+            }))
+            .satisfies(e -> Assertions.assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+  }
+
+  private int currentShard() {
+    try {
+      return connections.indexOf(routingDataSource.getConnection());
+    } catch (SQLException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private Page<Long> shardPage(int size) {
+    List<Long> ids = SHARD_IDS.get(currentShard());
+
+    return new PageImpl<>(ids.subList(0, Math.min(size, ids.size())), PageRequest.of(0, size), ids.size());
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,166 @@
+package academy.devdojo.springboot2.sync;
+
+import academy.devdojo.springboot2.datasource.ShardingProperties;
+import academy.devdojo.springboot2.domain.AnimeChange;
+import academy.devdojo.springboot2.event.AnimeChangedEvent;
+import academy.devdojo.springboot2.event.AnimesChangedEvent;
+import academy.devdojo.springboot2.repository.AnimeChangeRepository;
+import academy.devdojo.springboot2.shard.AnimeShards;
+import academy.devdojo.springboot2.util.AnimeCreator;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+@DisplayName("Tests for Anime Change Log")
+class AnimeChangeLogTest {
+  private static final Instant NOW = Instant.parse("2024-01-10T10:00:00Z");
+
+  private AnimeChangeRepository animeChangeRepositoryMock;
+  private AnimeChangeLogProperties properties;
+  private AnimeChangeLog animeChangeLog;
+
+  @BeforeEach
+  void setUp() {
+    animeChangeRepositoryMock = Mockito.mock(AnimeChangeRepository.class);
+    properties = new AnimeChangeLogProperties();
+    properties.setMaxChangesPerRequest(3);
+    animeChangeLog = new AnimeChangeLog(properties, animeChangeRepositoryMock, new AnimeShards(new ShardingProperties(),
+            Mockito.mock(PlatformTransactionManager.class), null, null), Clock.fixed(NOW, ZoneOffset.UTC));
+
+    BDDMockito.when(animeChangeRepositoryMock.findOldestId()).thenReturn(1L);
+  }
+
+  @Test
+  @DisplayName("On anime changed records a tombstone without name when anime is deleted")
+  void onAnimeChanged_RecordsTombstoneWithoutName_WhenAnimeIsDeleted() {
+    animeChangeLog.onAnimeChanged(new AnimeChangedEvent(AnimeChangedEvent.Type.DELETED, AnimeCreator.createValidAnime()));
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<AnimeChange>> captor = ArgumentCaptor.forClass(List.class);
+    BDDMockito.verify(animeChangeRepositoryMock).saveAll(captor.capture());
+
+    Assertions.assertThat(captor.getValue()).singleElement().satisfies(change -> {
+      Assertions.assertThat(change.getAnimeId()).isEqualTo(AnimeCreator.createValidAnime().getId());
+      Assertions.assertThat(change.getName()).isNull();
+      Assertions.assertThat(change.getType()).isEqualTo(AnimeChangedEvent.Type.DELETED);
+      Assertions.assertThat(change.getChangedAt()).isEqualTo(NOW);
+    });
+  }
+
+  @Test
+  @DisplayName("On animes changed inserts a batch under consecutive global sequence ids when storage is sharded")
+  void onAnimesChanged_InsertsABatchUnderConsecutiveGlobalSequenceIds_WhenStorageIsSharded() {
+    AnimeShards animeShardsMock = Mockito.mock(AnimeShards.class);
+    BDDMockito.when(animeShardsMock.isEnabled()).thenReturn(true);
+    BDDMockito.when(animeShardsMock.allocateChangeIds(2)).thenReturn(42L);
+    AnimeChangeLog shardedChangeLog = new AnimeChangeLog(properties, animeChangeRepositoryMock, animeShardsMock,
+            Clock.fixed(NOW, ZoneOffset.UTC));
+
+    shardedChangeLog.onAnimesChanged(new AnimesChangedEvent(List.of(
+            new AnimeChangedEvent(AnimeChangedEvent.Type.CREATED, AnimeCreator.createValidAnime()),
+            new AnimeChangedEvent(AnimeChangedEvent.Type.CREATED, AnimeCreator.createValidUpdatedAnime()))));
+
+    ArgumentCaptor<AnimeChange> captor = ArgumentCaptor.forClass(AnimeChange.class);
+    BDDMockito.verify(animeChangeRepositoryMock, Mockito.times(2)).insertWithId(captor.capture());
+    BDDMockito.verify(animeChangeRepositoryMock, Mockito.never()).saveAll(ArgumentMatchers.any());
+
+    Assertions.assertThat(captor.getAllValues()).extracting(AnimeChange::getId).containsExactly(42L, 43L);
+  }
+
+  @Test
+  @DisplayName("Changes since returns the latest change per anime and the last sequence as token")
+  void changesSince_ReturnsLatestChangePerAnimeAndLastSequenceAsToken() {
+    BDDMockito.when(animeChangeRepositoryMock.findByIdGreaterThanAndChangedAtBeforeOrderByIdAsc(
+                    ArgumentMatchers.eq(4L), ArgumentMatchers.eq(NOW.minusSeconds(5)), ArgumentMatchers.any(Pageable.class)))
+            .thenReturn(List.of(
+                    change(5L, 1L, AnimeChangedEvent.Type.CREATED),
+                    change(6L, 2L, AnimeChangedEvent.Type.CREATED),
+                    change(7L, 1L, AnimeChangedEvent.Type.DELETED)));
+
+    AnimeChanges animeChanges = animeChangeLog.changesSince(4L);
+
+    Assertions.assertThat(animeChanges.changes())
+            .extracting(AnimeChange::getId)
+            .containsExactly(6L, 7L);
+    Assertions.assertThat(animeChanges.nextToken()).isEqualTo(7L);
+    Assertions.assertThat(animeChanges.hasMore()).isFalse();
+  }
+
+  @Test
+  @DisplayName("Changes since returns has more when there are more changes than the request limit")
+  void changesSince_ReturnsHasMore_WhenThereAreMoreChangesThanTheRequestLimit() {
+    BDDMockito.when(animeChangeRepositoryMock.findByIdGreaterThanAndChangedAtBeforeOrderByIdAsc(
+                    ArgumentMatchers.anyLong(), ArgumentMatchers.any(), ArgumentMatchers.any(Pageable.class)))
+            .thenReturn(List.of(
+                    change(1L, 1L, AnimeChangedEvent.Type.CREATED),
+                    change(2L, 2L, AnimeChangedEvent.Type.CREATED),
+                    change(3L, 3L, AnimeChangedEvent.Type.CREATED),
+                    change(4L, 4L, AnimeChangedEvent.Type.CREATED)));
+
+    AnimeChanges animeChanges = animeChangeLog.changesSince(0L);
+
+    Assertions.assertThat(animeChanges.changes()).hasSize(3);
+    Assertions.assertThat(animeChanges.nextToken()).isEqualTo(3L);
+    Assertions.assertThat(animeChanges.hasMore()).isTrue();
+  }
+
+  @Test
+  @DisplayName("Changes since keeps the token when there are no new changes")
+  void changesSince_KeepsTheToken_WhenThereAreNoNewChanges() {
+    AnimeChanges animeChanges = animeChangeLog.changesSince(9L);
+
+    Assertions.assertThat(animeChanges.changes()).isEmpty();
+    Assertions.assertThat(animeChanges.nextToken()).isEqualTo(9L);
+  }
+
+  @Test
+  @DisplayName("Changes since throws gone when token is older than the retained changes")
+  void changesSince_ThrowsGone_WhenTokenIsOlderThanTheRetainedChanges() {
+    BDDMockito.when(animeChangeRepositoryMock.findOldestId()).thenReturn(50L);
+
+    Assertions.assertThatExceptionOfType(ResponseStatusException.class)
+            .isThrownBy(() -> animeChangeLog.changesSince(10L))
+            .satisfies(e -> Assertions.assertThat(e.getStatusCode()).isEqualTo(HttpStatus.GONE));
+  }
+
+  @Test
+  @DisplayName("After properties set fails when the settle window does not outlast the commit timeout")
+  void afterPropertiesSet_Fails_WhenTheSettleWindowDoesNotOutlastTheCommitTimeout() {
+    properties.setSettleWindow(Duration.ofSeconds(3));
+    properties.setCommitTimeout(Duration.ofSeconds(3));
+
+    Assertions.assertThatIllegalStateException()
+            .isThrownBy(() -> animeChangeLog.afterPropertiesSet())
+            .withMessageContaining("settle-window");
+  }
+
+  @Test
+  @DisplayName("Purge deletes expired changes but keeps the newest one")
+  void purge_DeletesExpiredChangesButKeepsTheNewestOne() {
+    BDDMockito.when(animeChangeRepositoryMock.findLatestId()).thenReturn(20L);
+    BDDMockito.when(animeChangeRepositoryMock.findLatestIdChangedBefore(NOW.minus(Duration.ofDays(7)))).thenReturn(20L);
+
+    animeChangeLog.purge();
+
+    BDDMockito.verify(animeChangeRepositoryMock).deleteUpTo(19L);
+  }
+
+  private static AnimeChange change(Long id, Long animeId, AnimeChangedEvent.Type type) {
+    return AnimeChange.builder().id(id).animeId(animeId).type(type).changedAt(NOW.minusSeconds(60)).build();
+  }
+}
@@ -1,6 +1,7 @@
 package academy.devdojo.springboot2.util;
 
 import academy.devdojo.springboot2.domain.Anime;
+import academy.devdojo.springboot2.projection.AnimeView;
 
 public class AnimeCreator {
   public static Anime createAnimeToBeSaved() {
@@ -11,6 +12,10 @@ public class AnimeCreator {
     return Anime.builder().name("Hajime no Ippo").id(1L).build();
   }
 
+  public static AnimeView createValidAnimeView() {
+    return new AnimeView(1L, "Hajime no Ippo");
+  }
+
   public static Anime createValidUpdatedAnime() {
     return Anime.builder().name("Hajime no Ippo 2").id(1L).build();
   }